@@ -0,0 +1,105 @@
+package com.esin.box.benchmark;
+
+import com.esin.box.dto.AssetSeriesDTO;
+import com.esin.box.dto.AssetSeriesRowDTO;
+import com.esin.box.mapper.AssetRecordMapper;
+import com.esin.box.service.impl.AssetRecordServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 资产趋势聚合：AssetRecordServiceImpl.getSeries 的定点累加与原 BigDecimal 累加对比
+ * 输入为 selectSeries 的聚合行（时间桶 × 资产 × 类型 × 位置），行数 1万 ~ 100万
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AssetSeriesAggregationBenchmark {
+
+    private static final int DAYS = 3 * 365;
+    private static final int NAMES = 200;
+    private static final int TYPES = 12;
+    private static final int LOCATIONS = 8;
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<AssetSeriesRowDTO> data;
+    private AssetRecordServiceImpl service;
+
+    @Setup
+    public void setUp() {
+        data = generateRows(rows);
+        AssetRecordMapper mapper = mock(AssetRecordMapper.class, withSettings().stubOnly());
+        when(mapper.selectSeries(any(), any(), any(), any(), any(), any(), any())).thenReturn(data);
+        service = new AssetRecordServiceImpl();
+        ReflectionTestUtils.setField(service, "assetRecordMapper", mapper);
+
+        // 两种实现的结果必须一致
+        Map<String, BigDecimal> expected = BigDecimalSeriesBaseline.fold(data).total();
+        Map<String, BigDecimal> actual = fixedPoint().getTotal();
+        if (expected.size() != actual.size() || expected.entrySet().stream()
+                .anyMatch(entry -> entry.getValue().compareTo(actual.get(entry.getKey())) != 0)) {
+            throw new IllegalStateException("定点累加与 BigDecimal 累加结果不一致");
+        }
+    }
+
+    @Benchmark
+    public AssetSeriesDTO fixedPoint() {
+        return service.getSeries("bench", null, null, "day", null, null, null);
+    }
+
+    @Benchmark
+    public BigDecimalSeriesBaseline.Result bigDecimal() {
+        return BigDecimalSeriesBaseline.fold(data);
+    }
+
+    private static List<AssetSeriesRowDTO> generateRows(int count) {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        List<AssetSeriesRowDTO> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long nameId = random.nextInt(NAMES) + 1;
+            long typeId = nameId % TYPES + 1;
+            long locationId = random.nextInt(LOCATIONS) + 1;
+            AssetSeriesRowDTO row = new AssetSeriesRowDTO();
+            row.setBucketDate(start.plusDays(random.nextInt(DAYS)));
+            row.setAssetNameId(nameId);
+            row.setAssetName("资产" + nameId);
+            row.setAssetTypeId(typeId);
+            row.setAssetTypeName("类型" + typeId);
+            row.setAssetLocationId(locationId);
+            row.setAssetLocationName("位置" + locationId);
+            // 与 DECIMAL(20,4) 列一致的 4 位小数金额
+            row.setAmount(BigDecimal.valueOf(random.nextLong(-5_000_000_000L, 50_000_000_000L), 4));
+            result.add(row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package com.esin.box.benchmark;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 基准用数据库：默认启动 MariaDB4j 嵌入式实例，设置 -Dbenchmark.jdbc-url 时改用外部 MySQL
+ * 仓库没有建表的 V1 迁移，先执行 benchmark/schema/base.sql（按实体建的基础表），再按版本执行 db/migration
+ * MariaDB 不允许生成列进入主键，record_day 改为普通列并由 triggers.sql 按同一表达式维护
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final String DATABASE = "box_benchmark";
+
+    private final DB embedded;
+    private final Path dataDir;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final boolean mariaDb;
+
+    private BenchmarkDatabase(DB embedded, Path dataDir, String url, String username, String password, boolean mariaDb) {
+        this.embedded = embedded;
+        this.dataDir = dataDir;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.mariaDb = mariaDb;
+    }
+
+    /**
+     * 启动数据库并执行全部迁移
+     */
+    public static BenchmarkDatabase start() throws Exception {
+        String externalUrl = System.getProperty("benchmark.jdbc-url");
+        BenchmarkDatabase database;
+        if (externalUrl != null) {
+            database = new BenchmarkDatabase(null, null, externalUrl, System.getProperty("benchmark.jdbc-user", "root"),
+                    System.getProperty("benchmark.jdbc-password", ""), false);
+        } else {
+            Path dataDir = Files.createTempDirectory("box-benchmark-mariadb");
+            DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+            config.setPort(0);
+            config.setDataDir(dataDir.toFile());
+            config.addArg("--user=root");
+            config.addArg("--innodb-buffer-pool-size=" + System.getProperty("benchmark.buffer-pool", "1G"));
+            config.addArg("--innodb-flush-log-at-trx-commit=2");
+            DB db = DB.newEmbeddedDB(config.build());
+            db.start();
+            db.createDB(DATABASE);
+            database = new BenchmarkDatabase(db, dataDir, config.getURL(DATABASE)
+                    .replace("jdbc:mariadb:", "jdbc:mysql:") + "?rewriteBatchedStatements=true", "root", "", true);
+        }
+        database.migrate();
+        return database;
+    }
+
+    public Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isMariaDb() {
+        return mariaDb;
+    }
+
+    public String describe() throws SQLException {
+        try (Connection connection = connect()) {
+            return connection.getMetaData().getDatabaseProductName() + " " + connection.getMetaData().getDatabaseProductVersion();
+        }
+    }
+
+    private void migrate() throws IOException, SQLException {
+        Resource[] migrations = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*.sql");
+        Arrays.sort(migrations, Comparator.comparingInt(BenchmarkDatabase::version));
+        try (Connection connection = connect()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("benchmark/schema/base.sql"));
+            for (Resource migration : migrations) {
+                String sql = StreamUtils.copyToString(migration.getInputStream(), StandardCharsets.UTF_8);
+                if (mariaDb) {
+                    sql = sql.replaceAll("record_day DATE AS \\(.*\\) STORED NOT NULL", "record_day DATE NOT NULL DEFAULT '1970-01-01'")
+                            .replace("STORED NOT NULL", "STORED");
+                }
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(new ByteArrayResource(
+                        sql.getBytes(StandardCharsets.UTF_8), migration.getFilename()), StandardCharsets.UTF_8));
+                if (mariaDb && version(migration) == 3) {
+                    ScriptUtils.executeSqlScript(connection, new EncodedResource(
+                                    new ClassPathResource("benchmark/schema/triggers.sql"), StandardCharsets.UTF_8),
+                            false, false, ScriptUtils.DEFAULT_COMMENT_PREFIX, "//",
+                            ScriptUtils.DEFAULT_BLOCK_COMMENT_START_DELIMITER, ScriptUtils.DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+                }
+            }
+        }
+    }
+
+    private static int version(Resource migration) {
+        String name = migration.getFilename();
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (embedded != null) {
+            embedded.stop();
+            FileSystemUtils.deleteRecursively(dataDir);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.esin.box.benchmark;
+
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.esin.box.dto.AssetSeriesRowDTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 定点累加之前的趋势聚合（逐行 BigDecimal 相加，日期字符串为键的 TreeMap），作为基准对照
+ */
+final class BigDecimalSeriesBaseline {
+
+    private BigDecimalSeriesBaseline() {
+    }
+
+    static Result fold(List<AssetSeriesRowDTO> rows) {
+        Map<String, BigDecimal> total = new TreeMap<>();
+        Map<String, Map<String, BigDecimal>> byName = new TreeMap<>();
+        Map<String, Map<String, BigDecimal>> byType = new TreeMap<>();
+        Map<String, Map<String, BigDecimal>> byLocation = new TreeMap<>();
+
+        for (AssetSeriesRowDTO row : rows) {
+            String date = row.getBucketDate().toString();
+            BigDecimal amount = row.getAmount();
+            if (amount == null || amount.signum() == 0) {
+                continue;
+            }
+            total.merge(date, amount, BigDecimal::add);
+            accumulate(byName, displayName(row.getAssetName(), "资产", row.getAssetNameId()), date, amount);
+            accumulate(byType, displayName(row.getAssetTypeName(), "类型", row.getAssetTypeId()), date, amount);
+            accumulate(byLocation, displayName(row.getAssetLocationName(), "位置", row.getAssetLocationId()), date, amount);
+        }
+        return new Result(total, byName, byType, byLocation);
+    }
+
+    private static void accumulate(Map<String, Map<String, BigDecimal>> series, String key, String date,
+                                   BigDecimal amount) {
+        series.computeIfAbsent(key, k -> new TreeMap<>()).merge(date, amount, BigDecimal::add);
+    }
+
+    private static String displayName(String name, String prefix, Long id) {
+        return StringUtils.isNotBlank(name) ? name : prefix + id;
+    }
+
+    record Result(Map<String, BigDecimal> total, Map<String, Map<String, BigDecimal>> byName,
+                  Map<String, Map<String, BigDecimal>> byType, Map<String, Map<String, BigDecimal>> byLocation) {
+    }
+}
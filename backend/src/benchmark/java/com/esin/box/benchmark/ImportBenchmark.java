@@ -0,0 +1,215 @@
+package com.esin.box.benchmark;
+
+import com.esin.box.dto.BatchAddResult;
+import com.esin.box.service.AssetImportService;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.mock.web.MockMultipartFile;
+import redis.embedded.RedisServer;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件导入端到端耗时：启动完整应用（MariaDB4j + 嵌入式 Redis），调用 AssetImportService.importFile 导入 N 行
+ * 依次执行 新增（upsertStaged 全部插入）、再次导入（upsertStaged 全部更新）、CSV 与 XLSX 各一次强制覆盖（overwriteMatchedRecords）四轮，
+ * 以 MyBatis 拦截器按语句累计耗时，区分解析与暂存写入、合并各步骤
+ * 用法：mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.esin.box.benchmark.ImportBenchmark
+ * -Dbenchmark.args="100000"
+ */
+public final class ImportBenchmark {
+
+    private static final String USER = "importer";
+    private static final int ASSET_NAMES = 1000;
+
+    private ImportBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        if (rows > ASSET_NAMES * 1000) {
+            throw new IllegalArgumentException("行数超过 资产名称 × 编号 的组合数");
+        }
+        int redisPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            redisPort = socket.getLocalPort();
+        }
+        RedisServer redis = new RedisServer(redisPort);
+        redis.start();
+        StatementTimer timer = new StatementTimer();
+        try (BenchmarkDatabase database = BenchmarkDatabase.start()) {
+            seed(database);
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                    .initializers(applicationContext -> applicationContext.getBeanFactory()
+                            .registerSingleton("benchmarkStatementTimer", timer))
+                    // 命令行参数优先于 application.yml
+                    .run(
+                            "--server.port=0",
+                            "--spring.datasource.url=" + database.getUrl(),
+                            "--spring.datasource.username=root",
+                            "--spring.datasource.password=",
+                            "--spring.flyway.enabled=false",
+                            "--spring.data.redis.port=" + redisPort,
+                            "--box.archive.enabled=false",
+                            "--box.partition.enabled=false",
+                            "--logging.level.com.esin.box=INFO")) {
+                AssetImportService importService = context.getBean(AssetImportService.class);
+                System.out.println("# " + database.describe() + ", " + rows + " 行");
+                run(importService, timer, "CSV 新增（今日无记录）", csv(rows, 0), false);
+                run(importService, timer, "CSV 再次导入（全部命中今日记录并更新）", csv(rows, 1), false);
+                run(importService, timer, "CSV 强制覆盖（全部改金额）", csv(rows, 2), true);
+                run(importService, timer, "XLSX 强制覆盖（全部改金额）", xlsx(rows, 3), true);
+            }
+        } finally {
+            redis.stop();
+        }
+    }
+
+    /**
+     * 与 Application 相同的扫描范围，但排除 Application 本身（其扫描会带上测试类路径）与 TokenNode 等测试配置；不开启定时任务
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = "com.esin.box", excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX,
+            pattern = "com\\.esin\\.box\\.(Application|support\\..*|benchmark\\..*)"))
+    static class BenchmarkApplication {
+    }
+
+    private static void run(AssetImportService importService, StatementTimer timer, String name, MockMultipartFile file,
+                            boolean forceOverwrite) {
+        timer.reset();
+        long start = System.nanoTime();
+        BatchAddResult result = importService.importFile(file, forceOverwrite, false, USER);
+        long total = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println();
+        System.out.printf("## %s：总耗时 %d ms，文件 %.1f MB，%s%n", name, total, file.getSize() / 1024.0 / 1024.0, result.getMessage());
+        timer.print();
+    }
+
+    /**
+     * 用户的资产名称与元数据，导入时按显示名解析
+     */
+    private static void seed(BenchmarkDatabase database) throws Exception {
+        try (Connection connection = database.connect(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO common_meta (id, type_code, type_name, key1, key3, value1, deleted) VALUES "
+                    + "(1, 'ASSET_TYPE', '资产类型', 'CASH', 'CNY', '现金', 0), "
+                    + "(2, 'UNIT', '货币单位', 'CNY', NULL, '人民币', 0), "
+                    + "(3, 'ASSET_LOCATION', '资产位置', NULL, NULL, '银行', 0)");
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO asset_name (name, version, create_time, update_time, deleted, create_user, update_user) "
+                            + "VALUES (?, 0, NOW(), NOW(), 0, ?, ?)")) {
+                for (int i = 0; i < ASSET_NAMES; i++) {
+                    insert.setString(1, assetName(i));
+                    insert.setString(2, USER);
+                    insert.setString(3, USER);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static String assetName(int index) {
+        return String.format("资产%04d", index);
+    }
+
+    // 第 i 行：资产名称 i % 1000，编号 [C(i / 1000)]，同一资产名称 + 编号只出现一次；round 区分每轮的金额
+    private static String[] row(int i, int round) {
+        return new String[]{assetName(i % ASSET_NAMES), (1000 + i % 9000) + "." + round + "5", "现金", "银行",
+                "[C" + (i / ASSET_NAMES) + "] 月度盘点"};
+    }
+
+    private static final String[] HEADER = {"资产名称", "金额", "资产类型", "资产位置", "备注"};
+
+    private static MockMultipartFile csv(int rows, int round) {
+        StringBuilder content = new StringBuilder(String.join(",", HEADER)).append('\n');
+        for (int i = 0; i < rows; i++) {
+            content.append(String.join(",", row(i, round))).append('\n');
+        }
+        return new MockMultipartFile("file", "assets.csv", "text/csv", content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockMultipartFile xlsx(int rows, int round) throws Exception {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet();
+            writeRow(sheet.createRow(0), HEADER);
+            for (int i = 0; i < rows; i++) {
+                writeRow(sheet.createRow(i + 1), row(i, round));
+            }
+            workbook.write(out);
+            workbook.dispose();
+            return new MockMultipartFile("file", "assets.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+        }
+    }
+
+    private static void writeRow(Row row, String[] cells) {
+        for (int i = 0; i < cells.length; i++) {
+            row.createCell(i).setCellValue(cells[i]);
+        }
+    }
+
+    /**
+     * 按 MappedStatement 累计执行次数与耗时
+     */
+    @Intercepts({
+            @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+            @Signature(type = Executor.class, method = "query",
+                    args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+    })
+    public static class StatementTimer implements Interceptor {
+        private final Map<String, long[]> stats = new LinkedHashMap<>();
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                String id = ((MappedStatement) invocation.getArgs()[0]).getId();
+                long elapsed = System.nanoTime() - start;
+                synchronized (stats) {
+                    long[] stat = stats.computeIfAbsent(id.substring(id.lastIndexOf('.', id.lastIndexOf('.') - 1) + 1),
+                            k -> new long[2]);
+                    stat[0]++;
+                    stat[1] += elapsed;
+                }
+            }
+        }
+
+        void reset() {
+            synchronized (stats) {
+                stats.clear();
+            }
+        }
+
+        void print() {
+            synchronized (stats) {
+                stats.forEach((id, stat) -> System.out.printf("  %-50s %6d 次 %8d ms%n", id, stat[0],
+                        TimeUnit.NANOSECONDS.toMillis(stat[1])));
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.esin.box.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次 200 条记录的批量添加（100 条匹配更新、100 条新增）加一次统计产生的日志开销
+ * before：Spring Boot 默认同步控制台输出，application.yml 把 com.esin.box 设为 DEBUG，日志语句为改动前的写法
+ * after：logback-spring.xml 的 prod 配置（AsyncAppender + JSON），日志语句为改动后的写法
+ * after-sync：同 after 但不经 AsyncAppender，JSON 编码计入调用线程；压测下异步队列会积满丢弃 INFO，after 测不到编码开销
+ * 两者都包含 Mapper SQL 日志（改动前为 DEBUG 输出，prod 为 WARN 不输出）
+ * 控制台输出重定向到空流，测得的是格式化、编码与对象分配的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingAllocationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger("com.esin.box.service.impl.AssetRecordServiceImpl");
+    // MyBatis 按 Mapper 方法名输出 SQL 日志，且只在 DEBUG 开启时格式化
+    private static final Logger updateLog = LoggerFactory.getLogger("com.esin.box.mapper.AssetRecordMapper.update");
+    private static final Logger insertLog = LoggerFactory.getLogger("com.esin.box.mapper.AssetRecordMapper.insert");
+    private static final int RECORDS = 200;
+
+    @Param({"before", "after", "after-sync"})
+    private String pipeline;
+
+    private final Long[] assetNameIds = new Long[RECORDS];
+    private final BigDecimal[] amounts = new BigDecimal[RECORDS];
+    private final String[] remarks = new String[RECORDS];
+    private PrintStream stdout;
+    private LoggingSystem loggingSystem;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < RECORDS; i++) {
+            assetNameIds[i] = 1000L + i;
+            amounts[i] = BigDecimal.valueOf(1_234_567L + i * 31L, 2);
+            remarks[i] = "[A" + i + "] 月度盘点";
+        }
+
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        StandardEnvironment environment = new StandardEnvironment();
+        loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.beforeInitialize();
+        if ("before".equals(pipeline)) {
+            loggingSystem.initialize(new LoggingInitializationContext(environment),
+                    "classpath:benchmark/logback-boot-default.xml", null);
+            // 改动前 application.yml 中的 logging.level
+            loggingSystem.setLogLevel("com.esin.box", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("com.esin.box.mapper", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.springframework.security", LogLevel.DEBUG);
+        } else if ("after-sync".equals(pipeline)) {
+            loggingSystem.initialize(new LoggingInitializationContext(environment),
+                    "classpath:benchmark/logback-prod-sync.xml", null);
+        } else {
+            environment.setActiveProfiles("prod");
+            loggingSystem.initialize(new LoggingInitializationContext(environment), "classpath:logback-spring.xml", null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggingSystem.cleanUp();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public int batchAdd() {
+        int statements = "before".equals(pipeline) ? beforeStatements() : afterStatements();
+        return statements + sqlStatements();
+    }
+
+    /**
+     * 逐条 UPDATE 与分批 INSERT 的 MyBatis SQL 日志（Preparing / Parameters / Updates）
+     */
+    private int sqlStatements() {
+        for (int i = 0; i < RECORDS; i += 2) {
+            if (updateLog.isDebugEnabled()) {
+                updateLog.debug("==>  Preparing: UPDATE asset_record SET amount=?,remark=?,update_time=?,update_user=? "
+                        + "WHERE deleted=0 AND (id = ? AND create_user = ?)");
+                updateLog.debug("==> Parameters: {}(BigDecimal), {}(String), 2024-03-01T10:00(LocalDateTime), "
+                        + "alice(String), {}(Long), alice(String)", amounts[i], remarks[i], (long) i);
+                updateLog.debug("<==    Updates: 1");
+            }
+        }
+        for (int i = 1; i < RECORDS; i += 2) {
+            if (insertLog.isDebugEnabled()) {
+                insertLog.debug("==>  Preparing: INSERT INTO asset_record ( asset_name_id, amount, remark, create_user ) "
+                        + "VALUES ( ?, ?, ?, ? )");
+                insertLog.debug("==> Parameters: {}(Long), {}(BigDecimal), {}(String), alice(String)",
+                        assetNameIds[i], amounts[i], remarks[i]);
+                insertLog.debug("<==    Updates: 1");
+            }
+        }
+        return RECORDS;
+    }
+
+    /**
+     * 改动前 handleNormalMode、updateExistingRecord、batchInsert 与 calculateStats 中的日志语句
+     */
+    private int beforeStatements() {
+        String user = "alice";
+        log.info("开始智能批量添加，用户: {}, 记录数: {}, 强制覆盖: {}, 复制历史: {}", user, RECORDS, false, false);
+        log.info("获取用户 {} 今日记录: {} 条", user, RECORDS / 2);
+        log.info("获取到今日现有记录: {} 条", RECORDS / 2);
+        for (int i = 0; i < RECORDS; i++) {
+            if (i % 2 == 0) {
+                log.info("找到匹配记录，ID: {}, 资产名称: {}, 备注: {}, 原金额: {}, 新金额: {}",
+                        (long) i, "资产" + assetNameIds[i], remarks[i], amounts[i], amounts[i]);
+                log.info("更新记录成功");
+            } else {
+                log.info("未找到匹配记录，新增：资产名称ID: {}, 金额: {}, 备注: {}", assetNameIds[i], amounts[i], remarks[i]);
+            }
+        }
+        log.info("开始批量插入 {} 条记录", RECORDS / 2);
+        log.debug("批次插入完成: {}-{}", 1, RECORDS / 2);
+        log.info("批量插入完成，总计: {} 条记录", RECORDS / 2);
+        log.info("批量插入完成: {} 条记录", RECORDS / 2);
+        log.info("🔍 开始计算资产统计，记录数: {}", RECORDS);
+        log.info("🔍 按类型汇总完成，类型数: {}", 12);
+        return RECORDS;
+    }
+
+    /**
+     * 改动后的日志语句：逐条日志为受 isDebugEnabled 保护的 DEBUG，每批一条 INFO 汇总
+     */
+    private int afterStatements() {
+        String user = "alice";
+        log.debug("开始智能批量添加，用户: {}, 记录数: {}, 强制覆盖: {}, 复制历史: {}", user, RECORDS, false, false);
+        for (int i = 0; i < RECORDS; i++) {
+            if (i % 2 == 0) {
+                if (log.isDebugEnabled()) {
+                    log.debug("找到匹配记录，ID: {}, 资产名称: {}, 备注: {}, 原金额: {}, 新金额: {}",
+                            (long) i, "资产" + assetNameIds[i], remarks[i], amounts[i], amounts[i]);
+                }
+            } else if (log.isDebugEnabled()) {
+                log.debug("未找到匹配记录，新增：资产名称ID: {}, 金额: {}, 备注: {}", assetNameIds[i], amounts[i], remarks[i]);
+            }
+        }
+        log.debug("批次插入完成: {}-{}", 1, RECORDS / 2);
+        log.debug("批量插入完成，总计: {} 条记录", RECORDS / 2);
+        log.info("今日现有记录 {} 条，匹配更新 {} 条，新增 {} 条，用户: {}", RECORDS / 2, RECORDS / 2, RECORDS / 2, user);
+        return RECORDS;
+    }
+}
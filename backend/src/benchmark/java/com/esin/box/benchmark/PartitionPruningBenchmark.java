@@ -0,0 +1,266 @@
+package com.esin.box.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分区裁剪对比：按月分区后的 asset_record / fitness_record 上，改写前后的查询各执行一次 EXPLAIN PARTITIONS 并计时
+ * 数据覆盖截至今天的 1095 天、100 个用户，各表分区按 PartitionMaintenanceJob 运行多年后的形态逐月建好
+ * 用法：mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.esin.box.benchmark.PartitionPruningBenchmark
+ * -Dbenchmark.args="10000000 2000000"（asset_record 行数、fitness_record 行数）
+ */
+public final class PartitionPruningBenchmark {
+
+    private static final int USERS = 100;
+    private static final int DAYS = 1095;
+    private static final int CHUNK = 100_000;
+    private static final int RUNS = 5;
+    private static final String USER = "'user07'";
+
+    private PartitionPruningBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long assetRows = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        long fitnessRows = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000L;
+        if (assetRows > (long) USERS * DAYS * 200) {
+            throw new IllegalArgumentException("asset_record 行数超过 用户 × 天数 × 资产名称 的唯一键组合");
+        }
+
+        try (BenchmarkDatabase database = BenchmarkDatabase.start(); Connection connection = database.connect()) {
+            System.out.println("# " + database.describe() + ", asset_record " + assetRows + " 行, fitness_record " + fitnessRows + " 行");
+            LocalDate today = LocalDate.now();
+            LocalDate firstMonth = today.minusDays(DAYS - 1).withDayOfMonth(1);
+            try (Statement statement = connection.createStatement()) {
+                splitHistory(statement, "asset_record", firstMonth, today);
+                splitHistory(statement, "fitness_record", firstMonth, today);
+                loadMeta(statement);
+                long start = System.nanoTime();
+                loadRows(connection, assetRows, ASSET_INSERT);
+                loadRows(connection, fitnessRows, FITNESS_INSERT);
+                statement.execute("ANALYZE TABLE asset_record, fitness_record, common_meta");
+                System.out.printf("# 数据加载 %.1f s%n", (System.nanoTime() - start) / 1e9);
+                printPartitions(statement);
+            }
+
+            for (Case benchmarkCase : cases(today)) {
+                System.out.println();
+                System.out.println("## " + benchmarkCase.name());
+                report(database, connection, "改写前", benchmarkCase.before());
+                report(database, connection, "改写后", benchmarkCase.after());
+            }
+        }
+    }
+
+    /**
+     * V3 只建当月与下月分区，之前的月份由 p_history 逐月拆出，模拟长期运行后的分区形态
+     */
+    private static void splitHistory(Statement statement, String table, LocalDate firstMonth, LocalDate today)
+            throws SQLException {
+        LocalDate currentMonth = today.withDayOfMonth(1);
+        List<String> partitions = new ArrayList<>();
+        partitions.add("PARTITION p_history VALUES LESS THAN ('" + firstMonth + "')");
+        for (LocalDate month = firstMonth; month.isBefore(currentMonth); month = month.plusMonths(1)) {
+            partitions.add("PARTITION p" + month.format(DateTimeFormatter.ofPattern("yyyyMM"))
+                    + " VALUES LESS THAN ('" + month.plusMonths(1) + "')");
+        }
+        statement.execute("ALTER TABLE " + table + " REORGANIZE PARTITION p_history INTO ("
+                + String.join(", ", partitions) + ")");
+    }
+
+    private static void loadMeta(Statement statement) throws SQLException {
+        String[] assetTypes = {"CASH", "DEBT", "FUND", "FINANCE", "STOCK", "DEPOSIT", "CASH", "FUND", "STOCK", "DEBT", "GOLD", "OTHER"};
+        for (int i = 0; i < assetTypes.length; i++) {
+            statement.execute("INSERT INTO common_meta (id, type_code, type_name, key1, deleted) VALUES ("
+                    + (i + 1) + ", 'ASSET_TYPE', '类型" + (i + 1) + "', '" + assetTypes[i] + "', 0)");
+        }
+        for (int i = 0; i < 8; i++) {
+            statement.execute("INSERT INTO common_meta (id, type_code, type_name, deleted) VALUES ("
+                    + (21 + i) + ", 'ASSET_LOCATION', '位置" + (i + 1) + "', 0)");
+        }
+        // 健身类型：31-36 运动，37 碳水，38 蛋白质
+        for (int i = 0; i < 6; i++) {
+            statement.execute("INSERT INTO common_meta (id, type_code, type_name, key2, deleted) VALUES ("
+                    + (31 + i) + ", 'FITNESS_TYPE', '运动" + (i + 1) + "', 'EXERCISE', 0)");
+        }
+        statement.execute("INSERT INTO common_meta (id, type_code, type_name, key1, key2, deleted) VALUES "
+                + "(37, 'FITNESS_TYPE', '碳水', 'CARBOHYDRATE', 'INTAKE', 0), (38, 'FITNESS_TYPE', '蛋白质', 'PROTEIN', 'INTAKE', 0)");
+        statement.execute("CREATE TABLE bench_seq (n INT NOT NULL PRIMARY KEY)");
+        try (PreparedStatement insert = statement.getConnection().prepareStatement("INSERT INTO bench_seq (n) VALUES (?)")) {
+            for (int n = 0; n < CHUNK; n++) {
+                insert.setInt(1, n);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    // n 依次决定用户、日期与资产名称，(用户, 日期, 资产名称) 不重复，满足 V5 的唯一键；约 1% 为软删除
+    private static final String ASSET_INSERT = """
+            INSERT INTO asset_record (asset_name_id, asset_type_id, amount, unit_id, asset_location_id, acquire_time,
+                                      version, create_time, update_time, deleted, create_user, update_user)
+            SELECT a.name_id, a.name_id % 12 + 1, (a.n % 100000) / 100, 1, a.name_id % 8 + 21, a.acquire_time,
+                   0, a.acquire_time, a.acquire_time, a.deleted, a.create_user, a.create_user
+            FROM (SELECT s.n + ? AS n,
+                         (s.n + ?) DIV (100 * 1095) + 1 AS name_id,
+                         CONCAT('user', LPAD((s.n + ?) % 100, 2, '0')) AS create_user,
+                         CAST(CURDATE() - INTERVAL ((s.n + ?) DIV 100) % 1095 DAY AS DATETIME)
+                             + INTERVAL (s.n + ?) % 600 MINUTE AS acquire_time,
+                         IF(((s.n + ?) DIV 100) % 97 = 0, 1, 0) AS deleted
+                  FROM bench_seq s WHERE s.n < ?) a
+            """;
+
+    private static final String FITNESS_INSERT = """
+            INSERT INTO fitness_record (type_id, count, unit_id, finish_time, version, create_time, update_time, deleted,
+                                        create_user, update_user)
+            SELECT a.n % 8 + 31, a.n % 200 + 1, 1, a.finish_time, 0, a.finish_time, a.finish_time, a.deleted,
+                   a.create_user, a.create_user
+            FROM (SELECT s.n + ? AS n,
+                         CONCAT('user', LPAD((s.n + ?) % 100, 2, '0')) AS create_user,
+                         CAST(CURDATE() - INTERVAL ((s.n + ?) DIV 100) % 1095 DAY AS DATETIME)
+                             + INTERVAL (s.n + ?) % 600 MINUTE AS finish_time,
+                         IF(((s.n + ?) DIV 100) % 97 = 0, 1, 0) AS deleted
+                  FROM bench_seq s WHERE s.n < ?) a
+            """;
+
+    private static void loadRows(Connection connection, long rows, String sql) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (long offset = 0; offset < rows; offset += CHUNK) {
+                int parameters = insert.getParameterMetaData().getParameterCount();
+                for (int i = 1; i < parameters; i++) {
+                    insert.setLong(i, offset);
+                }
+                insert.setLong(parameters, Math.min(CHUNK, rows - offset));
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private static void printPartitions(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT TABLE_NAME, COUNT(*), MIN(PARTITION_NAME), MAX(PARTITION_NAME) "
+                + "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND TABLE_NAME IN ('asset_record', 'fitness_record') GROUP BY TABLE_NAME")) {
+            while (rs.next()) {
+                System.out.printf("# %s: %d 个分区（%s ... %s）%n", rs.getString(1), rs.getInt(2), rs.getString(3), rs.getString(4));
+            }
+        }
+    }
+
+    private record Case(String name, String before, String after) {
+    }
+
+    /**
+     * 改写前取 6422f55 之前的条件（按 acquire_time / finish_time），改写后取当前 Mapper 与 Service 中的条件
+     */
+    private static List<Case> cases(LocalDate today) {
+        String day = "'" + today.minusDays(400) + "'";
+        String latest = "'" + today + "'";
+        String previous = "'" + today.minusDays(1) + "'";
+        String monthStart = "'" + today.minusMonths(6).withDayOfMonth(1) + "'";
+        String monthEnd = "'" + today.minusMonths(6).withDayOfMonth(1).plusMonths(1).minusDays(1) + " 23:59:59'";
+        String seriesStart = "'" + today.minusDays(90) + "'";
+        String seriesEnd = "'" + today.plusDays(1) + "'";
+        List<String> dates = Arrays.asList("'" + today + "'", "'" + today.minusDays(1) + "'", "'" + today.minusDays(7) + "'",
+                "'" + today.minusDays(30) + "'", "'" + today.minusDays(31) + "'");
+
+        String assetSelect = "SELECT * FROM asset_record WHERE create_user = " + USER + " AND deleted = 0 AND ";
+        String totals = "SELECT SUM(CASE WHEN COALESCE(tm.key1, '') != 'DEBT' THEN ar.amount ELSE 0 END), "
+                + "SUM(CASE WHEN tm.key1 = 'DEBT' THEN ar.amount ELSE 0 END) FROM asset_record ar "
+                + "LEFT JOIN common_meta tm ON ar.asset_type_id = tm.id AND tm.type_code = 'ASSET_TYPE' AND tm.deleted = 0 "
+                + "WHERE ar.create_user = " + USER + " AND ar.deleted = 0 AND ";
+        String fitness = " FROM fitness_record fr LEFT JOIN common_meta cm ON fr.type_id = cm.id WHERE fr.create_user = "
+                + USER + " AND fr.deleted = 0 AND cm.deleted = 0 AND cm.type_code = 'FITNESS_TYPE' AND ";
+
+        return List.of(
+                new Case("今日资产记录（listTodayRecords）",
+                        assetSelect + "DATE(acquire_time) = CURDATE() ORDER BY create_time",
+                        assetSelect + "record_day = CURDATE() ORDER BY create_time"),
+                new Case("指定日期资产记录（getRecordsByDate）",
+                        assetSelect + "DATE(acquire_time) = " + day + " ORDER BY create_time",
+                        assetSelect + "record_day = " + day + " ORDER BY create_time"),
+                new Case("资产列表按月筛选（selectPage）",
+                        assetSelect + "acquire_time >= " + monthStart + " AND acquire_time <= " + monthEnd
+                                + " ORDER BY acquire_time DESC, create_time DESC LIMIT 20",
+                        assetSelect + "record_day >= CAST(" + monthStart + " AS DATE) AND acquire_time >= " + monthStart
+                                + " AND record_day <= CAST(" + monthEnd + " AS DATE) AND acquire_time <= " + monthEnd
+                                + " ORDER BY acquire_time DESC, create_time DESC LIMIT 20"),
+                new Case("最新两日汇总（selectDailyTotals）",
+                        totals + "((ar.acquire_time >= " + latest + " AND ar.acquire_time < " + latest + " + INTERVAL 1 DAY) "
+                                + "OR (ar.acquire_time >= " + previous + " AND ar.acquire_time < " + previous + " + INTERVAL 1 DAY))",
+                        totals + "ar.record_day IN (" + latest + ", " + previous + ")"),
+                new Case("日期索引校验（selectRecordDates）",
+                        "SELECT DISTINCT DATE(acquire_time) AS record_date FROM asset_record WHERE create_user = " + USER
+                                + " AND deleted = 0 AND (" + String.join(" OR ", dates.stream().map(date -> "(acquire_time >= "
+                                + date + " AND acquire_time < " + date + " + INTERVAL 1 DAY)").toList()) + ") ORDER BY record_date DESC",
+                        "SELECT DISTINCT record_day FROM asset_record WHERE create_user = " + USER + " AND deleted = 0 "
+                                + "AND record_day IN (" + String.join(", ", dates) + ") ORDER BY record_day DESC"),
+                new Case("90 天趋势时间桶（selectSeriesRows 内层）",
+                        "SELECT MAX(DATE(br.acquire_time)) FROM asset_record br WHERE br.create_user = " + USER
+                                + " AND br.deleted = 0 AND br.acquire_time >= " + seriesStart + " AND br.acquire_time < "
+                                + seriesEnd + " GROUP BY DATE(br.acquire_time)",
+                        "SELECT MAX(br.record_day) FROM asset_record br WHERE br.create_user = " + USER
+                                + " AND br.deleted = 0 AND br.record_day >= " + seriesStart + " AND br.record_day < "
+                                + seriesEnd + " GROUP BY br.record_day"),
+                new Case("近 30 天运动次数（getMonthlyCount）",
+                        "SELECT COUNT(*)" + fitness + "cm.key2 = 'EXERCISE' AND fr.finish_time >= DATE_SUB(CURRENT_DATE, INTERVAL 30 DAY)",
+                        "SELECT COUNT(*)" + fitness + "cm.key2 = 'EXERCISE' AND fr.record_day >= DATE_SUB(CURRENT_DATE, INTERVAL 30 DAY)"),
+                new Case("本周运动天数（getWeeklyCount）",
+                        "SELECT COUNT(DISTINCT DATE(fr.finish_time))" + fitness + "cm.key2 = 'EXERCISE' "
+                                + "AND YEARWEEK(fr.finish_time) = YEARWEEK(NOW())",
+                        "SELECT COUNT(DISTINCT fr.record_day)" + fitness + "cm.key2 = 'EXERCISE' "
+                                + "AND fr.record_day >= DATE_SUB(CURRENT_DATE, INTERVAL DAYOFWEEK(CURRENT_DATE) - 1 DAY) "
+                                + "AND fr.record_day < DATE_ADD(DATE_SUB(CURRENT_DATE, INTERVAL DAYOFWEEK(CURRENT_DATE) - 1 DAY), INTERVAL 7 DAY)"),
+                new Case("今日碳水摄入（getCarbsIntake）",
+                        "SELECT COALESCE(SUM(fr.count), 0)" + fitness + "cm.key2 = 'INTAKE' AND cm.key1 = 'CARBOHYDRATE' "
+                                + "AND DATE(fr.finish_time) = CURRENT_DATE",
+                        "SELECT COALESCE(SUM(fr.count), 0)" + fitness + "cm.key2 = 'INTAKE' AND cm.key1 = 'CARBOHYDRATE' "
+                                + "AND fr.record_day = CURRENT_DATE"));
+    }
+
+    private static void report(BenchmarkDatabase database, Connection connection, String label, String sql) throws SQLException {
+        System.out.println();
+        System.out.println(label + "：" + sql);
+        try (Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery((database.isMariaDb() ? "EXPLAIN PARTITIONS " : "EXPLAIN ") + sql)) {
+            ResultSetMetaData meta = plan.getMetaData();
+            while (plan.next()) {
+                StringBuilder line = new StringBuilder("  ");
+                for (String column : List.of("table", "partitions", "type", "key", "rows", "Extra")) {
+                    int index = plan.findColumn(column);
+                    line.append(meta.getColumnLabel(index)).append('=').append(plan.getString(index)).append("  ");
+                }
+                System.out.println(line.toString().stripTrailing());
+            }
+        }
+
+        // 先执行一次预热缓冲池，再取 RUNS 次的中位数
+        long[] millis = new long[RUNS];
+        int rows = execute(connection, sql);
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            execute(connection, sql);
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        System.out.printf("  结果 %d 行，耗时中位数 %d ms（%s）%n", rows, millis[RUNS / 2], Arrays.toString(millis));
+    }
+
+    private static int execute(Connection connection, String sql) throws SQLException {
+        int rows = 0;
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
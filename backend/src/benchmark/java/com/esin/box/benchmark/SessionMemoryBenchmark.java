@@ -0,0 +1,127 @@
+package com.esin.box.benchmark;
+
+import com.esin.box.filter.JwtTokenProvider;
+import com.esin.box.support.TokenNode;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import redis.embedded.RedisServer;
+
+import javax.crypto.SecretKey;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * 会话存储的 Redis 内存对比：N 次登录（各签发一对 access / refresh token）后 INFO memory 的 used_memory 增量
+ * before：66f95d5 之前的写法，每个 token 一个 active_token:/refresh_token:<用户>:<完整JWT> 字符串键
+ * after：当前 JwtTokenProvider，按用户的 sess:a / sess:r 哈希，field 为 12 字符 jti
+ * 分别测每个用户 1 个会话与 10 个会话两种分布，后者更接近多端登录
+ * 用法：mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.esin.box.benchmark.SessionMemoryBenchmark
+ * -Dbenchmark.args="100000"
+ */
+public final class SessionMemoryBenchmark {
+
+    private static final long ACCESS_EXPIRATION_MS = 7_200_000L;
+    private static final long REFRESH_EXPIRATION_MS = 2_592_000_000L;
+    private static final int PIPELINE = 1000;
+
+    private SessionMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer redis = new RedisServer(port);
+        redis.start();
+        try (TokenNode node = TokenNode.start(port)) {
+            StringRedisTemplate redisTemplate = node.redisTemplate();
+            Properties server = info(redisTemplate, "server");
+            System.out.println("# Redis " + server.getProperty("redis_version") + ", " + sessions + " 个会话");
+            for (int perUser : new int[]{1, 10}) {
+                int users = sessions / perUser;
+                long before = measure(redisTemplate, () -> writeLegacySessions(redisTemplate, users, perUser));
+                long after = measure(redisTemplate, () -> writeSessions(node.jwtTokenProvider(), users, perUser));
+                System.out.printf("每用户 %d 个会话（%d 个用户）：before %s，after %s，减少 %.1f%%%n", perUser, users,
+                        format(before, sessions), format(after, sessions), 100.0 * (before - after) / before);
+            }
+        } finally {
+            redis.stop();
+        }
+    }
+
+    private static long measure(StringRedisTemplate redisTemplate, Runnable writer) {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        long baseline = usedMemory(redisTemplate);
+        writer.run();
+        return usedMemory(redisTemplate) - baseline;
+    }
+
+    private static String format(long bytes, int sessions) {
+        return String.format("%.2f MB（%d B/会话）", bytes / 1024.0 / 1024.0, bytes / sessions);
+    }
+
+    /**
+     * 66f95d5 之前的写法：token 不带 jti，access 与 refresh 各 SET 一个带完整 token 的键
+     */
+    private static void writeLegacySessions(StringRedisTemplate redisTemplate, int users, int perUser) {
+        SecretKey key = Keys.hmacShaKeyFor(TokenNode.SECRET.getBytes(StandardCharsets.UTF_8));
+        for (int start = 0; start < users * perUser; start += PIPELINE) {
+            int from = start;
+            redisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+                for (int i = from; i < Math.min(from + PIPELINE, users * perUser); i++) {
+                    String username = "user" + (i % users);
+                    String accessToken = legacyToken(key, username, "access", ACCESS_EXPIRATION_MS);
+                    String refreshToken = legacyToken(key, username, "refresh", REFRESH_EXPIRATION_MS);
+                    connection.stringCommands().set(bytes("active_token:" + username + ":" + accessToken), bytes("1"),
+                            Expiration.milliseconds(ACCESS_EXPIRATION_MS), RedisStringCommands.SetOption.UPSERT);
+                    connection.stringCommands().set(bytes("refresh_token:" + username + ":" + refreshToken), bytes("1"),
+                            Expiration.milliseconds(REFRESH_EXPIRATION_MS), RedisStringCommands.SetOption.UPSERT);
+                }
+                return null;
+            });
+        }
+    }
+
+    private static String legacyToken(SecretKey key, String username, String type, long expirationMs) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(username)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expirationMs))
+                .claim("type", type)
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private static void writeSessions(JwtTokenProvider jwtTokenProvider, int users, int perUser) {
+        for (int i = 0; i < users * perUser; i++) {
+            String username = "user" + (i % users);
+            jwtTokenProvider.generateAccessToken(username);
+            jwtTokenProvider.generateRefreshToken(username);
+        }
+    }
+
+    private static long usedMemory(StringRedisTemplate redisTemplate) {
+        return Long.parseLong(info(redisTemplate, "memory").getProperty("used_memory"));
+    }
+
+    private static Properties info(StringRedisTemplate redisTemplate, String section) {
+        return redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info(section));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+-- 仓库没有建表的 V1 迁移：按实体建的基础表，供基准在空库上依次执行 V2 起的迁移
+CREATE TABLE asset_record (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    asset_name_id BIGINT, asset_type_id BIGINT, amount DECIMAL(20,4), unit_id BIGINT, asset_location_id BIGINT,
+    acquire_time DATETIME, remark VARCHAR(500),
+    version INT, create_time DATETIME, update_time DATETIME, deleted TINYINT DEFAULT 0,
+    create_user VARCHAR(64), update_user VARCHAR(64),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+CREATE TABLE fitness_record (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    type_id BIGINT, count DECIMAL(20,4), unit_id BIGINT, finish_time DATETIME, remark VARCHAR(500),
+    version INT, create_time DATETIME, update_time DATETIME, deleted TINYINT DEFAULT 0,
+    create_user VARCHAR(64), update_user VARCHAR(64),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+CREATE TABLE asset_name (
+    id BIGINT NOT NULL AUTO_INCREMENT, name VARCHAR(100), description VARCHAR(500), remark VARCHAR(500),
+    version INT, create_time DATETIME, update_time DATETIME, deleted TINYINT DEFAULT 0,
+    create_user VARCHAR(64), update_user VARCHAR(64),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+CREATE TABLE common_meta (
+    id BIGINT NOT NULL AUTO_INCREMENT, type_code VARCHAR(64), type_name VARCHAR(64),
+    key1 VARCHAR(64), value1 VARCHAR(255), key2 VARCHAR(64), value2 VARCHAR(255),
+    key3 VARCHAR(64), value3 VARCHAR(255), key4 VARCHAR(64), value4 VARCHAR(255), remark VARCHAR(500),
+    version INT, create_time DATETIME, update_time DATETIME, deleted TINYINT DEFAULT 0,
+    create_user VARCHAR(64), update_user VARCHAR(64),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
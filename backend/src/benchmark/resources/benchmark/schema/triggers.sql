@@ -0,0 +1,9 @@
+-- MariaDB 不允许生成列进入主键，record_day 在替身库中改为普通列，由触发器按同一表达式维护；语句以 // 分隔
+CREATE TRIGGER asset_record_day_bi BEFORE INSERT ON asset_record FOR EACH ROW
+    SET NEW.record_day = COALESCE(DATE(NEW.acquire_time), DATE '1970-01-01')//
+CREATE TRIGGER asset_record_day_bu BEFORE UPDATE ON asset_record FOR EACH ROW
+    SET NEW.record_day = COALESCE(DATE(NEW.acquire_time), DATE '1970-01-01')//
+CREATE TRIGGER fitness_record_day_bi BEFORE INSERT ON fitness_record FOR EACH ROW
+    SET NEW.record_day = COALESCE(DATE(NEW.finish_time), DATE '1970-01-01')//
+CREATE TRIGGER fitness_record_day_bu BEFORE UPDATE ON fitness_record FOR EACH ROW
+    SET NEW.record_day = COALESCE(DATE(NEW.finish_time), DATE '1970-01-01')//
@@ -0,0 +1,92 @@
+package com.esin.box.bulkhead;
+
+import com.esin.box.config.BatchJobProperties;
+import com.esin.box.config.BulkheadProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 重接口隔离舱：heavy-read（全量列表、统计）与 heavy-write（批量写入、导入）各用独立线程池执行
+ * 线程数即该类请求可占用的数据库连接上限，其余连接与 Tomcat 线程留给交互接口；配置超出连接池时启动失败
+ * 线程池指标：executor.active / executor.queued / executor.completed 等，name 标签为 bulkhead.heavy-read / bulkhead.heavy-write
+ */
+@Component
+public class Bulkheads {
+
+    private final BulkheadProperties properties;
+    private final BatchJobProperties batchJobProperties;
+    private final ThreadPoolTaskExecutor heavyReadExecutor;
+    private final ThreadPoolTaskExecutor heavyWriteExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    public Bulkheads(BulkheadProperties properties, BatchJobProperties batchJobProperties,
+                     @Qualifier("heavyReadExecutor") ThreadPoolTaskExecutor heavyReadExecutor,
+                     @Qualifier("heavyWriteExecutor") ThreadPoolTaskExecutor heavyWriteExecutor,
+                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.batchJobProperties = batchJobProperties;
+        this.heavyReadExecutor = heavyReadExecutor;
+        this.heavyWriteExecutor = heavyWriteExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        new ExecutorServiceMetrics(heavyReadExecutor.getThreadPoolExecutor(), "bulkhead.heavy-read", Tags.empty())
+                .bindTo(meterRegistry);
+        new ExecutorServiceMetrics(heavyWriteExecutor.getThreadPoolExecutor(), "bulkhead.heavy-write", Tags.empty())
+                .bindTo(meterRegistry);
+
+        int heavyThreads = properties.getHeavyRead().getPoolSize() + properties.getHeavyWrite().getPoolSize()
+                + batchJobProperties.getPoolSize();
+        int available = connectionPoolSize - properties.getReservedConnections();
+        if (heavyThreads > available) {
+            throw new IllegalStateException(String.format(
+                    "隔离舱与导入任务线程共 %d 个，超过可分配的数据库连接 %d（连接池 %d，保留 %d），请调小线程数或增大连接池",
+                    heavyThreads, available, connectionPoolSize, properties.getReservedConnections()));
+        }
+    }
+
+    public <T> WebAsyncTask<T> heavyRead(Callable<T> callable) {
+        return new WebAsyncTask<>(properties.getHeavyRead().getTimeout().toMillis(), heavyReadExecutor,
+                cancelAsTimeout(callable));
+    }
+
+    public <T> WebAsyncTask<T> heavyWrite(Callable<T> callable) {
+        return new WebAsyncTask<>(properties.getHeavyWrite().getTimeout().toMillis(), heavyWriteExecutor,
+                cancelAsTimeout(callable));
+    }
+
+    /**
+     * 超时时 Spring 先中断任务线程再写入超时结果，任务因中断抛出的异常可能抢先成为结果（返回500）
+     * 被中断的任务统一按超时处理，保证超时返回503
+     */
+    private static <T> Callable<T> cancelAsTimeout(Callable<T> callable) {
+        return () -> {
+            try {
+                return callable.call();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AsyncRequestTimeoutException();
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new AsyncRequestTimeoutException();
+                }
+                throw e;
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.archive")
+@Getter
+@Setter
+public class ArchiveProperties {
+    private boolean enabled = true;
+    private String cron = "0 30 3 * * ?"; // 每天凌晨执行
+    private int retentionDays = 30; // 软删除超过该天数的记录才会归档
+    private int chunkSize = 500; // 每个事务搬迁的行数，控制锁持有时间
+    private long pauseMillis = 200; // 两个批次之间的休眠，避免持续占用数据库
+    private int maxChunksPerRun = 2000; // 单次运行每张表的批次上限
+}
@@ -0,0 +1,24 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.batch-job")
+@Getter
+@Setter
+public class BatchJobProperties {
+    private int poolSize = 2; // 同时执行的导入任务数，每个任务占用一个数据库连接
+    private int queueCapacity = 20; // 排队上限，超出时提交直接失败
+    private int chunkSize = 200; // 每个事务写入的记录数，控制行锁持有时间
+    private int maxAttempts = 3; // 批次遇到死锁、锁等待超时等可重试异常时的尝试次数
+    private Duration jobTtl = Duration.ofHours(24); // 任务状态在Redis中的保留时间
+    private Duration dedupeWindow = Duration.ofMinutes(10); // 相同幂等键在该时间内重复提交返回同一任务
+    private Duration leaseTime = Duration.ofSeconds(30); // 执行节点的任务租约，节点停止后超过该时间未续约的任务判定为失败
+    private long ssePollMillis = 500; // SSE 推送进度时轮询Redis的间隔
+    private Duration sseTimeout = Duration.ofMinutes(10);
+}
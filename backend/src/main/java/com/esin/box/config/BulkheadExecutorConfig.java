@@ -0,0 +1,48 @@
+package com.esin.box.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 重接口隔离舱线程池：控制器以异步方式把请求交给对应线程池，Tomcat 线程立即释放给交互接口
+ * 固定大小、有界队列，队列满时拒绝（返回429）
+ */
+@Configuration
+public class BulkheadExecutorConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor heavyReadExecutor(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        return buildExecutor("bulkhead-read-", "heavy-read", properties.getHeavyRead(), meterRegistry);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor heavyWriteExecutor(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        return buildExecutor("bulkhead-write-", "heavy-write", properties.getHeavyWrite(), meterRegistry);
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String threadNamePrefix, String bulkhead, BulkheadProperties.Pool pool,
+                                                 MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("box.bulkhead.rejected")
+                .description("隔离舱已满被拒绝的请求")
+                .tag("bulkhead", bulkhead)
+                .register(meterRegistry);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(pool.getPoolSize());
+        executor.setMaxPoolSize(pool.getPoolSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setTaskDecorator(new RequestContextTaskDecorator());
+        executor.setRejectedExecutionHandler((task, threadPool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("隔离舱已满: " + bulkhead);
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,37 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.bulkhead")
+@Getter
+@Setter
+public class BulkheadProperties {
+    // 保留给登录、分页等交互接口的数据库连接数，隔离舱与导入任务线程之和超过 连接池大小 - 该值 时启动失败
+    private int reservedConnections = 3;
+
+    private Pool heavyRead = new Pool(3, 20, Duration.ofSeconds(30)); // 全量列表、统计
+    private Pool heavyWrite = new Pool(2, 10, Duration.ofSeconds(120)); // 批量添加、复制上次、文件导入
+
+    @Getter
+    @Setter
+    public static class Pool {
+        private int poolSize; // 每个线程同一时刻最多占用一个数据库连接
+        private int queueCapacity; // 排队上限，超出时直接返回429
+        private Duration timeout; // 异步请求超时，超时返回503
+
+        public Pool() {
+        }
+
+        public Pool(int poolSize, int queueCapacity, Duration timeout) {
+            this.poolSize = poolSize;
+            this.queueCapacity = queueCapacity;
+            this.timeout = timeout;
+        }
+    }
+}
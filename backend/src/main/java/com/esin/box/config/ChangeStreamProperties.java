@@ -0,0 +1,19 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.change-stream")
+@Getter
+@Setter
+public class ChangeStreamProperties {
+    private String channel = "box:changes"; // 多实例间转发变更通知的 Redis 频道
+    private Duration timeout = Duration.ofMinutes(30); // 单个 SSE 连接的最长保持时间，到期后客户端重连
+    private Duration heartbeatInterval = Duration.ofSeconds(25); // 心跳间隔，需小于网关与代理的空闲断开时间
+    private int maxConnectionsPerUser = 5; // 每个用户在单个节点上的连接上限，超出时关闭最早的连接
+}
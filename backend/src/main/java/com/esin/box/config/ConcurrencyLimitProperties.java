@@ -0,0 +1,50 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.concurrency-limit")
+@Getter
+@Setter
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+
+    // 重接口路径（Ant 匹配模式），其余接口归入 light 组
+    private List<String> heavyPaths = new ArrayList<>();
+    // 不做限流的路径，如健康检查
+    private List<String> excludePaths = new ArrayList<>(List.of("/actuator/**"));
+
+    private Group heavy = new Group(4, 1, 16, Duration.ofSeconds(2));
+    private Group light = new Group(40, 8, 150, Duration.ofMillis(300));
+
+    @Getter
+    @Setter
+    public static class Group {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+        private Duration latencyThreshold; // 响应耗时超过该值视为过载，按 backoffRatio 收缩并发上限
+        private double backoffRatio = 0.9;
+        // 按接口覆盖耗时阈值（Ant 匹配模式 -> 阈值，先匹配先生效），导入、批量写入等本身就慢的接口需单独设置
+        private Map<String, Duration> latencyThresholds = new LinkedHashMap<>();
+
+        public Group() {
+        }
+
+        public Group(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyThreshold = latencyThreshold;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.deadline")
+@Getter
+@Setter
+public class DeadlineProperties {
+    private boolean enabled = true;
+    private Duration defaultTimeout = Duration.ofSeconds(10); // 未单独配置的接口的请求时限
+
+    // 请求路径（Ant 匹配模式）-> 请求时限，按配置顺序取第一个匹配项
+    private Map<String, Duration> endpoints = new LinkedHashMap<>();
+}
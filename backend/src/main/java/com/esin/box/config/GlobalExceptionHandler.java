@@ -1,7 +1,13 @@
 package com.esin.box.config;
 
 import com.esin.box.dto.Result;
+import com.esin.box.deadline.DeadlineExceededException;
+import com.esin.box.filter.RefreshInProgressException;
+import com.esin.box.idempotency.IdempotencyConflictException;
+import com.esin.box.lock.UserLockException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -10,9 +16,11 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -46,6 +54,56 @@ public class GlobalExceptionHandler {
         return Result.error("文件大小超过限制");
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Result<String> handleIdempotencyConflictException(IdempotencyConflictException ex) {
+        log.warn("幂等键冲突: {}", ex.getMessage());
+        return Result.error(ex.getMessage());
+    }
+
+    @ExceptionHandler(RefreshInProgressException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Result<String> handleRefreshInProgressException(RefreshInProgressException ex,
+                                                           HttpServletResponse response) {
+        response.setHeader("Retry-After", "1");
+        return Result.error(ex.getMessage());
+    }
+
+    @ExceptionHandler(UserLockException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Result<String> handleUserLockException(UserLockException ex) {
+        log.warn("用户写锁冲突: {}", ex.getMessage());
+        return Result.error(ex.getMessage());
+    }
+
+    @ExceptionHandler(RedisUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<String> handleRedisUnavailableException(RedisUnavailableException ex) {
+        log.warn("Redis熔断中，请求快速失败: {}", ex.getMessage());
+        return Result.error("服务暂时不可用，请稍后重试");
+    }
+
+    @ExceptionHandler({DeadlineExceededException.class, QueryTimeoutException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<String> handleDeadlineExceededException(RuntimeException ex) {
+        log.warn("请求处理超时: {}", ex.getMessage());
+        return Result.error("请求处理超时，请稍后重试");
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public Result<String> handleRejectedExecutionException(RejectedExecutionException ex) {
+        log.warn("隔离舱已满，拒绝请求: {}", ex.getMessage());
+        return Result.error("服务繁忙，请稍后重试");
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<String> handleAsyncRequestTimeoutException(AsyncRequestTimeoutException ex) {
+        log.warn("异步请求处理超时");
+        return Result.error("请求处理超时，请稍后重试");
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Result<String> handleRuntimeException(RuntimeException ex) {
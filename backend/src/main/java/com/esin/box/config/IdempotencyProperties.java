@@ -0,0 +1,20 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.idempotency")
+@Getter
+@Setter
+public class IdempotencyProperties {
+    private boolean enabled = true;
+    private Duration processingTtl = Duration.ofMinutes(2); // 首次执行的占位有效期，进程异常退出后到期即可重新执行
+    private Duration resultTtl = Duration.ofHours(24); // 成功结果的保留时间，期间相同幂等键直接回放
+    private Duration waitTimeout = Duration.ofSeconds(10); // 并发的重复请求等待首次执行完成的最长时间
+    private long pollMillis = 100; // 等待期间轮询Redis的间隔
+}
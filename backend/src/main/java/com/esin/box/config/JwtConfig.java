@@ -13,9 +13,8 @@ public class JwtConfig {
     private String secret;
     private long expiration = 7200000; // 默认2小时
     private long refreshWindow = 1800000; // 默认30分钟
-    private long blacklistExpiration = 86400000; // 默认24小时
 
     // Redis key前缀配置
-    private String activeTokenPrefix = "active_token:";
-    private String blacklistPrefix = "token_blacklist:";
+    private String activeTokenPrefix = "sess:a:";
+    private String blacklistPrefix = "bl:";
 }
@@ -0,0 +1,16 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.partition")
+@Getter
+@Setter
+public class PartitionProperties {
+    private boolean enabled = true;
+    private String cron = "0 10 3 * * ?"; // 每天检查一次
+    private int monthsAhead = 3; // 至少预建到当前月之后的月份数
+}
@@ -0,0 +1,27 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.query-budget")
+@Getter
+@Setter
+public class QueryBudgetProperties {
+    private boolean enabled = true;
+    private int repeatThreshold = 5; // 同一语句形态在单个请求内重复执行的告警阈值
+    private int defaultBudget = 30; // 未单独配置的接口的单请求SQL条数预算
+    private boolean failOnExceed = false; // 测试环境开启：超出预算时直接抛异常使测试失败
+
+    // 接口路径（Spring MVC 匹配模式）-> 单请求SQL条数预算
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int budgetFor(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultBudget);
+    }
+}
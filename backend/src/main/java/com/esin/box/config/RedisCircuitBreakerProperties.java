@@ -0,0 +1,24 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.redis.circuit-breaker")
+@Getter
+@Setter
+public class RedisCircuitBreakerProperties {
+    private boolean enabled = true;
+    private float failureRateThreshold = 50; // 失败率（%）达到后熔断
+    private Duration slowCallDuration = Duration.ofMillis(200); // 超过该耗时记为慢调用
+    private float slowCallRateThreshold = 50; // 慢调用比例（%）达到后熔断
+    private int slidingWindowSize = 50; // 按最近N次调用统计
+    private int minimumNumberOfCalls = 10; // 至少N次调用后才开始计算比例
+    private Duration waitInOpenState = Duration.ofSeconds(5); // 熔断后多久进入半开试探
+    private int permittedCallsInHalfOpen = 5; // 半开状态允许的试探调用数
+    private int localRevokedMaxSize = 100000; // 熔断期间本机已禁用token缓存上限
+}
@@ -0,0 +1,98 @@
+package com.esin.box.config;
+
+import com.esin.box.deadline.RequestDeadline;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Redis命令执行入口，统一记录命令耗时
+ * caller 表示调用方（jwt、login、captcha 等），command 表示Redis命令
+ * 所有命令共用一个熔断器：Redis 连续失败或变慢时熔断，熔断期间直接抛出 RedisUnavailableException，不再等待超时
+ * 请求已超过时限（RequestDeadline）时不再发出命令
+ */
+@Slf4j
+@Component
+public class RedisCommandExecutor {
+
+    private static final String METRIC_NAME = "box.redis.commands";
+    private static final String CIRCUIT_BREAKER_NAME = "redis";
+
+    private final MeterRegistry meterRegistry;
+    private final RedisCircuitBreakerProperties properties;
+    private final CircuitBreaker circuitBreaker;
+
+    public RedisCommandExecutor(MeterRegistry meterRegistry, RedisCircuitBreakerProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDuration())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpen())
+                // 只有连接、超时等数据访问异常计入失败，脚本返回值等业务判断不影响熔断
+                .recordException(e -> e instanceof DataAccessException)
+                .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        this.circuitBreaker = registry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Redis熔断状态变化: {}", event.getStateTransition()));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    }
+
+    public <T> T execute(String caller, String command, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            RequestDeadline.checkRemaining("Redis命令");
+            if (!properties.isEnabled()) {
+                return action.get();
+            }
+            if (!circuitBreaker.tryAcquirePermission()) {
+                outcome = "rejected";
+                throw new RedisUnavailableException("Redis暂不可用（熔断中）");
+            }
+            long start = System.nanoTime();
+            try {
+                T result = action.get();
+                circuitBreaker.onResult(System.nanoTime() - start, TimeUnit.NANOSECONDS, result);
+                return result;
+            } catch (RuntimeException e) {
+                circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            if (!"rejected".equals(outcome)) {
+                outcome = "error";
+            }
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .description("Redis命令耗时")
+                    .tag("caller", caller)
+                    .tag("command", command)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void run(String caller, String command, Runnable action) {
+        execute(caller, command, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package com.esin.box.config;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+/**
+ * Redis 熔断中，命令未发出直接失败
+ */
+public class RedisUnavailableException extends RedisConnectionFailureException {
+    public RedisUnavailableException(String message) {
+        super(message);
+    }
+}
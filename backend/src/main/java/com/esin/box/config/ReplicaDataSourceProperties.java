@@ -0,0 +1,23 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.datasource.replica")
+@Getter
+@Setter
+public class ReplicaDataSourceProperties {
+    private boolean enabled = false; // 关闭时全部走 spring.datasource 主库
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName = "com.mysql.cj.jdbc.Driver";
+    private int maximumPoolSize = 10;
+    private Duration connectionTimeout = Duration.ofSeconds(3); // 获取连接的最长等待时间
+    private Duration stickyWindow = Duration.ofSeconds(5); // 用户写入后该时间内的只读事务仍走主库，需大于从库复制延迟
+}
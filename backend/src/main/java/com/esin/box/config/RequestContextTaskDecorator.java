@@ -0,0 +1,30 @@
+package com.esin.box.config;
+
+import com.esin.box.deadline.RequestDeadline;
+import com.esin.box.metrics.QueryBudgetContext;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 异步处理请求时把当前用户、请求时限与SQL预算统计带到隔离舱线程，执行结束后清理
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        String username = UserContextHolder.getCurrentUsername();
+        RequestDeadline deadline = RequestDeadline.current();
+        QueryBudgetContext queryBudget = QueryBudgetContext.current();
+        return () -> {
+            UserContextHolder.setCurrentUser(username);
+            RequestDeadline.attach(deadline);
+            QueryBudgetContext.attach(queryBudget);
+            try {
+                runnable.run();
+            } finally {
+                QueryBudgetContext.detach();
+                RequestDeadline.end();
+                UserContextHolder.clear();
+            }
+        };
+    }
+}
@@ -1,7 +1,9 @@
 package com.esin.box.config;
 
 import com.esin.box.filter.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -37,6 +39,10 @@ public class SecurityConfig {
             "/v3/api-docs/**"
     };
 
+    // 监控端点只在独立的管理端口上开放，业务端口上的 /actuator 按普通接口要求登录
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public BCryptPasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -51,7 +57,11 @@ public class SecurityConfig {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .authorizeHttpRequests(authorize -> authorize
+                        // SSE 完成、隔离舱异步接口返回结果时的异步分派与错误分派，沿用原请求的认证结果
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers(PUBLIC_URLS).permitAll()
+                        .requestMatchers(request -> request.getLocalPort() == managementPort
+                                && request.getRequestURI().startsWith("/actuator")).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .anyRequest().authenticated()
                 )
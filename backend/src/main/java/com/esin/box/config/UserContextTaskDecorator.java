@@ -0,0 +1,22 @@
+package com.esin.box.config;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 把提交线程的当前用户带到线程池线程，执行结束后清理
+ */
+public class UserContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        String username = UserContextHolder.getCurrentUsername();
+        return () -> {
+            UserContextHolder.setCurrentUser(username);
+            try {
+                runnable.run();
+            } finally {
+                UserContextHolder.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.esin.box.config;
+
+import com.esin.box.lock.LocalUserLockService;
+import com.esin.box.lock.RedisUserLockService;
+import com.esin.box.lock.UserLockService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 用户写锁：box.user-lock.mode=LOCAL 使用本机分段锁，REDIS 使用 Redis 租约 + 栅栏令牌
+ */
+@Configuration
+public class UserLockConfig {
+
+    @Bean
+    public UserLockService userLockService(UserLockProperties properties, StringRedisTemplate redisTemplate,
+                                           RedisCommandExecutor redisCommandExecutor, MeterRegistry meterRegistry) {
+        LocalUserLockService local = new LocalUserLockService(properties, meterRegistry);
+        if (properties.getMode() == UserLockProperties.Mode.REDIS) {
+            return new RedisUserLockService(properties, redisTemplate, redisCommandExecutor, meterRegistry, local);
+        }
+        return local;
+    }
+}
@@ -0,0 +1,24 @@
+package com.esin.box.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "box.user-lock")
+@Getter
+@Setter
+public class UserLockProperties {
+    private Mode mode = Mode.LOCAL; // 单实例用 LOCAL，多实例部署改为 REDIS
+    private int stripes = 64; // LOCAL 模式的分段锁数量
+    private Duration waitTimeout = Duration.ofSeconds(10); // 等待同一用户其他写操作完成的最长时间
+    private Duration leaseTime = Duration.ofSeconds(30); // REDIS 模式租约有效期，持有期间每 1/3 租期续约一次
+    private long retryMillis = 50; // REDIS 模式抢占失败后的重试间隔
+
+    public enum Mode {
+        LOCAL, REDIS
+    }
+}
@@ -0,0 +1,32 @@
+package com.esin.box.config;
+
+import com.esin.box.event.DataDomain;
+import com.esin.box.interceptor.DataVersionETagInterceptor;
+import com.esin.box.service.DataVersionService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final DataVersionService dataVersionService;
+
+    public WebMvcConfig(DataVersionService dataVersionService) {
+        this.dataVersionService = dataVersionService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 列表与统计接口：数据版本未变时返回304
+        registry.addInterceptor(new DataVersionETagInterceptor(dataVersionService, DataDomain.ASSET))
+                .addPathPatterns("/api/asset-record/list", "/api/asset-record/listAll",
+                        "/api/asset-record/latest-stats", "/api/asset-record/check-today",
+                        "/api/asset-record/series");
+        registry.addInterceptor(new DataVersionETagInterceptor(dataVersionService, DataDomain.FITNESS))
+                .addPathPatterns("/api/fitness-record/list", "/api/fitness-record/listAll",
+                        "/api/fitness-record/stats");
+        registry.addInterceptor(new DataVersionETagInterceptor(dataVersionService, DataDomain.ASSET_NAME))
+                .addPathPatterns("/api/asset-name/all", "/api/asset-name/list");
+    }
+}
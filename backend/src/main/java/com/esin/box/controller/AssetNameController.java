@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.esin.box.config.UserContextHolder;
 import com.esin.box.dto.Result;
 import com.esin.box.entity.AssetName;
+import com.esin.box.idempotency.Idempotent;
 import com.esin.box.service.AssetNameService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -50,6 +51,7 @@ public class AssetNameController {
         }
     }
 
+    @Idempotent
     @PostMapping
     @Operation(
             summary = "创建资产名称",
@@ -69,6 +71,7 @@ public class AssetNameController {
         }
     }
 
+    @Idempotent
     @PutMapping
     @Operation(
             summary = "更新资产名称",
@@ -93,6 +96,7 @@ public class AssetNameController {
         }
     }
 
+    @Idempotent
     @DeleteMapping("/{id}")
     @Operation(
             summary = "删除资产名称",
@@ -2,16 +2,23 @@ package com.esin.box.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.esin.box.bulkhead.Bulkheads;
 import com.esin.box.config.UserContextHolder;
 import com.esin.box.dto.*;
 import com.esin.box.entity.AssetRecord;
+import com.esin.box.idempotency.Idempotent;
+import com.esin.box.service.AssetImportService;
 import com.esin.box.service.AssetRecordService;
+import com.esin.box.service.BatchJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -27,6 +34,9 @@ public class AssetRecordController {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AssetRecordController.class);
 
     private final AssetRecordService assetRecordService;
+    private final BatchJobService batchJobService;
+    private final AssetImportService assetImportService;
+    private final Bulkheads bulkheads;
 
     @Operation(summary = "分页查询资产记录")
     @GetMapping("/list")
@@ -51,6 +61,7 @@ public class AssetRecordController {
     }
 
     @Operation(summary = "创建资产记录")
+    @Idempotent
     @PostMapping("/add")
     public ApiResponse<AssetRecord> addRecord(@Validated @RequestBody AssetRecord record) {
         log.debug("Received add record request with data: {}", record);
@@ -64,6 +75,7 @@ public class AssetRecordController {
     }
 
     @Operation(summary = "更新资产记录")
+    @Idempotent
     @PutMapping("/update")
     public ApiResponse<AssetRecord> updateRecord(@Validated @RequestBody AssetRecord record) {
         try {
@@ -76,6 +88,7 @@ public class AssetRecordController {
     }
 
     @Operation(summary = "删除资产记录")
+    @Idempotent
     @DeleteMapping("/delete/{id}")
     public ApiResponse<Void> deleteRecord(@PathVariable Long id) {
         try {
@@ -88,55 +101,83 @@ public class AssetRecordController {
     }
 
     @Operation(summary = "复制上次资产记录")
+    @Idempotent
     @PostMapping("/copy-last")
-    public ApiResponse<Void> copyLastRecords(@RequestParam(required = false) Boolean force) {
-        try {
-            assetRecordService.copyLastRecords(force != null && force);
-            return ApiResponse.success();
-        } catch (Exception e) {
-            log.error("Failed to copy last records", e);
-            return ApiResponse.error(e.getMessage());
-        }
+    public WebAsyncTask<ApiResponse<Void>> copyLastRecords(@RequestParam(required = false) Boolean force) {
+        return bulkheads.heavyWrite(() -> {
+            try {
+                assetRecordService.copyLastRecords(force != null && force);
+                return ApiResponse.success();
+            } catch (Exception e) {
+                log.error("Failed to copy last records", e);
+                return ApiResponse.error(e.getMessage());
+            }
+        });
     }
 
     @Operation(summary = "获取最近日期的资产统计")
     @GetMapping("/latest-stats")
-    public ApiResponse<AssetStatsDTO> getLatestStats(
+    public WebAsyncTask<ApiResponse<AssetStatsDTO>> getLatestStats(
             @Parameter(description = "日期偏移量，0表示最新，1表示昨天，以此类推")
             @RequestParam(required = false, defaultValue = "0") Integer offset) {
-        try {
-            String currentUser = UserContextHolder.getCurrentUsername();
-            AssetStatsDTO stats = assetRecordService.getLatestStats(currentUser, offset);
-            return ApiResponse.success(stats);
-        } catch (Exception e) {
-            log.error("Failed to get latest asset stats", e);
-            return ApiResponse.error(e.getMessage());
-        }
+        return bulkheads.heavyRead(() -> {
+            try {
+                String currentUser = UserContextHolder.getCurrentUsername();
+                AssetStatsDTO stats = assetRecordService.getLatestStats(currentUser, offset);
+                return ApiResponse.success(stats);
+            } catch (Exception e) {
+                log.error("Failed to get latest asset stats", e);
+                return ApiResponse.error(e.getMessage());
+            }
+        });
     }
 
     @Operation(summary = "查询全部资产记录")
     @GetMapping("/listAll")
-    public ApiResponse<List<AssetRecordDTO>> listAllRecords(
+    public WebAsyncTask<ApiResponse<List<AssetRecordDTO>>> listAllRecords(
             @Parameter(description = "资产名称ID") @RequestParam(required = false) List<Long> assetNameIdList,
             @Parameter(description = "资产位置ID") @RequestParam(required = false) List<Long> assetLocationIdList,
             @Parameter(description = "资产类型ID") @RequestParam(required = false) List<Long> assetTypeIdList,
             @Parameter(description = "备注关键词") @RequestParam(required = false) String remark,
             @Parameter(description = "开始日期") @RequestParam(required = false) String startDate,
             @Parameter(description = "结束日期") @RequestParam(required = false) String endDate) {
+        return bulkheads.heavyRead(() -> {
+            try {
+                String currentUser = UserContextHolder.getCurrentUsername();
+                List<AssetRecordDTO> records = assetRecordService.listByConditions(
+                        assetNameIdList,
+                        assetLocationIdList,
+                        assetTypeIdList,
+                        remark,
+                        startDate,
+                        endDate,
+                        currentUser
+                );
+                return ApiResponse.success(records);
+            } catch (Exception e) {
+                log.error("Failed to list all asset records:", e);
+                return ApiResponse.error(e.getMessage());
+            }
+        });
+    }
+
+    @Operation(summary = "查询资产趋势图表数据")
+    @GetMapping("/series")
+    public ApiResponse<AssetSeriesDTO> getSeries(
+            @Parameter(description = "开始日期") @RequestParam(required = false) String startDate,
+            @Parameter(description = "结束日期") @RequestParam(required = false) String endDate,
+            @Parameter(description = "聚合粒度：day / week / month")
+            @RequestParam(required = false, defaultValue = "day") String granularity,
+            @Parameter(description = "资产名称ID") @RequestParam(required = false) List<Long> assetNameIdList,
+            @Parameter(description = "资产位置ID") @RequestParam(required = false) List<Long> assetLocationIdList,
+            @Parameter(description = "资产类型ID") @RequestParam(required = false) List<Long> assetTypeIdList) {
         try {
             String currentUser = UserContextHolder.getCurrentUsername();
-            List<AssetRecordDTO> records = assetRecordService.listByConditions(
-                    assetNameIdList,
-                    assetLocationIdList,
-                    assetTypeIdList,
-                    remark,
-                    startDate,
-                    endDate,
-                    currentUser
-            );
-            return ApiResponse.success(records);
+            AssetSeriesDTO series = assetRecordService.getSeries(currentUser, startDate, endDate, granularity,
+                    assetNameIdList, assetLocationIdList, assetTypeIdList);
+            return ApiResponse.success(series);
         } catch (Exception e) {
-            log.error("Failed to list all asset records:", e);
+            log.error("Failed to get asset series:", e);
             return ApiResponse.error(e.getMessage());
         }
     }
@@ -155,23 +196,83 @@ public class AssetRecordController {
     }
 
     @Operation(summary = "批量添加资产记录")
+    @Idempotent
     @PostMapping("/batch-add")
-    public ApiResponse<BatchAddResult> batchAddRecords(@Validated @RequestBody BatchAddAssetRequest request) {
+    public WebAsyncTask<ApiResponse<BatchAddResult>> batchAddRecords(@Validated @RequestBody BatchAddAssetRequest request) {
+        return bulkheads.heavyWrite(() -> {
+            try {
+                String currentUser = UserContextHolder.getCurrentUsername();
+
+                BatchAddResult result = assetRecordService.smartBatchAddRecords(
+                        request.getRecords(),
+                        request.isForceOverwrite(),
+                        request.isCopyLast(),
+                        currentUser
+                );
+                return ApiResponse.success(result);
+            } catch (RuntimeException e) {
+                return ApiResponse.error(e.getMessage());
+            } catch (Exception e) {
+                log.error("批量添加异常", e);
+                return ApiResponse.error("系统异常：" + e.getMessage());
+            }
+        });
+    }
+
+    @Operation(summary = "提交异步批量添加任务", description = "立即返回任务ID，记录分批提交；相同幂等键在窗口期内重复提交返回同一任务")
+    @PostMapping("/batch-jobs")
+    public ApiResponse<String> submitBatchJob(
+            @Validated @RequestBody BatchAddAssetRequest request,
+            @Parameter(description = "幂等键，为空时按请求内容计算")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String currentUser = UserContextHolder.getCurrentUsername();
-
-            BatchAddResult result = assetRecordService.smartBatchAddRecords(
-                    request.getRecords(),
-                    request.isForceOverwrite(),
-                    request.isCopyLast(),
-                    currentUser
-            );
-            return ApiResponse.success(result);
-        } catch (RuntimeException e) {
+            String jobId = batchJobService.submit(request, currentUser, idempotencyKey);
+            return ApiResponse.success(jobId);
+        } catch (Exception e) {
+            log.error("Failed to submit batch job", e);
             return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "查询异步批量添加任务进度")
+    @GetMapping("/batch-jobs/{jobId}")
+    public ApiResponse<BatchJobStatusDTO> getBatchJob(@PathVariable String jobId) {
+        try {
+            String currentUser = UserContextHolder.getCurrentUsername();
+            return ApiResponse.success(batchJobService.getStatus(jobId, currentUser));
         } catch (Exception e) {
-            log.error("批量添加异常", e);
-            return ApiResponse.error("系统异常：" + e.getMessage());
+            log.error("Failed to get batch job {}", jobId, e);
+            return ApiResponse.error(e.getMessage());
         }
     }
+
+    @Operation(summary = "订阅异步批量添加任务进度（SSE）", description = "进度变化时推送 progress 事件，任务结束后关闭连接")
+    @GetMapping(value = "/batch-jobs/{jobId}/events", produces = "text/event-stream")
+    public SseEmitter subscribeBatchJob(@PathVariable String jobId) {
+        String currentUser = UserContextHolder.getCurrentUsername();
+        return batchJobService.subscribe(jobId, currentUser);
+    }
+
+    @Operation(summary = "从CSV/XLSX文件导入资产记录",
+            description = "表头：资产名称、金额、资产类型、货币单位（可省略）、资产位置、登记时间（可省略）、备注（可省略）；匹配规则与批量添加一致")
+    @Idempotent
+    @PostMapping(value = "/import", consumes = "multipart/form-data")
+    public WebAsyncTask<ApiResponse<BatchAddResult>> importRecords(
+            @Parameter(description = "CSV 或 XLSX 文件") @RequestParam("file") MultipartFile file,
+            @Parameter(description = "是否强制覆盖今日记录") @RequestParam(defaultValue = "false") boolean forceOverwrite,
+            @Parameter(description = "今日无记录时是否复制上回记录") @RequestParam(defaultValue = "false") boolean copyLast) {
+        return bulkheads.heavyWrite(() -> {
+            try {
+                String currentUser = UserContextHolder.getCurrentUsername();
+                BatchAddResult result = assetImportService.importFile(file, forceOverwrite, copyLast, currentUser);
+                return ApiResponse.success(result);
+            } catch (RuntimeException e) {
+                return ApiResponse.error(e.getMessage());
+            } catch (Exception e) {
+                log.error("文件导入异常", e);
+                return ApiResponse.error("系统异常：" + e.getMessage());
+            }
+        });
+    }
 }
@@ -1,5 +1,6 @@
 package com.esin.box.controller;
 
+import com.esin.box.config.RedisCommandExecutor;
 import com.esin.box.dto.CaptchaResponse;
 import com.esin.box.utils.CaptchaUtil;
 import jakarta.servlet.http.HttpServletResponse;
@@ -20,9 +21,11 @@ import java.util.concurrent.TimeUnit;
 public class CaptchaController {
 
     private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
 
-    public CaptchaController(StringRedisTemplate redisTemplate) {
+    public CaptchaController(StringRedisTemplate redisTemplate, RedisCommandExecutor redisCommandExecutor) {
         this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
     }
 
     @GetMapping
@@ -35,12 +38,12 @@ public class CaptchaController {
         String captchaId = UUID.randomUUID().toString();
 
         // 将验证码保存到Redis，设置5分钟过期
-        redisTemplate.opsForValue().set(
+        redisCommandExecutor.run("captcha", "SET", () -> redisTemplate.opsForValue().set(
                 "captcha:" + captchaId,
                 captcha.getCode(),
                 5,
                 TimeUnit.MINUTES
-        );
+        ));
 
         // 构建图片URL
         String captchaUrl = "/captcha/image/" + captchaId;
@@ -52,7 +55,8 @@ public class CaptchaController {
     @GetMapping("/image/{captchaId}")
     public void getCaptchaImage(@PathVariable String captchaId, HttpServletResponse response) throws IOException {
         // 从Redis获取验证码文本
-        String captchaCode = redisTemplate.opsForValue().get("captcha:" + captchaId);
+        String captchaCode = redisCommandExecutor.execute("captcha", "GET",
+                () -> redisTemplate.opsForValue().get("captcha:" + captchaId));
 
         if (captchaCode != null) {
             // 生成图片
@@ -0,0 +1,30 @@
+package com.esin.box.controller;
+
+import com.esin.box.config.UserContextHolder;
+import com.esin.box.service.ChangeStreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 数据变更推送控制器
+ */
+@Tag(name = "数据变更推送", description = "当前用户数据变更的 SSE 通知")
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class EventStreamController {
+
+    private final ChangeStreamService changeStreamService;
+
+    @Operation(summary = "订阅当前用户的数据变更（SSE）",
+            description = "连接建立后推送 ready 事件；资产、资产名称、健身记录变更后推送 change 事件，内容为业务域、受影响日期与记录ID")
+    @GetMapping(value = "/stream", produces = "text/event-stream")
+    public SseEmitter stream() {
+        return changeStreamService.subscribe(UserContextHolder.getCurrentUsername());
+    }
+}
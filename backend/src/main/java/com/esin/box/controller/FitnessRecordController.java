@@ -1,14 +1,17 @@
 package com.esin.box.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.esin.box.bulkhead.Bulkheads;
 import com.esin.box.dto.FitnessRecordDTO;
 import com.esin.box.dto.FitnessStatsDTO;
 import com.esin.box.entity.FitnessRecord;
+import com.esin.box.idempotency.Idempotent;
 import com.esin.box.service.FitnessRecordService;
 import com.esin.box.dto.ApiResponse;
 import com.esin.box.config.UserContextHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -24,6 +27,9 @@ public class FitnessRecordController {
     @Autowired
     private FitnessRecordService fitnessRecordService;
 
+    @Autowired
+    private Bulkheads bulkheads;
+
     @GetMapping("/list")
     public ApiResponse<IPage<FitnessRecordDTO>> listRecords(
             @RequestParam(required = false) List<Long> typeIdList,
@@ -38,18 +44,21 @@ public class FitnessRecordController {
         return ApiResponse.success(records);
     }
 
+    @Idempotent
     @PostMapping("/add")
     public ApiResponse<FitnessRecord> addRecord(@RequestBody FitnessRecord record) {
         fitnessRecordService.addRecord(record);
         return ApiResponse.success(record);
     }
 
+    @Idempotent
     @PutMapping("/update")
     public ApiResponse<FitnessRecord> updateRecord(@RequestBody FitnessRecord record) {
         fitnessRecordService.updateRecord(record);
         return ApiResponse.success(record);
     }
 
+    @Idempotent
     @DeleteMapping("/delete/{id}")
     public ApiResponse<Void> deleteRecord(@PathVariable Long id) {
         fitnessRecordService.deleteRecord(id);
@@ -57,21 +66,24 @@ public class FitnessRecordController {
     }
 
     @GetMapping("/stats")
-    public ApiResponse<FitnessStatsDTO> getStats() {
-        String currentUser = UserContextHolder.getCurrentUsername();
-        FitnessStatsDTO stats = fitnessRecordService.getStats(currentUser);
-        return ApiResponse.success(stats);
+    public WebAsyncTask<ApiResponse<FitnessStatsDTO>> getStats() {
+        return bulkheads.heavyRead(() -> {
+            String currentUser = UserContextHolder.getCurrentUsername();
+            FitnessStatsDTO stats = fitnessRecordService.getStats(currentUser);
+            return ApiResponse.success(stats);
+        });
     }
 
     @GetMapping("/listAll")
-    public ApiResponse<List<FitnessRecordDTO>> listAllRecords(
+    public WebAsyncTask<ApiResponse<List<FitnessRecordDTO>>> listAllRecords(
             @RequestParam(required = false) List<Long> typeIdList,
             @RequestParam(required = false) String remark,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
-
-        String currentUser = UserContextHolder.getCurrentUsername();
-        List<FitnessRecordDTO> records = fitnessRecordService.listByConditions(typeIdList, remark, startDate, endDate, currentUser);
-        return ApiResponse.success(records);
+        return bulkheads.heavyRead(() -> {
+            String currentUser = UserContextHolder.getCurrentUsername();
+            List<FitnessRecordDTO> records = fitnessRecordService.listByConditions(typeIdList, remark, startDate, endDate, currentUser);
+            return ApiResponse.success(records);
+        });
     }
 }
@@ -1,24 +1,27 @@
 package com.esin.box.controller;
 
+import com.esin.box.config.RedisCommandExecutor;
 import com.esin.box.dto.LoginRequest;
 import com.esin.box.dto.RegisterRequest;
 import com.esin.box.dto.ResetPasswordRequest;
 import com.esin.box.dto.Result;
 import com.esin.box.entity.User;
 import com.esin.box.filter.JwtTokenProvider;
+import com.esin.box.filter.RefreshInProgressException;
 import com.esin.box.service.UserService;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 @RestController
@@ -36,8 +39,8 @@ public class UserController {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
-    // 防并发刷新的缓存
-    private final Map<String, Long> refreshingUsers = new ConcurrentHashMap<>();
+    @Autowired
+    private RedisCommandExecutor redisCommandExecutor;
 
     // 注册保持不变
     @PostMapping("/register")
@@ -45,15 +48,17 @@ public class UserController {
         String ip = getClientIp(httpRequest);
         String registerKey = "register:" + ip;
 
-        Long registerCount = redisTemplate.opsForValue().increment(registerKey);
+        Long registerCount = redisCommandExecutor.execute("register", "INCR",
+                () -> redisTemplate.opsForValue().increment(registerKey));
         if (registerCount != null && registerCount == 1) {
-            redisTemplate.expire(registerKey, 24, TimeUnit.HOURS);
+            redisCommandExecutor.run("register", "EXPIRE", () -> redisTemplate.expire(registerKey, 24, TimeUnit.HOURS));
         }
 
         if (registerCount != null && registerCount > 1) {
             String captchaId = request.getCaptchaId();
             String captchaKey = "captcha:" + captchaId;
-            String savedCaptcha = redisTemplate.opsForValue().get(captchaKey);
+            String savedCaptcha = redisCommandExecutor.execute("register", "GET",
+                    () -> redisTemplate.opsForValue().get(captchaKey));
             if (captchaId == null) {
                 return Result.error("请输入验证码", true);
             }
@@ -63,7 +68,7 @@ public class UserController {
             if (!savedCaptcha.equalsIgnoreCase(request.getCaptcha())) {
                 return Result.error("验证码错误", true);
             }
-            redisTemplate.delete(captchaKey);
+            redisCommandExecutor.run("register", "DEL", () -> redisTemplate.delete(captchaKey));
         }
 
         try {
@@ -80,7 +85,7 @@ public class UserController {
             }
         } catch (Exception e) {
             if (registerCount != null) {
-                redisTemplate.opsForValue().decrement(registerKey);
+                redisCommandExecutor.run("register", "DECR", () -> redisTemplate.opsForValue().decrement(registerKey));
             }
             logger.error("用户注册失败: username={}, error={}", request.getUsername(), e.getMessage());
             return Result.error(e.getMessage());
@@ -98,14 +103,14 @@ public class UserController {
         String captchaId = request.getCaptchaId();
         String captchaKey = "captcha:" + captchaId;
 
-        int failCount = redisTemplate.opsForValue().get(loginFailKey) != null ?
-                Integer.parseInt(Objects.requireNonNull(redisTemplate.opsForValue().get(loginFailKey))) : 0;
+        int failCount = getLoginFailCount(loginFailKey);
 
         boolean captchaRequired = failCount >= 3;
 
         String captcha = request.getCaptcha();
         if (captchaRequired || captcha != null) {
-            String savedCaptcha = redisTemplate.opsForValue().get(captchaKey);
+            String savedCaptcha = redisCommandExecutor.execute("login", "GET",
+                    () -> redisTemplate.opsForValue().get(captchaKey));
             if (captchaId == null) {
                 return Result.error("请输入验证码", true);
             }
@@ -114,24 +119,23 @@ public class UserController {
             }
             if (!savedCaptcha.equalsIgnoreCase(captcha)) {
                 incrementLoginFailCount(loginFailKey);
-                redisTemplate.delete(captchaKey);
+                redisCommandExecutor.run("login", "DEL", () -> redisTemplate.delete(captchaKey));
                 return Result.error("验证码错误", true);
             }
-            redisTemplate.delete(captchaKey);
+            redisCommandExecutor.run("login", "DEL", () -> redisTemplate.delete(captchaKey));
         }
 
         // 先查用户
         User user = userService.findByUsername(username);
         if (user == null || userService.checkPassword(user, password)) {
             incrementLoginFailCount(loginFailKey);
-            boolean needsCaptchaAfterFail = redisTemplate.opsForValue().get(loginFailKey) != null &&
-                    Integer.parseInt(Objects.requireNonNull(redisTemplate.opsForValue().get(loginFailKey))) >= 3;
+            boolean needsCaptchaAfterFail = getLoginFailCount(loginFailKey) >= 3;
             logger.warn("用户登录失败: username={}, ip={}", username, ip);
             return Result.error("用户名或密码错误", needsCaptchaAfterFail);
         }
 
         // 登录成功，清除失败计数
-        redisTemplate.delete(loginFailKey);
+        redisCommandExecutor.run("login", "DEL", () -> redisTemplate.delete(loginFailKey));
 
         // 使用 service 生成 token 并记录登录时间
         Map<String, String> tokens = userService.generateLoginTokens(user);
@@ -140,66 +144,41 @@ public class UserController {
         return Result.success(tokens);
     }
 
-    // 增强的 refresh-token 接口
+    // 增强的 refresh-token 接口；并发刷新的等待方异步返回，不占用请求线程
     @PostMapping("/refresh-token")
-    public Result<Map<String, String>> refreshToken(@RequestBody Map<String, String> body, HttpServletRequest httpRequest) {
+    public CompletableFuture<Result<Map<String, String>>> refreshToken(@RequestBody Map<String, String> body,
+                                                                       HttpServletRequest httpRequest) {
         String refreshToken = body.get("refreshToken");
         if (refreshToken == null) {
-            return Result.error("Refresh Token不能为空");
+            return CompletableFuture.completedFuture(Result.error("Refresh Token不能为空"));
         }
 
-        String username = null;
         String ip = getClientIp(httpRequest);
-
+        String username;
         try {
             username = jwtTokenProvider.getUsernameFromJWT(refreshToken);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(refreshFailed(null, ip, e));
+        }
 
-            // 防止同一用户并发刷新
-            Long lastRefreshTime = refreshingUsers.get(username);
-            long now = System.currentTimeMillis();
-            if (lastRefreshTime != null && now - lastRefreshTime < 1000) {
-                logger.warn("用户刷新Token过于频繁: username={}, ip={}", username, ip);
-                return Result.error("刷新过于频繁，请稍后重试");
-            }
-
-            refreshingUsers.put(username, now);
-
-            // 🔥 修改：先验证但不立即失效
-            if (!jwtTokenProvider.validateToken(refreshToken)) {
-                return Result.error("Refresh Token无效");
-            }
-
-            String type = jwtTokenProvider.getTokenType(refreshToken);
-            if (!"refresh".equals(type)) {
-                return Result.error("非法的Token类型");
+        // 同一 refresh token 的并发刷新由 Redis 单飞去重，多实例部署同样有效
+        return userService.refreshTokens(refreshToken).handle((tokens, error) -> {
+            if (error == null) {
+                logger.info("Token刷新成功: username={}, ip={}", username, ip);
+                return Result.success(tokens);
             }
-
-            if (username == null) {
-                return Result.error("无法获取用户信息");
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RefreshInProgressException e) {
+                // 交给全局异常处理返回 409 + Retry-After
+                throw e;
             }
+            return refreshFailed(username, ip, cause);
+        });
+    }
 
-            // 生成新的 token 对
-            String newAccessToken = jwtTokenProvider.generateAccessToken(username);
-            String newRefreshToken = jwtTokenProvider.generateRefreshToken(username);
-
-            // 🔥 修改：在成功生成新token后再失效旧token
-            jwtTokenProvider.invalidateToken(refreshToken);
-
-            Map<String, String> tokens = new HashMap<>();
-            tokens.put("accessToken", newAccessToken);
-            tokens.put("refreshToken", newRefreshToken);
-
-            logger.info("Token刷新成功: username={}, ip={}", username, ip);
-            return Result.success(tokens);
-
-        } catch (Exception e) {
-            logger.warn("刷新Token失败: username={}, ip={}, error={}", username, ip, e.getMessage());
-            return Result.error("刷新Token失败: " + e.getMessage());
-        } finally {
-            if (username != null) {
-                refreshingUsers.remove(username);
-            }
-        }
+    private Result<Map<String, String>> refreshFailed(String username, String ip, Throwable e) {
+        logger.warn("刷新Token失败: username={}, ip={}, error={}", username, ip, e.getMessage());
+        return Result.error("刷新Token失败: " + e.getMessage());
     }
 
     // 其他接口保持不变，只校验accessToken即可
@@ -257,7 +236,13 @@ public class UserController {
                         jwtTokenProvider.invalidateAllUserTokens(username);
 
                         String lastLogoutKey = "last_logout:" + username;
-                        redisTemplate.opsForValue().set(lastLogoutKey, String.valueOf(System.currentTimeMillis()));
+                        try {
+                            redisCommandExecutor.run("logout", "SET", () -> redisTemplate.opsForValue()
+                                    .set(lastLogoutKey, String.valueOf(System.currentTimeMillis())));
+                        } catch (DataAccessException e) {
+                            // token 的失效已由 invalidateAllUserTokens 处理，登出时间只用于统计
+                            logger.warn("记录登出时间失败: username={}, error={}", username, e.getMessage());
+                        }
 
                         logger.info("用户登出成功: username={}, ip={}", username, ip);
                         return Result.success();
@@ -334,12 +319,17 @@ public class UserController {
 
     // 辅助方法
     private void incrementLoginFailCount(String key) {
-        Long newCount = redisTemplate.opsForValue().increment(key);
+        Long newCount = redisCommandExecutor.execute("login", "INCR", () -> redisTemplate.opsForValue().increment(key));
         if (newCount != null && newCount == 1) {
-            redisTemplate.expire(key, 24, TimeUnit.HOURS);
+            redisCommandExecutor.run("login", "EXPIRE", () -> redisTemplate.expire(key, 24, TimeUnit.HOURS));
         }
     }
 
+    private int getLoginFailCount(String key) {
+        String value = redisCommandExecutor.execute("login", "GET", () -> redisTemplate.opsForValue().get(key));
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
@@ -0,0 +1,9 @@
+package com.esin.box.datasource;
+
+/**
+ * 数据源路由目标
+ */
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
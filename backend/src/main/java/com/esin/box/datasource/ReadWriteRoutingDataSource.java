@@ -0,0 +1,70 @@
+package com.esin.box.datasource;
+
+import com.esin.box.config.UserContextHolder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 读写分离路由：readOnly 事务走从库，其余走主库
+ * 需包在 LazyConnectionDataSourceProxy 内，保证取连接时事务的 readOnly 标记已就绪
+ * 用户写事务提交后进入粘滞窗口，窗口内该用户的只读事务仍走主库（读己之写）
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaStickiness stickiness;
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+    private final Counter stickyCounter;
+
+    public ReadWriteRoutingDataSource(ReplicaStickiness stickiness, MeterRegistry meterRegistry) {
+        this.stickiness = stickiness;
+        this.primaryCounter = routeCounter(meterRegistry, "primary");
+        this.replicaCounter = routeCounter(meterRegistry, "replica");
+        this.stickyCounter = routeCounter(meterRegistry, "sticky");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            primaryCounter.increment();
+            return DataSourceRoute.PRIMARY;
+        }
+        String username = UserContextHolder.getCurrentUsername();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (stickiness.isSticky(username)) {
+                stickyCounter.increment();
+                return DataSourceRoute.PRIMARY;
+            }
+            replicaCounter.increment();
+            return DataSourceRoute.REPLICA;
+        }
+        markStickyAfterCommit(username);
+        primaryCounter.increment();
+        return DataSourceRoute.PRIMARY;
+    }
+
+    /**
+     * 每个物理事务只取一次连接，因此每个写事务只注册一次
+     */
+    private void markStickyAfterCommit(String username) {
+        if (username == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stickiness.mark(username);
+            }
+        });
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("box.datasource.route")
+                .description("事务连接的路由结果，sticky 表示只读事务因粘滞窗口回到主库")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
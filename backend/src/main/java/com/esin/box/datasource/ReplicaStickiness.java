@@ -0,0 +1,61 @@
+package com.esin.box.datasource;
+
+import com.esin.box.config.RedisCommandExecutor;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 用户写入后的主库粘滞窗口
+ * 本机缓存覆盖单实例，Redis键 rw_sticky:<user> 覆盖多实例；Redis不可用时按粘滞处理（走主库）
+ */
+@Slf4j
+public class ReplicaStickiness {
+
+    private static final String KEY_PREFIX = "rw_sticky:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+    private final Duration window;
+    private final Cache<String, Boolean> localMarks;
+
+    public ReplicaStickiness(StringRedisTemplate redisTemplate, RedisCommandExecutor redisCommandExecutor, Duration window) {
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+        this.window = window;
+        this.localMarks = CacheBuilder.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(10_000)
+                .build();
+    }
+
+    public void mark(String username) {
+        localMarks.put(username, Boolean.TRUE);
+        try {
+            redisCommandExecutor.run("rw-sticky", "SET", () ->
+                    redisTemplate.opsForValue().set(KEY_PREFIX + username, "1", window));
+        } catch (Exception e) {
+            log.warn("写入主库粘滞标记失败: username={}", username, e);
+        }
+    }
+
+    public boolean isSticky(String username) {
+        if (username == null) {
+            return false;
+        }
+        if (localMarks.getIfPresent(username) != null) {
+            return true;
+        }
+        try {
+            Boolean exists = redisCommandExecutor.execute("rw-sticky", "EXISTS", () ->
+                    redisTemplate.hasKey(KEY_PREFIX + username));
+            return Boolean.TRUE.equals(exists);
+        } catch (Exception e) {
+            log.warn("读取主库粘滞标记失败，本次走主库: username={}", username, e);
+            return true;
+        }
+    }
+}
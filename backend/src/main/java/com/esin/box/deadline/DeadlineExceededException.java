@@ -0,0 +1,14 @@
+package com.esin.box.deadline;
+
+/**
+ * 请求已超过时限，剩余的SQL与Redis调用不再执行
+ */
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,103 @@
+package com.esin.box.deadline;
+
+import com.esin.box.config.DeadlineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 按接口为请求设置截止时间，先于 Spring Security 执行，Token 校验的 Redis 调用也受时限约束
+ * 时限经 RequestDeadline 传递给 SQL 语句超时（DeadlineStatementInterceptor）与 Redis 命令（RedisCommandExecutor）
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private final DeadlineProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public DeadlineFilter(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        Map.Entry<String, Duration> matched = properties.getEndpoints().entrySet().stream()
+                .filter(entry -> pathMatcher.match(entry.getKey(), path))
+                .findFirst()
+                .orElse(null);
+        String endpoint = matched != null ? matched.getKey() : "default";
+        Duration timeout = matched != null ? matched.getValue() : properties.getDefaultTimeout();
+
+        RequestDeadline.begin(endpoint, timeout.toMillis());
+        RequestDeadline deadline = RequestDeadline.current();
+        // 异步请求在分派回容器时不再经过本过滤器，结果写出前从请求属性取回
+        request.setAttribute(RequestDeadline.ATTRIBUTE, deadline);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.end();
+            if (request.isAsyncStarted()) {
+                // 隔离舱异步执行的请求在完成时才能确定是否超时
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        recordOutcome(deadline, path, timeout);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                recordOutcome(deadline, path, timeout);
+            }
+        }
+    }
+
+    private void recordOutcome(RequestDeadline deadline, String path, Duration timeout) {
+        if (deadline != null && deadline.isExceeded()) {
+            log.warn("请求超过时限被取消: path={}, timeout={}ms", path, timeout.toMillis());
+            Counter.builder("box.request.deadline.exceeded")
+                    .description("超过时限被取消的请求")
+                    .tag("endpoint", deadline.getEndpoint())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.esin.box.deadline;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 控制器普遍捕获异常后返回 error 结果，请求因超时被取消时统一把状态码改为 503
+ */
+@RestControllerAdvice
+public class DeadlineResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType,
+                                  @NonNull MediaType selectedContentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null && request instanceof ServletServerHttpRequest servletRequest) {
+            deadline = (RequestDeadline) servletRequest.getServletRequest().getAttribute(RequestDeadline.ATTRIBUTE);
+        }
+        if (deadline != null && deadline.isExceeded()) {
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return body;
+    }
+}
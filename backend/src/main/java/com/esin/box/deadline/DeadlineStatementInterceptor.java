@@ -0,0 +1,58 @@
+package com.esin.box.deadline;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 把请求剩余时间设置为SQL语句超时（JDBC 精度为秒，向上取整），已超时的请求不再执行SQL
+ * 执行失败时若请求已超时，转换为 DeadlineExceededException
+ */
+@Component
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+})
+public class DeadlineStatementInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null) {
+            return invocation.proceed();
+        }
+
+        if ("prepare".equals(invocation.getMethod().getName())) {
+            long remaining = RequestDeadline.checkRemaining("SQL执行");
+            Statement statement = (Statement) invocation.proceed();
+            int seconds = (int) Math.max(1, (remaining + 999) / 1000);
+            int current = statement.getQueryTimeout();
+            if (current == 0 || current > seconds) {
+                statement.setQueryTimeout(seconds);
+            }
+            return statement;
+        }
+
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            // proceed 以反射调用，SQLException 被包装在 InvocationTargetException 中
+            Throwable cause = ExceptionUtil.unwrapThrowable(e);
+            if (cause instanceof SQLException && deadline.remainingMillis() <= 0) {
+                throw deadline.exceeded("SQL执行", cause);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.esin.box.deadline;
+
+import org.springframework.core.NamedThreadLocal;
+
+/**
+ * 当前请求的截止时间，由 DeadlineFilter 在请求开始时设置、结束时清除
+ * 批量导入等后台任务线程不继承；隔离舱线程经 RequestContextTaskDecorator 沿用请求的时限
+ */
+public class RequestDeadline {
+    public static final String ATTRIBUTE = RequestDeadline.class.getName();
+
+    private static final ThreadLocal<RequestDeadline> holder = new NamedThreadLocal<>("Request Deadline");
+
+    private final String endpoint;
+    private final long deadlineNanos;
+    private volatile boolean exceeded;
+
+    private RequestDeadline(String endpoint, long timeoutMillis) {
+        this.endpoint = endpoint;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    public static void begin(String endpoint, long timeoutMillis) {
+        holder.set(new RequestDeadline(endpoint, timeoutMillis));
+    }
+
+    /**
+     * 异步线程沿用发起请求时的截止时间
+     */
+    public static void attach(RequestDeadline deadline) {
+        if (deadline != null) {
+            holder.set(deadline);
+        }
+    }
+
+    public static RequestDeadline current() {
+        return holder.get();
+    }
+
+    public static RequestDeadline end() {
+        RequestDeadline deadline = holder.get();
+        holder.remove();
+        return deadline;
+    }
+
+    /**
+     * 当前请求未超时则返回剩余毫秒数，已超时直接抛出 DeadlineExceededException；没有时限时返回 Long.MAX_VALUE
+     */
+    public static long checkRemaining(String operation) {
+        RequestDeadline deadline = holder.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        long remaining = deadline.remainingMillis();
+        if (remaining <= 0) {
+            throw deadline.exceeded(operation, null);
+        }
+        return remaining;
+    }
+
+    public long remainingMillis() {
+        return (deadlineNanos - System.nanoTime()) / 1_000_000L;
+    }
+
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    DeadlineExceededException exceeded(String operation, Throwable cause) {
+        exceeded = true;
+        return new DeadlineExceededException("请求处理超时，已取消" + operation + "：" + endpoint, cause);
+    }
+}
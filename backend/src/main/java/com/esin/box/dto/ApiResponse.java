@@ -1,8 +1,10 @@
 package com.esin.box.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 public class ApiResponse<T> {
     private boolean success;
     private String message;
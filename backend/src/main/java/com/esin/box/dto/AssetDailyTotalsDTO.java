@@ -0,0 +1,19 @@
+package com.esin.box.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 统计日与上一记录日的分类合计（资产 / 负债 / 理财）
+ */
+@Data
+public class AssetDailyTotalsDTO {
+    private BigDecimal latestAssets;
+    private BigDecimal latestLiabilities;
+    private BigDecimal latestInvestment;
+
+    private BigDecimal previousAssets;
+    private BigDecimal previousLiabilities;
+    private BigDecimal previousInvestment;
+}
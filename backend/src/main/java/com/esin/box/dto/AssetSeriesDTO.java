@@ -0,0 +1,45 @@
+package com.esin.box.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 资产趋势图表数据，数据量与时间桶数量相关，与记录数无关
+ */
+@Data
+@Builder
+public class AssetSeriesDTO {
+    /**
+     * 聚合粒度：day / week / month
+     */
+    private String granularity;
+
+    /**
+     * 时间桶日期（升序），周/月粒度取桶内最后一个有记录的日期
+     */
+    private List<String> dates;
+
+    /**
+     * 总金额趋势：日期 -> 金额
+     */
+    private Map<String, BigDecimal> total;
+
+    /**
+     * 按资产名称：名称 -> (日期 -> 金额)
+     */
+    private Map<String, Map<String, BigDecimal>> byName;
+
+    /**
+     * 按资产类型：类型 -> (日期 -> 金额)
+     */
+    private Map<String, Map<String, BigDecimal>> byType;
+
+    /**
+     * 按资产位置：位置 -> (日期 -> 金额)
+     */
+    private Map<String, Map<String, BigDecimal>> byLocation;
+}
@@ -0,0 +1,21 @@
+package com.esin.box.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 趋势聚合查询结果行：时间桶 + 名称/类型/位置 维度的金额合计
+ */
+@Data
+public class AssetSeriesRowDTO {
+    private LocalDate bucketDate;
+    private Long assetNameId;
+    private String assetName;
+    private Long assetTypeId;
+    private String assetTypeName;
+    private Long assetLocationId;
+    private String assetLocationName;
+    private BigDecimal amount;
+}
@@ -3,29 +3,36 @@ package com.esin.box.dto;
 import lombok.Builder;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 @Builder
 public class AssetStatsDTO {
     /**
      * 净资产（总资产-总负债）
      */
-    private Double netAssets;
+    private BigDecimal netAssets;
 
     /**
      * 总负债
      */
-    private Double totalLiabilities;
+    private BigDecimal totalLiabilities;
 
     /**
      * 理财资产总和（基金+理财+股票）
      */
-    private Double investmentAssets;
+    private BigDecimal investmentAssets;
 
     /**
      * 最新记录日期
      */
     private String latestDate;
 
+    /**
+     * 上一记录日期，变化额相对该日计算
+     */
+    private String previousDate;
+
     /**
      * 格式化的日期显示
      */
@@ -34,15 +41,15 @@ public class AssetStatsDTO {
     /**
      * 净资产变化
      */
-    private Double netAssetsChange;
+    private BigDecimal netAssetsChange;
 
     /**
      * 负债变化
      */
-    private Double liabilitiesChange;
+    private BigDecimal liabilitiesChange;
 
     /**
      * 理财资产变化
      */
-    private Double investmentAssetsChange;
+    private BigDecimal investmentAssetsChange;
 }
\ No newline at end of file
@@ -54,6 +54,16 @@ public class BatchAddResult {
      */
     private int addCount;
 
+    /**
+     * 删除记录数（强制覆盖时今日多出的记录）
+     */
+    private int deleteCount;
+
+    /**
+     * 内容未变化、未写库的记录数
+     */
+    private int unchangedCount;
+
     /**
      * 操作结果消息
      */
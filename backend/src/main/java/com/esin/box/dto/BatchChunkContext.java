@@ -0,0 +1,43 @@
+package com.esin.box.dto;
+
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 分块批量添加的任务级状态，跨批次累积
+ * 同步批量添加相当于只有一个批次（首批次同时也是末批次）
+ */
+@Data
+public class BatchChunkContext {
+    private final String createUser;
+    private final boolean forceOverwrite;
+    private final boolean copyLast;
+    private final int totalCount;
+
+    /**
+     * 首批次：非强制覆盖模式下才会复制历史记录
+     */
+    private boolean firstChunk = true;
+
+    /**
+     * 末批次：强制覆盖模式下软删除今日未被匹配的记录
+     */
+    private boolean lastChunk = true;
+
+    /**
+     * 本任务已新增的今日记录ID，强制覆盖模式下后续批次匹配时排除
+     */
+    private final Set<Long> insertedIds = new HashSet<>();
+
+    /**
+     * 本任务已匹配（更新或未变化）的今日记录ID，强制覆盖模式下后续批次排除、末批次保留
+     */
+    private final Set<Long> matchedIds = new HashSet<>();
+
+    /**
+     * 已提交批次的累计结果
+     */
+    private BatchAddResult totals;
+}
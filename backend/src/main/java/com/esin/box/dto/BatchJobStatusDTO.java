@@ -0,0 +1,51 @@
+package com.esin.box.dto;
+
+import lombok.Data;
+
+@Data
+public class BatchJobStatusDTO {
+    private String jobId;
+
+    /**
+     * 任务状态：PENDING / RUNNING / SUCCEEDED / FAILED
+     */
+    private String status;
+
+    /**
+     * 总记录数
+     */
+    private int totalCount;
+
+    /**
+     * 已提交的记录数
+     */
+    private int processedCount;
+
+    /**
+     * 批次数
+     */
+    private int chunkCount;
+
+    /**
+     * 已提交的批次数
+     */
+    private int completedChunks;
+
+    /**
+     * 截至当前已提交批次的累计结果，任务成功后即最终结果
+     */
+    private BatchAddResult result;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+
+    private String createTime;
+
+    private String updateTime;
+
+    public boolean isFinished() {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status);
+    }
+}
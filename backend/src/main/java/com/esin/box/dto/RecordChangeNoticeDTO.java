@@ -0,0 +1,30 @@
+package com.esin.box.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 推送给客户端的数据变更通知，客户端据此只刷新受影响的列表页与统计
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordChangeNoticeDTO {
+    /**
+     * 业务域：asset、asset-name、fitness
+     */
+    private String domain;
+
+    /**
+     * 受影响的记录日期（yyyy-MM-dd），批量操作时为涉及的全部日期
+     */
+    private List<String> dates;
+
+    /**
+     * 受影响的记录ID，批量操作时可能为空
+     */
+    private List<Long> recordIds;
+}
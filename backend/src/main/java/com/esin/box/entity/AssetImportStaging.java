@@ -0,0 +1,29 @@
+package com.esin.box.entity;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 文件导入暂存行（asset_import_staging）
+ */
+@Data
+public class AssetImportStaging {
+    private String importId;
+    private Integer lineNo; // 文件中的行号（含表头），用于错误提示
+    private String createUser;
+    private Long assetNameId;
+    private Long assetTypeId;
+    private Long unitId;
+    private Long assetLocationId;
+    private BigDecimal amount;
+    private LocalDateTime acquireTime;
+    private String remark;
+    private String bracketCode;
+
+    // 以下字段由合并阶段写入或查询时关联
+    private Long targetId;
+    private String assetName;
+    private Integer duplicateCount;
+}
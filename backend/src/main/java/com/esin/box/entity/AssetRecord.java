@@ -3,6 +3,7 @@ package com.esin.box.entity;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
@@ -63,4 +64,10 @@ public class AssetRecord extends BaseEntity {
      * 备注
      */
     private String remark;
+
+    /**
+     * 同日同资产同编号的历史重复序号，新记录为0（见 V5 迁移）
+     */
+    @JsonIgnore
+    private Integer dupSeq;
 }
\ No newline at end of file
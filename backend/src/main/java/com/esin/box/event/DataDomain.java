@@ -0,0 +1,20 @@
+package com.esin.box.event;
+
+/**
+ * 用户数据所属业务域，用于数据版本与变更通知
+ */
+public enum DataDomain {
+    ASSET("asset"),
+    ASSET_NAME("asset-name"),
+    FITNESS("fitness");
+
+    private final String code;
+
+    DataDomain(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
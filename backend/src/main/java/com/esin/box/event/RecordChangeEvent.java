@@ -0,0 +1,36 @@
+package com.esin.box.event;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * 用户数据变更事件，由各业务服务在写操作后发布，事务提交后处理
+ */
+@Data
+@Builder
+public class RecordChangeEvent {
+    /**
+     * 数据所属业务域
+     */
+    private DataDomain domain;
+
+    /**
+     * 数据所属用户
+     */
+    private String username;
+
+    /**
+     * 受影响的记录日期（资产为 acquire_time，健身为 finish_time）
+     */
+    @Builder.Default
+    private Set<LocalDate> dates = Set.of();
+
+    /**
+     * 受影响的记录ID，批量操作时可能为空
+     */
+    @Builder.Default
+    private Set<Long> recordIds = Set.of();
+}
@@ -1,8 +1,15 @@
 package com.esin.box.filter;
 
 import com.esin.box.config.UserContextHolder;
+import com.esin.box.deadline.DeadlineExceededException;
+import com.esin.box.metrics.QueryBudgetContext;
+import com.esin.box.metrics.QueryBudgetReporter;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -16,6 +23,7 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.lang.NonNull;
 
 import java.io.IOException;
@@ -25,19 +33,27 @@ import java.util.Set;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    private static final String OUTCOME_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".outcome";
+
     private final JwtTokenProvider jwtTokenProvider;
     private final CustomUserDetailsService userDetailsService;
+    private final MeterRegistry meterRegistry;
+    private final QueryBudgetReporter queryBudgetReporter;
     private static final Set<String> PUBLIC_PATHS = Set.of(
             "/api/user/login",
             "/api/user/register",
             "/api/captcha",
             "/api/user/verify-token",
-            "/api/user/refresh-token"
+            "/api/user/refresh-token",
+            "/actuator" // 是否放行由 SecurityConfig 按管理端口决定
     );
 
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, CustomUserDetailsService userDetailsService,
+                                   MeterRegistry meterRegistry, QueryBudgetReporter queryBudgetReporter) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.userDetailsService = userDetailsService;
+        this.meterRegistry = meterRegistry;
+        this.queryBudgetReporter = queryBudgetReporter;
     }
 
     @Override
@@ -45,6 +61,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain)
             throws ServletException, IOException {
+        boolean trackQueryBudget = queryBudgetReporter.isEnabled();
+        if (trackQueryBudget) {
+            QueryBudgetContext.begin(() -> resolveEndpoint(request));
+        }
         try {
             String token = getJwtFromRequest(request);
 
@@ -58,22 +78,74 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             } catch (ExpiredJwtException e) {
                 // 特殊处理：token过期
                 if (!isPublicPath(request.getRequestURI())) {
-                    handleExpiredToken(response);
+                    handleExpiredToken(request, response);
                     return;
                 }
                 filterChain.doFilter(request, response);
+            } catch (DeadlineExceededException e) {
+                // 校验Token时请求已超时，不能按Token无效处理
+                logger.warn("Token校验超时: {}", e.getMessage());
+                SecurityContextHolder.clearContext();
+                sendError(request, response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                        "DEADLINE_EXCEEDED", "请求处理超时，请稍后重试");
             } catch (Exception e) {
                 if (!isPublicPath(request.getRequestURI())) {
-                    handleTokenError(response, e);
+                    handleTokenError(request, response, e);
                     return;
                 }
                 filterChain.doFilter(request, response);
             }
         } finally {
+            recordOutcome(request);
             UserContextHolder.clear();
+            if (trackQueryBudget) {
+                reportQueryBudget(request, QueryBudgetContext.end());
+            }
         }
     }
 
+    /**
+     * 隔离舱异步执行的请求，SQL在工作线程中执行，需等异步处理完成后再输出报告
+     */
+    private void reportQueryBudget(HttpServletRequest request, QueryBudgetContext context) {
+        if (!request.isAsyncStarted()) {
+            queryBudgetReporter.report(resolveEndpoint(request), context);
+            return;
+        }
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                queryBudgetReporter.report(resolveEndpoint(request), context);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    private String resolveEndpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNMAPPED";
+    }
+
+    private void recordOutcome(HttpServletRequest request) {
+        Object outcome = request.getAttribute(OUTCOME_ATTRIBUTE);
+        Counter.builder("box.jwt.filter")
+                .description("JWT过滤器处理结果")
+                .tag("outcome", outcome != null ? outcome.toString() : "anonymous")
+                .register(meterRegistry)
+                .increment();
+    }
+
     private void handleNoToken(HttpServletRequest request,
                                HttpServletResponse response,
                                FilterChain filterChain) throws IOException, ServletException {
@@ -82,7 +154,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             filterChain.doFilter(request, response);
             return;
         }
-        sendUnauthorizedError(response, "NO_TOKEN", "未登录或Token缺失");
+        sendUnauthorizedError(request, response, "NO_TOKEN", "未登录或Token缺失");
     }
 
     private boolean isPublicPath(String path) {
@@ -100,7 +172,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String tokenType = jwtTokenProvider.getTokenType(token);
             if (!"access".equals(tokenType)) {
                 if (!isPublicPath(path)) {
-                    sendUnauthorizedError(response, "INVALID_TOKEN_TYPE", "无效的Token类型");
+                    sendUnauthorizedError(request, response, "INVALID_TOKEN_TYPE", "无效的Token类型");
                     return;
                 }
                 filterChain.doFilter(request, response);
@@ -109,7 +181,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         } catch (Exception e) {
             logger.warn("获取Token类型失败: {}", e.getMessage());
             if (!isPublicPath(path)) {
-                sendUnauthorizedError(response, "INVALID_TOKEN", "无效的Token");
+                sendUnauthorizedError(request, response, "INVALID_TOKEN", "无效的Token");
                 return;
             }
             filterChain.doFilter(request, response);
@@ -140,7 +212,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             // 如果token无效且不是公开路径，返回错误
             if (!isPublicPath(path)) {
-                sendUnauthorizedError(response, "INVALID_TOKEN", "Token验证失败");
+                sendUnauthorizedError(request, response, "INVALID_TOKEN", "Token验证失败");
                 return;
             }
             filterChain.doFilter(request, response);
@@ -149,6 +221,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             logger.warn("Token已过期: {}", e.getMessage());
             // 抛出异常让外层处理
             throw e;
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (JwtException e) {
             logger.warn("Token验证失败: {}", e.getMessage());
             if (isPublicPath(path)) {
@@ -171,18 +245,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 userDetails, null, userDetails.getAuthorities());
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         SecurityContextHolder.getContext().setAuthentication(authentication);
+        request.setAttribute(OUTCOME_ATTRIBUTE, "authenticated");
     }
 
     private void setUserContext(String username) {
         UserContextHolder.setCurrentUser(username);
     }
 
-    private void handleExpiredToken(HttpServletResponse response) throws IOException {
+    private void handleExpiredToken(HttpServletRequest request, HttpServletResponse response) throws IOException {
         SecurityContextHolder.clearContext();
-        sendUnauthorizedError(response, "TOKEN_EXPIRED", "Token已过期");
+        sendUnauthorizedError(request, response, "TOKEN_EXPIRED", "Token已过期");
     }
 
-    private void handleTokenError(HttpServletResponse response, Exception e) throws IOException {
+    private void handleTokenError(HttpServletRequest request, HttpServletResponse response, Exception e) throws IOException {
         SecurityContextHolder.clearContext();
         String code = "INVALID_TOKEN";
         String message = "Token无效";
@@ -202,11 +277,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
         }
 
-        sendUnauthorizedError(response, code, message);
+        sendUnauthorizedError(request, response, code, message);
+    }
+
+    private void sendUnauthorizedError(HttpServletRequest request, HttpServletResponse response,
+                                       String code, String message) throws IOException {
+        sendError(request, response, HttpServletResponse.SC_UNAUTHORIZED, code, message);
     }
 
-    private void sendUnauthorizedError(HttpServletResponse response, String code, String message) throws IOException {
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+    private void sendError(HttpServletRequest request, HttpServletResponse response,
+                           int status, String code, String message) throws IOException {
+        request.setAttribute(OUTCOME_ATTRIBUTE, code.toLowerCase());
+        response.setStatus(status);
         response.setContentType("application/json;charset=UTF-8");
         response.getWriter().write(String.format(
                 "{\"success\":false,\"code\":\"%s\",\"message\":\"%s\"}",
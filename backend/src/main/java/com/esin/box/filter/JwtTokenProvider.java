@@ -1,31 +1,79 @@
 package com.esin.box.filter;
 
+import com.esin.box.config.RedisCircuitBreakerProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.deadline.DeadlineExceededException;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Date;
-import java.util.Set;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenProvider {
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
-    private static final String REDIS_KEY_PREFIX_ACTIVE_TOKEN = "active_token:";
-    private static final String REDIS_KEY_PREFIX_REFRESH_TOKEN = "refresh_token:";
-    private static final String REDIS_KEY_PREFIX_BLACKLIST = "token_blacklist:";
+    // 会话按用户存为哈希：field = jti，value = 该会话失效的时间戳（毫秒）
+    private static final String REDIS_KEY_PREFIX_ACTIVE_TOKEN = "sess:a:";
+    private static final String REDIS_KEY_PREFIX_REFRESH_TOKEN = "sess:r:";
+    private static final String REDIS_KEY_PREFIX_BLACKLIST = "bl:";
+    // 登出时写入 access 会话哈希的保留 field，值为登出时间戳，此前签发的 access token 在所有实例上都不再接受
+    private static final String REVOKED_AT_FIELD = "rv";
+
+    // 9字节随机数，Base64URL 后为12个字符
+    private static final int JTI_BYTES = 9;
+    private static final SecureRandom JTI_RANDOM = new SecureRandom();
+
+    // 写入会话并顺带清理已失效的 field，哈希的过期时间取最晚失效的会话
+    private static final RedisScript<Long> PUT_SESSION_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[3]) "
+                    + "local all = redis.call('HGETALL', KEYS[1]) "
+                    + "for i = 1, #all, 2 do "
+                    + "if tonumber(all[i + 1]) <= now and all[i] ~= ARGV[1] and all[i] ~= 'rv' then "
+                    + "redis.call('HDEL', KEYS[1], all[i]) end end "
+                    + "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "local ttl = tonumber(ARGV[2]) - now "
+                    + "if redis.call('PTTL', KEYS[1]) < ttl then redis.call('PEXPIRE', KEYS[1], ttl) end "
+                    + "return 1", Long.class);
+
+    // 登出：删除全部会话，access 会话哈希只留下登出时间，保留到登出前签发的 access token 全部不可用为止
+    private static final RedisScript<Long> REVOKE_USER_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1], KEYS[2]) "
+                    + "redis.call('HSET', KEYS[1], 'rv', ARGV[1]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
 
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private RedisCommandExecutor redisCommandExecutor;
+
+    @Autowired
+    private RedisCircuitBreakerProperties circuitBreakerProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 写入 Redis 失败时的本机禁用记录
+    private LocalRevokedTokens localRevokedTokens;
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -41,8 +89,11 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-window:1800000}") // 30分钟 刷新窗口时间
     private long refreshWindowInMs;
 
-    @Value("${jwt.blacklist-expiration:86400000}") // 24小时，毫秒
-    private long blacklistExpirationInMs;
+    @PostConstruct
+    public void init() {
+        localRevokedTokens = new LocalRevokedTokens(circuitBreakerProperties.getLocalRevokedMaxSize(),
+                Math.max(refreshTokenExpirationInMs, accessTokenExpirationInMs + refreshWindowInMs));
+    }
 
     private SecretKey getSecretKey() {
         return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
@@ -55,21 +106,17 @@ public class JwtTokenProvider {
 
     // 生成Refresh Token，type = refresh
     public String generateRefreshToken(String username) {
-        String token = generateToken(username, "refresh", refreshTokenExpirationInMs);
-
-        // 记录到 Redis，用于管理和清理
-        String refreshTokenKey = REDIS_KEY_PREFIX_REFRESH_TOKEN + username + ":" + token;
-        redisTemplate.opsForValue().set(refreshTokenKey, "1", refreshTokenExpirationInMs, TimeUnit.MILLISECONDS);
-
-        return token;
+        return generateToken(username, "refresh", refreshTokenExpirationInMs);
     }
 
     private String generateToken(String username, String type, long expirationMs) {
         try {
             Date now = new Date();
             Date expiryDate = new Date(now.getTime() + expirationMs);
+            String jti = newJti();
 
             String token = Jwts.builder()
+                    .setId(jti)
                     .setSubject(username)
                     .setIssuedAt(now)
                     .setExpiration(expiryDate)
@@ -77,9 +124,8 @@ public class JwtTokenProvider {
                     .signWith(getSecretKey(), SignatureAlgorithm.HS256)
                     .compact();
 
-            if ("access".equals(type)) {
-                addToActiveTokens(username, token, expirationMs);
-            }
+            // 记录到 Redis，用于管理和清理
+            putSession(sessionKey(type, username), jti, expiryDate.getTime());
 
             return token;
         } catch (Exception e) {
@@ -88,9 +134,47 @@ public class JwtTokenProvider {
         }
     }
 
-    private void addToActiveTokens(String username, String token, long expirationMs) {
-        String activeTokenKey = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username + ":" + token;
-        redisTemplate.opsForValue().set(activeTokenKey, "1", expirationMs, TimeUnit.MILLISECONDS);
+    private String newJti() {
+        byte[] bytes = new byte[JTI_BYTES];
+        JTI_RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private String sessionKey(String type, String username) {
+        String prefix = "refresh".equals(type) ? REDIS_KEY_PREFIX_REFRESH_TOKEN : REDIS_KEY_PREFIX_ACTIVE_TOKEN;
+        return prefix + username;
+    }
+
+    // 会话记录失败不影响签发，access token 在 Redis 恢复后首次校验会重新激活，refresh token 需重新登录
+    private void putSession(String sessionKey, String jti, long expiresAt) {
+        long now = System.currentTimeMillis();
+        try {
+            redisCommandExecutor.run("jwt", "EVAL", () -> redisTemplate.execute(PUT_SESSION_SCRIPT,
+                    List.of(sessionKey), jti, String.valueOf(expiresAt), String.valueOf(now)));
+        } catch (DataAccessException e) {
+            logger.warn("记录Token会话失败: key={}, error={}", sessionKey, e.getMessage());
+        }
+    }
+
+    // Redis 不可用时仅按签名、过期时间和本机禁用记录校验
+    private void recordDegraded(String check, DataAccessException e) {
+        logger.debug("Redis不可用，Token校验降级: check={}, error={}", check, e.getMessage());
+        meterRegistry.counter("box.jwt.degraded", "check", check).increment();
+    }
+
+    // 旧版本签发的token没有jti，无法对应会话，要求重新登录
+    private String requireJti(Claims claims) {
+        String jti = claims.getId();
+        if (jti == null || jti.isEmpty()) {
+            throw new JwtException("Token缺少会话标识，请重新登录");
+        }
+        return jti;
+    }
+
+    // token最晚可被接受的时间：access token 过期后仍可在刷新窗口内使用
+    private long acceptableUntil(Claims claims) {
+        long expTime = claims.getExpiration().getTime();
+        return "access".equals(claims.get("type")) ? expTime + refreshWindowInMs : expTime;
     }
 
     public String getUsernameFromJWT(String token) {
@@ -130,7 +214,7 @@ public class JwtTokenProvider {
     public boolean validateToken(String token) {
         try {
             validateTokenBasics(token);
-            validateTokenBlacklist(token);
+            validateTokenBlacklist(parseClaimsAllowExpired(token));
 
             // 先尝试解析token - 这里可能抛出ExpiredJwtException
             Claims claims;
@@ -167,16 +251,18 @@ public class JwtTokenProvider {
             // 🔥 关键修复：只对 access token 进行激活状态检查
             String type = getTokenType(token);
             if ("access".equals(type)) {
-                validateTokenActive(token, isExpired, claims.getExpiration());
+                validateTokenActive(claims, isExpired);
             }
-            // refresh token 不需要 Redis 激活状态检查，只需要签名和过期时间验证
+            // refresh token 的会话检查由刷新流程调用 validateRefreshTokenActive
 
             return true;
         } catch (ExpiredJwtException e) {
             // 重要：不要包装ExpiredJwtException，直接向上抛出
             throw e;
-        } catch (JwtException e) {
-            logger.warn("Token验证失败: {}", e.getMessage());
+        } catch (JwtException | DeadlineExceededException e) {
+            if (e instanceof JwtException) {
+                logger.warn("Token验证失败: {}", e.getMessage());
+            }
             throw e;
         } catch (Exception e) {
             logger.error("Token验证错误", e);
@@ -190,63 +276,115 @@ public class JwtTokenProvider {
         }
     }
 
-    private void validateTokenBlacklist(String token) {
-        String blacklistKey = REDIS_KEY_PREFIX_BLACKLIST + token;
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(blacklistKey))) {
+    // 本机禁用记录只在写 Redis 失败时产生，正常情况下各实例的判断完全取决于 Redis
+    private void validateTokenBlacklist(Claims claims) {
+        String blacklistKey = REDIS_KEY_PREFIX_BLACKLIST + requireJti(claims);
+        if (localRevokedTokens.isRevoked(claims)) {
+            throw new JwtException("Token已被禁用");
+        }
+        Boolean blacklisted;
+        try {
+            blacklisted = redisCommandExecutor.execute("jwt", "EXISTS", () -> redisTemplate.hasKey(blacklistKey));
+        } catch (DataAccessException e) {
+            recordDegraded("blacklist", e);
+            return;
+        }
+        if (Boolean.TRUE.equals(blacklisted)) {
             throw new JwtException("Token已被禁用");
         }
     }
 
-    private void validateTokenActive(String token, boolean isExpired, Date expiration) {
+    private void validateTokenActive(Claims claims, boolean isExpired) {
         try {
-            String username = getUsernameFromJWT(token);
-            String activeTokenKey = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username + ":" + token;
-            boolean isActive = Boolean.TRUE.equals(redisTemplate.hasKey(activeTokenKey));
-
-            if (isActive) return;
-
+            String username = claims.getSubject();
+            String jti = requireJti(claims);
+            Date expiration = claims.getExpiration();
+            String activeTokenKey = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username;
             long now = System.currentTimeMillis();
 
+            List<Object> values = redisCommandExecutor.execute("jwt", "HMGET", () ->
+                    redisTemplate.opsForHash().multiGet(activeTokenKey, List.of(jti, REVOKED_AT_FIELD)));
+            Object activeUntil = values.get(0);
+            Object revokedAt = values.get(1);
+            // 登出前签发的 token 不能再被重新激活；iat 只精确到秒，同一秒内签发的token按已失效处理
+            if (revokedAt != null && claims.getIssuedAt() != null
+                    && claims.getIssuedAt().getTime() <= Long.parseLong(revokedAt.toString())) {
+                throw new JwtException("Token已失效，请重新登录");
+            }
+            if (activeUntil != null && Long.parseLong(activeUntil.toString()) > now) return;
+
             if (!isExpired && expiration != null && expiration.after(new Date())) {
                 // token未过期但不在Redis中，重新激活
-                redisTemplate.opsForValue().set(activeTokenKey, "1", expiration.getTime() - now, TimeUnit.MILLISECONDS);
+                putSession(activeTokenKey, jti, expiration.getTime());
                 logger.info("Token有效但未在Redis中，已重新激活: {}", username);
                 return;
             }
 
             if (isExpired && isInRefreshWindow(expiration)) {
                 // token过期但在刷新窗口内，临时激活
-                redisTemplate.opsForValue().set(activeTokenKey, "1", refreshWindowInMs, TimeUnit.MILLISECONDS);
+                putSession(activeTokenKey, jti, now + refreshWindowInMs);
                 logger.info("Access Token过期但处于刷新窗口内，已临时激活: {}", username);
                 return;
             }
 
             throw new JwtException("Token未激活或已过期");
-        } catch (JwtException e) {
+        } catch (JwtException | DeadlineExceededException e) {
             throw e;
+        } catch (DataAccessException e) {
+            // 调用方已校验签名与过期时间（含刷新窗口）
+            recordDegraded("active", e);
         } catch (Exception e) {
             logger.error("验证Token激活状态时发生错误", e);
             throw new JwtException("Token验证失败");
         }
     }
 
-    // 验证 refresh token 的激活状态（仅在特殊需要时使用）
-    private void validateRefreshTokenActive(String token) {
-        try {
-            String username = getUsernameFromJWT(token);
-            String refreshTokenKey = REDIS_KEY_PREFIX_REFRESH_TOKEN + username + ":" + token;
+    // 验证 refresh token 的会话仍在：登出会删除会话，签名未过期的 refresh token 随之不可再用于刷新
+    public void validateRefreshTokenActive(String token) {
+        validateRefreshSession(parseClaimsAllowExpired(token));
+    }
 
-            if (!Boolean.TRUE.equals(redisTemplate.hasKey(refreshTokenKey))) {
-                throw new JwtException("Refresh Token未激活或已失效");
+    // 并发刷新复用已签发的令牌对：原 refresh token 已因轮换进入黑名单，改为校验它签发出的新 refresh token
+    // 新 token 须属于同一用户、未被禁用且会话仍在，登出或失效后重放即失败
+    public void validateRotatedRefreshToken(String originalToken, String issuedToken) {
+        try {
+            Claims original = Jwts.parserBuilder()
+                    .setSigningKey(getSecretKey())
+                    .build()
+                    .parseClaimsJws(originalToken)
+                    .getBody();
+            Claims issued = parseClaimsAllowExpired(issuedToken);
+            if (!"refresh".equals(original.get("type")) || !"refresh".equals(issued.get("type"))
+                    || !original.getSubject().equals(issued.getSubject())) {
+                throw new JwtException("Refresh Token无效");
             }
-        } catch (JwtException e) {
+            validateTokenBlacklist(issued);
+            validateRefreshSession(issued);
+        } catch (JwtException | DeadlineExceededException e) {
             throw e;
         } catch (Exception e) {
-            logger.error("验证Refresh Token激活状态时发生错误", e);
+            logger.error("验证已签发的Refresh Token时发生错误", e);
             throw new JwtException("Refresh Token验证失败");
         }
     }
 
+    private void validateRefreshSession(Claims claims) {
+        String jti = requireJti(claims);
+        String refreshTokenKey = REDIS_KEY_PREFIX_REFRESH_TOKEN + claims.getSubject();
+        Boolean active;
+        try {
+            active = redisCommandExecutor.execute("jwt", "HEXISTS", () ->
+                    redisTemplate.opsForHash().hasKey(refreshTokenKey, jti));
+        } catch (DataAccessException e) {
+            // 调用方已校验签名、过期时间与本机禁用记录
+            recordDegraded("refresh", e);
+            return;
+        }
+        if (!Boolean.TRUE.equals(active)) {
+            throw new JwtException("Refresh Token未激活或已失效");
+        }
+    }
+
     private boolean isInRefreshWindow(Date expiration) {
         if (expiration == null) return false;
         long expTime = expiration.getTime();
@@ -286,13 +424,13 @@ public class JwtTokenProvider {
                 return null;
             }
 
-            String username = getUsernameFromJWT(oldToken);
+            Claims claims = parseClaimsAllowExpired(oldToken);
+            String username = claims.getSubject();
             if (username == null) return null;
 
-            String blacklistKey = REDIS_KEY_PREFIX_BLACKLIST + oldToken;
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(blacklistKey))) return null;
+            String jti = requireJti(claims);
+            validateTokenBlacklist(claims);
 
-            Claims claims = parseClaimsAllowExpired(oldToken);
             Date expiration = claims.getExpiration();
             long now = System.currentTimeMillis();
             boolean inRefreshWindow = now > expiration.getTime() &&
@@ -302,8 +440,7 @@ public class JwtTokenProvider {
                 String newToken = generateAccessToken(username);
                 if (newToken != null) {
                     // 旧token延迟失效
-                    String activeTokenKey = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username + ":" + oldToken;
-                    redisTemplate.expire(activeTokenKey, 60, TimeUnit.SECONDS);
+                    putSession(REDIS_KEY_PREFIX_ACTIVE_TOKEN + username, jti, now + TimeUnit.SECONDS.toMillis(60));
                     logger.info("Access Token已刷新，旧Token将在60秒后失效: {}", username);
                     return newToken;
                 }
@@ -320,24 +457,32 @@ public class JwtTokenProvider {
         if (token == null || token.trim().isEmpty()) return;
 
         try {
-            String username = getUsernameFromJWT(token);
+            Claims claims = parseClaimsAllowExpired(token);
+            String username = claims.getSubject();
             String tokenType = getTokenType(token);
 
             if (username == null) return;
 
-            if ("access".equals(tokenType)) {
-                // 处理 access token
-                String activeTokenKey = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username + ":" + token;
-                redisTemplate.delete(activeTokenKey);
-            } else if ("refresh".equals(tokenType)) {
-                // 处理 refresh token
-                String refreshTokenKey = REDIS_KEY_PREFIX_REFRESH_TOKEN + username + ":" + token;
-                redisTemplate.delete(refreshTokenKey);
-            }
+            String jti = requireJti(claims);
+            try {
+                if ("access".equals(tokenType) || "refresh".equals(tokenType)) {
+                    String sessionKey = sessionKey(tokenType, username);
+                    redisCommandExecutor.run("jwt", "HDEL", () -> redisTemplate.opsForHash().delete(sessionKey, jti));
+                }
 
-            // 加入黑名单
-            String blacklistKey = REDIS_KEY_PREFIX_BLACKLIST + token;
-            redisTemplate.opsForValue().set(blacklistKey, "1", blacklistExpirationInMs, TimeUnit.MILLISECONDS);
+                // 加入黑名单，只需保留到token本身不再可用为止
+                long remaining = acceptableUntil(claims) - System.currentTimeMillis();
+                if (remaining > 0) {
+                    String blacklistKey = REDIS_KEY_PREFIX_BLACKLIST + jti;
+                    redisCommandExecutor.run("jwt", "SET", () ->
+                            redisTemplate.opsForValue().set(blacklistKey, "1", remaining, TimeUnit.MILLISECONDS));
+                }
+            } catch (DataAccessException e) {
+                // Redis 不可用：先在本机禁用，其他实例在 Redis 恢复前仍按签名与过期时间校验
+                localRevokedTokens.revoke(jti, acceptableUntil(claims));
+                logger.warn("禁用Token写入Redis失败，仅本机生效: username={}, error={}", username, e.getMessage());
+                return;
+            }
 
             logger.info("Token已成功禁用: username={}, type={}", username, tokenType);
         } catch (Exception e) {
@@ -345,28 +490,23 @@ public class JwtTokenProvider {
         }
     }
 
-    // 清理用户的所有 token
+    // 清理用户的所有 token：删除会话并记录登出时间，各实例对登出前签发的 token 结论一致
     public void invalidateAllUserTokens(String username) {
+        long revokedAt = System.currentTimeMillis();
+        String activeTokenKey = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username;
+        String refreshTokenKey = REDIS_KEY_PREFIX_REFRESH_TOKEN + username;
+        // 登出前签发的 access token 最晚可用到 签发时间 + 有效期 + 刷新窗口
+        long keepMs = accessTokenExpirationInMs + refreshWindowInMs;
         try {
-            // 清理所有 active tokens
-            String activePattern = REDIS_KEY_PREFIX_ACTIVE_TOKEN + username + ":*";
-            Set<String> activeKeys = redisTemplate.keys(activePattern);
-            if (activeKeys != null && !activeKeys.isEmpty()) {
-                redisTemplate.delete(activeKeys);
-                logger.info("已清理用户的 {} 个 access token: {}", activeKeys.size(), username);
-            }
-
-            // 清理所有 refresh tokens
-            String refreshPattern = REDIS_KEY_PREFIX_REFRESH_TOKEN + username + ":*";
-            Set<String> refreshKeys = redisTemplate.keys(refreshPattern);
-            if (refreshKeys != null && !refreshKeys.isEmpty()) {
-                redisTemplate.delete(refreshKeys);
-                logger.info("已清理用户的 {} 个 refresh token: {}", refreshKeys.size(), username);
-            }
-
-            logger.info("已清理用户所有Token: {}", username);
+            redisCommandExecutor.run("jwt", "EVAL", () -> redisTemplate.execute(REVOKE_USER_SCRIPT,
+                    List.of(activeTokenKey, refreshTokenKey), String.valueOf(revokedAt), String.valueOf(keepMs)));
+            logger.info("已清理用户所有Token: username={}", username);
+        } catch (DataAccessException e) {
+            // Redis 不可用：先在本机拒绝登出前签发的 token，其他实例在 Redis 恢复前仍按签名与过期时间校验
+            localRevokedTokens.revokeUser(username, revokedAt);
+            logger.warn("清理用户Token写入Redis失败，仅本机生效: username={}, error={}", username, e.getMessage());
         } catch (Exception e) {
             logger.error("清理用户Token时发生错误: username={}, error={}", username, e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.esin.box.filter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机最近禁用的token：仅在禁用或登出写入 Redis 失败时记录，与签名、过期时间一起作为降级校验依据
+ * jti 维度记录单个token的禁用，用户维度记录登出时间（此前签发的token全部失效）
+ * 仅本机可见，数量超过上限时按最早写入淘汰；Redis 正常写入时以 Redis 为准，各实例结论一致
+ */
+class LocalRevokedTokens {
+
+    private final Cache<String, Long> revokedJtis;
+    private final Cache<String, Long> revokedUsers;
+
+    LocalRevokedTokens(int maxSize, long maxTokenLifetimeMs) {
+        this.revokedJtis = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxTokenLifetimeMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.revokedUsers = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxTokenLifetimeMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // until：该token最晚可被接受的时间，之后无需再记录
+    void revoke(String jti, long until) {
+        if (until > System.currentTimeMillis()) {
+            revokedJtis.put(jti, until);
+        }
+    }
+
+    void revokeUser(String username, long revokedAt) {
+        revokedUsers.put(username, revokedAt);
+    }
+
+    boolean isRevoked(Claims claims) {
+        String jti = claims.getId();
+        Long until = jti != null ? revokedJtis.getIfPresent(jti) : null;
+        if (until != null && until > System.currentTimeMillis()) {
+            return true;
+        }
+        Long revokedAt = revokedUsers.getIfPresent(claims.getSubject());
+        Date issuedAt = claims.getIssuedAt();
+        // iat 只精确到秒，同一秒内签发的token按已失效处理
+        return revokedAt != null && issuedAt != null && issuedAt.getTime() <= revokedAt;
+    }
+}
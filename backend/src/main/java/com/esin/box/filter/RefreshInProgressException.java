@@ -0,0 +1,10 @@
+package com.esin.box.filter;
+
+/**
+ * 同一 refresh token 的刷新由其他请求持有，等满单飞窗口仍未签发（持有方异常且占位未释放），客户端按 Retry-After 重试
+ */
+public class RefreshInProgressException extends RuntimeException {
+    public RefreshInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,247 @@
+package com.esin.box.idempotency;
+
+import com.esin.box.config.IdempotencyProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.config.UserContextHolder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Idempotency-Key 处理：Redis 键 idem:<用户>:<接口>:<幂等键>
+ * 首个请求 SET NX 占位后执行，成功响应（success=true）写回并保留 resultTtl；
+ * 失败或抛异常时删除占位，客户端重试会重新执行
+ */
+@Slf4j
+@Aspect
+@Component
+public class IdempotencyAspect {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String KEY_PREFIX = "idem:";
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final String STATE_PENDING = "PENDING";
+    private static final String STATE_DONE = "DONE";
+
+    // 仅当值仍是本次占位时才写入结果或删除，避免占位过期后覆盖其他请求的结果
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 end return 0", Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    private final IdempotencyProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyAspect(IdempotencyProperties properties, StringRedisTemplate redisTemplate,
+                             RedisCommandExecutor redisCommandExecutor, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@annotation(com.esin.box.idempotency.Idempotent)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        String idempotencyKey = currentIdempotencyKey();
+        String username = UserContextHolder.getCurrentUsername();
+        if (!properties.isEnabled() || idempotencyKey == null || username == null) {
+            return joinPoint.proceed();
+        }
+
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        String endpoint = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+        String redisKey = KEY_PREFIX + username + ":" + endpoint + ":" + idempotencyKey;
+        String fingerprint = fingerprint(joinPoint.getArgs());
+        String pending = toJson(new Entry(STATE_PENDING, fingerprint, UUID.randomUUID().toString(), null));
+
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+        while (true) {
+            Boolean claimed;
+            try {
+                claimed = redisCommandExecutor.execute("idempotency", "SETNX", () ->
+                        redisTemplate.opsForValue().setIfAbsent(redisKey, pending, properties.getProcessingTtl()));
+            } catch (RuntimeException e) {
+                log.warn("幂等键占位失败，按普通请求执行: endpoint={}, error={}", endpoint, e.getMessage());
+                count(endpoint, "bypass");
+                return joinPoint.proceed();
+            }
+            if (Boolean.TRUE.equals(claimed)) {
+                return executeFirst(joinPoint, endpoint, redisKey, pending);
+            }
+
+            String raw = redisCommandExecutor.execute("idempotency", "GET", () ->
+                    redisTemplate.opsForValue().get(redisKey));
+            if (raw == null) {
+                // 首次执行失败已释放占位，重新抢占
+                continue;
+            }
+            Entry entry = objectMapper.readValue(raw, Entry.class);
+            if (!fingerprint.equals(entry.getFingerprint())) {
+                count(endpoint, "mismatch");
+                throw new IdempotencyConflictException("幂等键已用于内容不同的请求，请更换 " + HEADER);
+            }
+            if (STATE_DONE.equals(entry.getState())) {
+                count(endpoint, "replayed");
+                log.info("重复请求回放首次结果: endpoint={}, username={}", endpoint, username);
+                JavaType type = objectMapper.getTypeFactory().constructType(signature.getMethod().getGenericReturnType());
+                if (type.hasRawClass(WebAsyncTask.class)) {
+                    Object replayed = objectMapper.readValue(entry.getBody(), type.containedType(0));
+                    return new WebAsyncTask<>(() -> replayed);
+                }
+                return objectMapper.readValue(entry.getBody(), type);
+            }
+            if (System.nanoTime() > deadline) {
+                count(endpoint, "timeout");
+                throw new IdempotencyConflictException("相同请求正在处理中，请稍后重试");
+            }
+            try {
+                Thread.sleep(properties.getPollMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyConflictException("等待相同请求完成时被中断");
+            }
+        }
+    }
+
+    private Object executeFirst(ProceedingJoinPoint joinPoint, String endpoint, String redisKey,
+                                String pending) throws Throwable {
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            release(redisKey, pending);
+            throw e;
+        }
+
+        if (result instanceof WebAsyncTask<?> task) {
+            // 在隔离舱线程中异步执行的接口，拿到实际结果后再保存或释放占位
+            return new WebAsyncTask<>(task.getTimeout(), task.getExecutor(), () -> {
+                Object asyncResult;
+                try {
+                    asyncResult = task.getCallable().call();
+                } catch (Exception e) {
+                    release(redisKey, pending);
+                    throw e;
+                }
+                complete(endpoint, redisKey, pending, asyncResult);
+                return asyncResult;
+            });
+        }
+        complete(endpoint, redisKey, pending, result);
+        return result;
+    }
+
+    private void complete(String endpoint, String redisKey, String pending, Object result) {
+        count(endpoint, "executed");
+        try {
+            String body = objectMapper.writeValueAsString(result);
+            if (result != null && objectMapper.readTree(body).path("success").asBoolean(false)) {
+                Entry done = objectMapper.readValue(pending, Entry.class);
+                done.setState(STATE_DONE);
+                done.setBody(body);
+                redisCommandExecutor.execute("idempotency", "EVAL", () -> redisTemplate.execute(COMPLETE_SCRIPT,
+                        List.of(redisKey), pending, toJson(done), String.valueOf(properties.getResultTtl().toMillis())));
+            } else {
+                release(redisKey, pending);
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            // 结果已产生，保存失败只影响后续回放
+            log.warn("保存幂等结果失败: key={}, error={}", redisKey, e.getMessage());
+        }
+    }
+
+    private void release(String redisKey, String pending) {
+        try {
+            redisCommandExecutor.execute("idempotency", "EVAL", () ->
+                    redisTemplate.execute(RELEASE_SCRIPT, List.of(redisKey), pending));
+        } catch (RuntimeException e) {
+            log.warn("释放幂等键失败，等待占位过期: key={}, error={}", redisKey, e.getMessage());
+        }
+    }
+
+    private String currentIdempotencyKey() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        String key = attributes.getRequest().getHeader(HEADER);
+        if (!StringUtils.hasText(key)) {
+            return null;
+        }
+        key = key.trim();
+        return key.length() > MAX_KEY_LENGTH
+                ? Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).toString()
+                : key;
+    }
+
+    /**
+     * 请求参数摘要，防止同一幂等键被误用于不同内容的请求
+     */
+    private String fingerprint(Object[] args) {
+        List<Object> values = Arrays.stream(args)
+                .filter(arg -> !(arg instanceof ServletRequest || arg instanceof ServletResponse
+                        || arg instanceof InputStreamSource))
+                .toList();
+        return Hashing.murmur3_128().hashString(toJson(values), StandardCharsets.UTF_8).toString();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化幂等数据失败：" + e.getMessage());
+        }
+    }
+
+    private void count(String endpoint, String outcome) {
+        Counter.builder("box.idempotency.requests")
+                .description("携带幂等键的写请求")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Entry {
+        private String state;
+        private String fingerprint;
+        private String token;
+        private String body;
+    }
+}
@@ -0,0 +1,10 @@
+package com.esin.box.idempotency;
+
+/**
+ * 幂等键冲突：相同幂等键的请求仍在执行，或幂等键被用于内容不同的请求
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
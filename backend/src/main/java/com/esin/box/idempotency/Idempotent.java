@@ -0,0 +1,18 @@
+package com.esin.box.idempotency;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记写接口支持 Idempotency-Key 请求头：
+ * 相同用户、接口、幂等键的请求只执行一次，重复请求回放首次成功的响应，执行中的重复请求等待其完成
+ * 未携带请求头时按普通请求处理
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
@@ -0,0 +1,52 @@
+package com.esin.box.interceptor;
+
+import com.esin.box.dto.ApiResponse;
+import com.esin.box.dto.Result;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 仅对成功的响应写入ETag，避免错误结果被客户端缓存
+ */
+@RestControllerAdvice
+public class DataVersionETagAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String CACHE_CONTROL = "private, no-cache";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+        Object etag = servletRequest.getServletRequest().getAttribute(DataVersionETagInterceptor.ETAG_ATTRIBUTE);
+        if (etag != null && isSuccess(body)) {
+            response.getHeaders().set(HttpHeaders.ETAG, etag.toString());
+            response.getHeaders().set(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+        return body;
+    }
+
+    private static boolean isSuccess(Object body) {
+        if (body instanceof ApiResponse<?> apiResponse) {
+            return apiResponse.isSuccess();
+        }
+        if (body instanceof Result<?> result) {
+            return result.isSuccess();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package com.esin.box.interceptor;
+
+import com.esin.box.config.UserContextHolder;
+import com.esin.box.event.DataDomain;
+import com.esin.box.service.DataVersionService;
+import com.google.common.hash.Hashing;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * 基于用户数据版本的条件GET
+ * ETag = 业务域 + 数据版本 + (用户|当天日期|查询参数)摘要，版本未变且客户端ETag一致时直接返回304，不执行查询
+ */
+public class DataVersionETagInterceptor implements HandlerInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(DataVersionETagInterceptor.class);
+
+    /**
+     * 待写入响应头的ETag，由 DataVersionETagAdvice 在响应成功时写入
+     */
+    public static final String ETAG_ATTRIBUTE = DataVersionETagInterceptor.class.getName() + ".ETAG";
+
+    private final DataVersionService dataVersionService;
+    private final DataDomain domain;
+
+    public DataVersionETagInterceptor(DataVersionService dataVersionService, DataDomain domain) {
+        this.dataVersionService = dataVersionService;
+        this.domain = domain;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String username = UserContextHolder.getCurrentUsername();
+        if (username == null) {
+            return true;
+        }
+
+        String etag;
+        try {
+            etag = buildETag(username, request.getQueryString());
+        } catch (Exception e) {
+            // 版本读取失败时退化为普通请求
+            logger.warn("读取数据版本失败，跳过ETag: domain={}, error={}", domain.getCode(), e.getMessage());
+            return true;
+        }
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, DataVersionETagAdvice.CACHE_CONTROL);
+            return false;
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        return true;
+    }
+
+    private String buildETag(String username, String queryString) {
+        long version = dataVersionService.currentVersion(username, domain);
+        String scope = username + "|" + LocalDate.now() + "|" + (queryString != null ? queryString : "");
+        String digest = Hashing.murmur3_32_fixed().hashString(scope, StandardCharsets.UTF_8).toString();
+        return "\"" + domain.getCode() + "-" + Long.toString(version, 36) + "-" + digest + "\"";
+    }
+
+    /**
+     * 比较 If-None-Match，忽略弱校验前缀（Tomcat压缩响应时会把强ETag改为 W/ 形式）
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || "*".equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
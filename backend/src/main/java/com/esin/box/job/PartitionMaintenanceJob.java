@@ -0,0 +1,81 @@
+package com.esin.box.job;
+
+import com.esin.box.config.PartitionProperties;
+import com.esin.box.mapper.PartitionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按月分区预建任务
+ * 在 p_future 仍为空时把它拆出未来几个月的分区，避免新数据落入 MAXVALUE 分区后拆分代价变大
+ * V3 迁移只建当月与下月分区，此后的滚动窗口全部由本任务维护（启动时即补齐）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "box.partition", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionMaintenanceJob {
+
+    private static final List<String> TABLES = List.of("asset_record", "fitness_record");
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final PartitionMapper partitionMapper;
+    private final PartitionProperties properties;
+
+    public PartitionMaintenanceJob(PartitionMapper partitionMapper, PartitionProperties properties) {
+        this.partitionMapper = partitionMapper;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        run();
+    }
+
+    @Scheduled(cron = "${box.partition.cron:0 10 3 * * ?}")
+    public void run() {
+        YearMonth target = YearMonth.now().plusMonths(properties.getMonthsAhead());
+        for (String table : TABLES) {
+            try {
+                ensurePartitions(table, target);
+            } catch (Exception e) {
+                log.error("预建分区失败: table={}", table, e);
+            }
+        }
+    }
+
+    private void ensurePartitions(String table, YearMonth target) {
+        List<String> names = partitionMapper.selectPartitionNames(table);
+        if (names.isEmpty() || !names.contains("p_future")) {
+            log.debug("表未按月分区，跳过: table={}", table);
+            return;
+        }
+
+        YearMonth last = names.stream()
+                .filter(name -> name.matches("p\\d{6}"))
+                .map(name -> YearMonth.parse(name, PARTITION_NAME))
+                .max(YearMonth::compareTo)
+                .orElse(YearMonth.now().minusMonths(1));
+        if (!last.isBefore(target)) {
+            return;
+        }
+
+        List<String> partitions = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            String name = month.format(PARTITION_NAME);
+            partitions.add(String.format("PARTITION %s VALUES LESS THAN ('%s')", name, month.plusMonths(1).atDay(1)));
+            created.add(name);
+        }
+        partitionMapper.reorganizeFuturePartition(table, partitions);
+        log.info("已预建分区: table={}, 分区={}", table, created);
+    }
+}
@@ -0,0 +1,121 @@
+package com.esin.box.job;
+
+import com.esin.box.config.ArchiveProperties;
+import com.esin.box.mapper.ArchiveMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 软删除记录归档任务
+ * 把超过保留期的 deleted=1 记录分批搬到 *_archive 表并从业务表物理删除；
+ * 每批一个短事务，批次之间休眠，避免长时间持有行锁
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "box.archive", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TombstoneArchiveJob {
+
+    private static final String BASE_COLUMNS = "create_time, update_time, create_user, update_user, version, deleted";
+
+    // 表名 -> 显式列清单（归档表额外有 archived_time）、引用该表ID的列
+    // 资产名称即使已软删除，仍被资产记录（含已删除、已归档的记录）引用时保留，保证记录始终能查到名称
+    private static final List<ArchiveTable> TABLES = List.of(
+            new ArchiveTable("asset_record", "id, asset_name_id, asset_type_id, amount, unit_id, asset_location_id, "
+                    + "acquire_time, remark, " + BASE_COLUMNS, List.of()),
+            new ArchiveTable("fitness_record", "id, type_id, `count`, unit_id, finish_time, remark, " + BASE_COLUMNS,
+                    List.of()),
+            new ArchiveTable("asset_name", "id, name, description, remark, " + BASE_COLUMNS, List.of(
+                    new ArchiveMapper.Reference("asset_record", "asset_name_id"),
+                    new ArchiveMapper.Reference("asset_record_archive", "asset_name_id")))
+    );
+
+    private final ArchiveMapper archiveMapper;
+    private final ArchiveProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public TombstoneArchiveJob(ArchiveMapper archiveMapper, ArchiveProperties properties,
+                               TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.archiveMapper = archiveMapper;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(cron = "${box.archive.cron:0 30 3 * * ?}")
+    public void run() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(properties.getRetentionDays());
+        for (ArchiveTable table : TABLES) {
+            try {
+                archive(table, cutoff);
+            } catch (Exception e) {
+                log.error("归档软删除记录失败: table={}", table.name(), e);
+            }
+        }
+    }
+
+    private void archive(ArchiveTable table, LocalDateTime cutoff) throws InterruptedException {
+        long start = System.nanoTime();
+        int moved = 0;
+        int chunks = 0;
+
+        while (chunks < properties.getMaxChunksPerRun()) {
+            Integer count = transactionTemplate.execute(status -> moveChunk(table, cutoff));
+            if (count == null || count == 0) {
+                break;
+            }
+            moved += count;
+            chunks++;
+            Counter.builder("box.archive.rows")
+                    .description("归档的软删除记录数")
+                    .tag("table", table.name())
+                    .register(meterRegistry)
+                    .increment(count);
+            if (count < properties.getChunkSize()) {
+                break;
+            }
+            Thread.sleep(properties.getPauseMillis());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("box.archive.run")
+                .description("单张表一次归档的耗时")
+                .tag("table", table.name())
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (moved > 0) {
+            log.info("归档软删除记录完成: table={}, 行数={}, 批次={}, 耗时={}ms",
+                    table.name(), moved, chunks, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } else {
+            log.debug("没有需要归档的软删除记录: table={}", table.name());
+        }
+    }
+
+    private int moveChunk(ArchiveTable table, LocalDateTime cutoff) {
+        List<Long> ids = archiveMapper.selectTombstoneIds(table.name(), table.references(), cutoff,
+                properties.getChunkSize());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int copied = archiveMapper.copyToArchive(table.name(), table.columns(), ids);
+        int deleted = archiveMapper.deleteTombstones(table.name(), ids);
+        if (copied != deleted) {
+            throw new IllegalStateException(String.format("归档行数不一致: table=%s, 复制=%d, 删除=%d",
+                    table.name(), copied, deleted));
+        }
+        return deleted;
+    }
+
+    private record ArchiveTable(String name, String columns, List<ArchiveMapper.Reference> references) {
+    }
+}
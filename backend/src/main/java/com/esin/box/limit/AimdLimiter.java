@@ -0,0 +1,66 @@
+package com.esin.box.limit;
+
+import com.esin.box.config.ConcurrencyLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD 并发上限：响应正常且并发接近上限时加1，响应超过所属接口的耗时阈值或出现过载信号时按比例收缩
+ * 超过当前上限的请求直接拒绝，不排队
+ */
+class AimdLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+
+    AimdLimiter(ConcurrencyLimitProperties.Group group) {
+        this.minLimit = group.getMinLimit();
+        this.maxLimit = group.getMaxLimit();
+        this.backoffRatio = group.getBackoffRatio();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, group.getInitialLimit()));
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求结束时调用，ignored 表示不参与调整（如 SSE 等异步长连接）
+     *
+     * @param thresholdNanos 该接口的耗时阈值
+     * @param dropped        是否出现过载信号（503、超过时限、线程池或连接池拒绝）
+     */
+    void release(long latencyNanos, long thresholdNanos, boolean dropped, boolean ignored) {
+        int current = inflight.getAndDecrement();
+        if (ignored) {
+            return;
+        }
+        synchronized (this) {
+            if (dropped || latencyNanos > thresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (current * 2 >= limit) {
+                // 只有并发确实接近上限时才放大，避免空闲时上限无限增长
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,180 @@
+package com.esin.box.limit;
+
+import com.esin.box.config.ConcurrencyLimitProperties;
+import com.esin.box.deadline.DeadlineExceededException;
+import com.esin.box.deadline.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 自适应并发限流：heavy（全量列表、批量写入、统计）与 light 两组分别按 AIMD 调整并发上限
+ * 数据库变慢时 heavy 组先收缩，超出上限的请求立即返回 429，不占用 Tomcat 线程排队
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String HEAVY = "heavy";
+    private static final String LIGHT = "light";
+
+    private final ConcurrencyLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final AimdLimiter heavyLimiter;
+    private final AimdLimiter lightLimiter;
+    private final Counter heavyRejected;
+    private final Counter lightRejected;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.heavyLimiter = new AimdLimiter(properties.getHeavy());
+        this.lightLimiter = new AimdLimiter(properties.getLight());
+        this.heavyRejected = registerMetrics(meterRegistry, HEAVY, heavyLimiter);
+        this.lightRejected = registerMetrics(meterRegistry, LIGHT, lightLimiter);
+    }
+
+    private Counter registerMetrics(MeterRegistry meterRegistry, String group, AimdLimiter limiter) {
+        Gauge.builder("box.concurrency.limit", limiter, AimdLimiter::getLimit)
+                .description("当前并发上限")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("box.concurrency.inflight", limiter, AimdLimiter::getInflight)
+                .description("正在处理的请求数")
+                .tag("group", group)
+                .register(meterRegistry);
+        return Counter.builder("box.concurrency.rejected")
+                .description("超出并发上限被拒绝的请求")
+                .tag("group", group)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !properties.isEnabled()
+                || properties.getExcludePaths().stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        boolean heavy = properties.getHeavyPaths().stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+        AimdLimiter limiter = heavy ? heavyLimiter : lightLimiter;
+
+        if (!limiter.tryAcquire()) {
+            (heavy ? heavyRejected : lightRejected).increment();
+            log.debug("并发超限，拒绝请求: group={}, path={}, limit={}", heavy ? HEAVY : LIGHT, path, limiter.getLimit());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write("{\"success\":false,\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"服务繁忙，请稍后重试\"}");
+            return;
+        }
+
+        ConcurrencyLimitProperties.Group group = heavy ? properties.getHeavy() : properties.getLight();
+        long thresholdNanos = latencyThreshold(group, path).toNanos();
+        long start = System.nanoTime();
+        boolean released = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !isEventStream(request)) {
+                // 隔离舱异步执行的请求在完成时才释放名额
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        limiter.release(System.nanoTime() - start, thresholdNanos, isOverloaded(request, response), false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                // SSE 长连接的耗时反映的是连接时长，不参与上限调整
+                limiter.release(System.nanoTime() - start, thresholdNanos, isOverloaded(request, response),
+                        request.isAsyncStarted());
+            }
+            released = true;
+        } catch (IOException | ServletException | RuntimeException e) {
+            // 参数校验、业务异常等不代表过载，只有拒绝类异常才收缩上限
+            limiter.release(System.nanoTime() - start, thresholdNanos,
+                    isOverloaded(request, response) || isRejection(e), false);
+            released = true;
+            throw e;
+        } finally {
+            if (!released) {
+                limiter.release(System.nanoTime() - start, thresholdNanos, false, false);
+            }
+        }
+    }
+
+    private Duration latencyThreshold(ConcurrencyLimitProperties.Group group, String path) {
+        return group.getLatencyThresholds().entrySet().stream()
+                .filter(entry -> pathMatcher.match(entry.getKey(), path))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(group.getLatencyThreshold());
+    }
+
+    /**
+     * 过载信号：503（含Redis熔断、请求超时）、429（隔离舱队列已满）或超过请求时限
+     */
+    private boolean isOverloaded(HttpServletRequest request, HttpServletResponse response) {
+        RequestDeadline deadline = (RequestDeadline) request.getAttribute(RequestDeadline.ATTRIBUTE);
+        int status = response.getStatus();
+        return status == HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                || status == HttpStatus.TOO_MANY_REQUESTS.value()
+                || (deadline != null && deadline.isExceeded());
+    }
+
+    private boolean isRejection(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RejectedExecutionException
+                    || cause instanceof CannotGetJdbcConnectionException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("text/event-stream");
+    }
+}
@@ -0,0 +1,44 @@
+package com.esin.box.lock;
+
+import com.esin.box.config.UserLockProperties;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 单实例用户写锁：Guava 分段锁，不同用户可能落在同一分段（只多等待、不影响正确性）
+ */
+public class LocalUserLockService implements UserLockService {
+
+    private final Striped<Lock> locks;
+    private final UserLockProperties properties;
+    private final UserLockMetrics metrics;
+
+    public LocalUserLockService(UserLockProperties properties, MeterRegistry meterRegistry) {
+        this.locks = Striped.lock(properties.getStripes());
+        this.properties = properties;
+        this.metrics = new UserLockMetrics(meterRegistry, "local");
+    }
+
+    @Override
+    public UserLease acquire(String username) {
+        Lock lock = locks.get(username);
+        long start = System.nanoTime();
+        boolean acquired = lock.tryLock();
+        if (!acquired) {
+            metrics.contended();
+            try {
+                acquired = lock.tryLock(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        metrics.recordWait(start, acquired);
+        if (!acquired) {
+            throw new UserLockException("当前用户有其他写操作正在进行，请稍后重试");
+        }
+        return new UserLease(username, 0, lock::unlock);
+    }
+}
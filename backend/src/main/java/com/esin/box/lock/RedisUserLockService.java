@@ -0,0 +1,132 @@
+package com.esin.box.lock;
+
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.config.UserLockProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多实例用户写锁：Redis 租约 user_lock:{user}，抢占成功时从 user_lock_fence:{user} 递增得到栅栏令牌
+ * 持有期间后台续约；Redis 不可用时退化为本机分段锁
+ */
+@Slf4j
+public class RedisUserLockService implements UserLockService {
+
+    private static final String LOCK_KEY_PREFIX = "user_lock:";
+    private static final String FENCE_KEY_PREFIX = "user_lock_fence:";
+
+    // 抢占租约并返回新的栅栏令牌，已被占用时返回0
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then "
+                    + "return redis.call('INCR', KEYS[2]) end return 0", Long.class);
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    private final UserLockProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+    private final LocalUserLockService fallback;
+    private final UserLockMetrics metrics;
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-lock-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RedisUserLockService(UserLockProperties properties, StringRedisTemplate redisTemplate,
+                                RedisCommandExecutor redisCommandExecutor, MeterRegistry meterRegistry,
+                                LocalUserLockService fallback) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+        this.fallback = fallback;
+        this.metrics = new UserLockMetrics(meterRegistry, "redis");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+    }
+
+    @Override
+    public UserLease acquire(String username) {
+        // 哈希标签保证租约与令牌在 Redis Cluster 的同一槽位
+        String lockKey = LOCK_KEY_PREFIX + "{" + username + "}";
+        String fenceKey = FENCE_KEY_PREFIX + "{" + username + "}";
+        String owner = UUID.randomUUID().toString();
+        String leaseMillis = String.valueOf(properties.getLeaseTime().toMillis());
+
+        long start = System.nanoTime();
+        long deadline = start + properties.getWaitTimeout().toNanos();
+        boolean contended = false;
+        while (true) {
+            Long token;
+            try {
+                token = redisCommandExecutor.execute("user-lock", "EVAL", () ->
+                        redisTemplate.execute(ACQUIRE_SCRIPT, List.of(lockKey, fenceKey), owner, leaseMillis));
+            } catch (RuntimeException e) {
+                log.warn("Redis写锁不可用，退化为本机锁: username={}, error={}", username, e.getMessage());
+                return fallback.acquire(username);
+            }
+            if (token != null && token > 0) {
+                metrics.recordWait(start, true);
+                return hold(username, lockKey, owner, token);
+            }
+            if (!contended) {
+                contended = true;
+                metrics.contended();
+            }
+            if (System.nanoTime() > deadline) {
+                metrics.recordWait(start, false);
+                throw new UserLockException("当前用户有其他写操作正在进行，请稍后重试");
+            }
+            try {
+                Thread.sleep(properties.getRetryMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                metrics.recordWait(start, false);
+                throw new UserLockException("等待用户写锁时被中断");
+            }
+        }
+    }
+
+    private UserLease hold(String username, String lockKey, String owner, long token) {
+        String leaseMillis = String.valueOf(properties.getLeaseTime().toMillis());
+        long renewMillis = Math.max(1, properties.getLeaseTime().toMillis() / 3);
+        ScheduledFuture<?> renewal = renewer.scheduleAtFixedRate(() -> {
+            try {
+                Long renewed = redisCommandExecutor.execute("user-lock", "EVAL", () ->
+                        redisTemplate.execute(RENEW_SCRIPT, List.of(lockKey), owner, leaseMillis));
+                if (renewed == null || renewed == 0) {
+                    log.warn("用户写锁租约已失效，若已被其他节点接管，写入将被栅栏令牌拒绝: username={}, token={}", username, token);
+                }
+            } catch (RuntimeException e) {
+                log.warn("用户写锁续约失败: username={}, error={}", username, e.getMessage());
+            }
+        }, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+
+        return new UserLease(username, token, () -> {
+            renewal.cancel(false);
+            try {
+                redisCommandExecutor.execute("user-lock", "EVAL", () ->
+                        redisTemplate.execute(RELEASE_SCRIPT, List.of(lockKey), owner));
+            } catch (RuntimeException e) {
+                log.warn("释放用户写锁失败，等待租约过期: username={}, error={}", username, e.getMessage());
+            }
+        });
+    }
+}
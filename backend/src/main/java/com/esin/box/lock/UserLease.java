@@ -0,0 +1,36 @@
+package com.esin.box.lock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 已获取的用户写锁，close 时释放（重复调用无副作用）
+ * fencingToken 仅 REDIS 模式下大于0，随每次获取单调递增
+ */
+public final class UserLease implements AutoCloseable {
+
+    private final String username;
+    private final long fencingToken;
+    private final Runnable releaser;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public UserLease(String username, long fencingToken, Runnable releaser) {
+        this.username = username;
+        this.fencingToken = fencingToken;
+        this.releaser = releaser;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            releaser.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.esin.box.lock;
+
+import org.springframework.dao.CannotAcquireLockException;
+
+/**
+ * 用户写锁等待超时，或租约已被其他节点接管（栅栏令牌过期）
+ * 属于可重试异常，异步导入任务会按批次重试
+ */
+public class UserLockException extends CannotAcquireLockException {
+    public UserLockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.esin.box.lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户写锁等待耗时与争用次数
+ */
+class UserLockMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final String mode;
+
+    UserLockMetrics(MeterRegistry meterRegistry, String mode) {
+        this.meterRegistry = meterRegistry;
+        this.mode = mode;
+    }
+
+    void recordWait(long startNanos, boolean acquired) {
+        Timer.builder("box.user.lock.wait")
+                .description("获取用户写锁的等待耗时")
+                .tag("mode", mode)
+                .tag("outcome", acquired ? "acquired" : "timeout")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void contended() {
+        Counter.builder("box.user.lock.contended")
+                .description("首次尝试未获取到用户写锁的次数")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,12 @@
+package com.esin.box.lock;
+
+/**
+ * 按用户串行化写操作
+ */
+public interface UserLockService {
+
+    /**
+     * 获取用户写锁，超过 box.user-lock.wait-timeout 仍未获取时抛出 UserLockException
+     */
+    UserLease acquire(String username);
+}
@@ -0,0 +1,17 @@
+package com.esin.box.lock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记按天写入资产记录的方法：同一用户的此类方法串行执行
+ * 锁在事务开始前获取、提交后释放，用户取自 UserContextHolder
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UserWriteLock {
+}
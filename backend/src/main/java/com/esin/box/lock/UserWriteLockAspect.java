@@ -0,0 +1,83 @@
+package com.esin.box.lock;
+
+import com.esin.box.config.UserContextHolder;
+import com.esin.box.mapper.UserWriteFenceMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 为 @UserWriteLock 方法加用户写锁
+ * 优先级高于事务切面：先加锁再开启事务，提交后才释放，后一个写操作一定能看到前一个的结果
+ * 带栅栏令牌时在同一事务内先推进 user_write_fence，过期租约的写入直接回滚
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserWriteLockAspect {
+
+    // 当前线程已持有写锁的用户，嵌套调用不重复加锁
+    private static final ThreadLocal<String> heldUser = new NamedThreadLocal<>("User Write Lock");
+
+    private final UserLockService userLockService;
+    private final UserWriteFenceMapper userWriteFenceMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserWriteLockAspect(UserLockService userLockService, UserWriteFenceMapper userWriteFenceMapper,
+                               TransactionTemplate transactionTemplate) {
+        this.userLockService = userLockService;
+        this.userWriteFenceMapper = userWriteFenceMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Around("@annotation(com.esin.box.lock.UserWriteLock)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        String username = UserContextHolder.getCurrentUsername();
+        if (username == null || username.equals(heldUser.get())) {
+            return joinPoint.proceed();
+        }
+
+        try (UserLease lease = userLockService.acquire(username)) {
+            heldUser.set(username);
+            try {
+                return lease.getFencingToken() > 0 ? proceedFenced(joinPoint, lease) : joinPoint.proceed();
+            } finally {
+                heldUser.remove();
+            }
+        }
+    }
+
+    private Object proceedFenced(ProceedingJoinPoint joinPoint, UserLease lease) throws Throwable {
+        try {
+            return transactionTemplate.execute(status -> {
+                userWriteFenceMapper.insertIfAbsent(lease.getUsername());
+                if (userWriteFenceMapper.advance(lease.getUsername(), lease.getFencingToken()) == 0) {
+                    log.warn("用户写锁栅栏令牌已过期: username={}, token={}", lease.getUsername(), lease.getFencingToken());
+                    throw new UserLockException("写锁已被其他节点接管，本次写入已取消，请重试");
+                }
+                try {
+                    return joinPoint.proceed();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new CheckedInvocationException(e);
+                }
+            });
+        } catch (CheckedInvocationException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class CheckedInvocationException extends RuntimeException {
+        CheckedInvocationException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.esin.box.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 软删除记录归档
+ * 表名与列名来自代码常量（TombstoneArchiveJob），不接受外部输入
+ */
+@Mapper
+public interface ArchiveMapper {
+
+    /**
+     * 锁定一批过期且未被 references 中任何一列引用的软删除记录ID，SKIP LOCKED 使多节点并发执行时互不等待
+     */
+    List<Long> selectTombstoneIds(@Param("table") String table,
+                                  @Param("references") List<Reference> references,
+                                  @Param("cutoff") LocalDateTime cutoff,
+                                  @Param("limit") int limit);
+
+    int copyToArchive(@Param("table") String table,
+                      @Param("columns") String columns,
+                      @Param("ids") List<Long> ids);
+
+    int deleteTombstones(@Param("table") String table,
+                         @Param("ids") List<Long> ids);
+
+    /**
+     * 引用归档表ID的 表.列，存在引用的软删除记录不归档
+     */
+    record Reference(String table, String column) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.esin.box.mapper;
+
+import com.esin.box.entity.AssetImportStaging;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 文件导入暂存与集合式合并
+ * 匹配规则与 AssetRecordServiceImpl.smartBatchAddRecords 一致：按 资产名称ID + 方括号编号（asset_record.bracket_code）匹配
+ */
+@Mapper
+public interface AssetImportStagingMapper {
+
+    int insertBatch(@Param("rows") List<AssetImportStaging> rows);
+
+    int deleteByImportId(@Param("importId") String importId);
+
+    /**
+     * 清理异常中断后残留的暂存行
+     */
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+
+    List<LocalDate> selectAcquireDates(@Param("importId") String importId);
+
+    // ---------------- 非强制覆盖模式 ----------------
+
+    /**
+     * 按唯一键 upsert 全部暂存行到 asset_record，规则同 AssetRecordMapper.upsertBatch
+     *
+     * @return 影响行数：新增计1，更新计2，更新条数 = 返回值 - 暂存行数
+     */
+    int upsertStaged(@Param("importId") String importId,
+                     @Param("createUser") String createUser,
+                     @Param("now") LocalDateTime now);
+
+    // ---------------- 强制覆盖模式（today 由调用方传入，不使用数据库 CURDATE()） ----------------
+
+    /**
+     * 输入中重复的 资产名称 + 编号
+     */
+    List<AssetImportStaging> selectDuplicateKeys(@Param("importId") String importId, @Param("limit") int limit);
+
+    /**
+     * 同一 资产名称ID + 编号 下，输入行按行号、今日记录按创建时间依次配对
+     */
+    int markOrdinalMatches(@Param("importId") String importId,
+                           @Param("createUser") String createUser,
+                           @Param("today") LocalDate today);
+
+    int markUnchanged(@Param("importId") String importId, @Param("today") LocalDate today);
+
+    int countUnchanged(@Param("importId") String importId);
+
+    /**
+     * 用输入行覆盖内容有变化的今日记录的全部业务字段
+     */
+    int overwriteMatchedRecords(@Param("importId") String importId,
+                                @Param("createUser") String createUser,
+                                @Param("today") LocalDate today,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * 软删除未被任何输入行匹配的今日记录
+     */
+    int deleteUnmatchedToday(@Param("importId") String importId,
+                             @Param("createUser") String createUser,
+                             @Param("today") LocalDate today,
+                             @Param("now") LocalDateTime now);
+
+    /**
+     * 新增未匹配的行
+     */
+    int insertUnmatched(@Param("importId") String importId,
+                        @Param("createUser") String createUser,
+                        @Param("now") LocalDateTime now);
+}
@@ -2,11 +2,16 @@ package com.esin.box.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.esin.box.dto.AssetDailyTotalsDTO;
 import com.esin.box.dto.AssetRecordDTO;
+import com.esin.box.dto.AssetSeriesRowDTO;
 import com.esin.box.entity.AssetRecord;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,8 +28,61 @@ public interface AssetRecordMapper extends BaseMapper<AssetRecord> {
                                              @Param("endDate") String endDate,
                                              @Param("createUser") String createUser);
 
+    /**
+     * 按时间桶与名称/类型/位置维度聚合金额，周/月粒度取桶内最后一个有记录日期的快照
+     *
+     * @param granularity day / week / month
+     * @param endDate     结束日期（不含）
+     */
+    List<AssetSeriesRowDTO> selectSeries(@Param("createUser") String createUser,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate,
+                                         @Param("granularity") String granularity,
+                                         @Param("assetNameIdList") List<Long> assetNameIdList,
+                                         @Param("assetLocationIdList") List<Long> assetLocationIdList,
+                                         @Param("assetTypeIdList") List<Long> assetTypeIdList);
+
+    /**
+     * 按资产类型分类汇总统计日与上一记录日的金额，一次查询返回两天的合计
+     *
+     * @param previousDate 上一记录日，可为 null
+     */
+    AssetDailyTotalsDTO selectDailyTotals(@Param("createUser") String createUser,
+                                          @Param("latestDate") LocalDate latestDate,
+                                          @Param("previousDate") LocalDate previousDate);
+
+    /**
+     * 查询有记录的日期（去重、倒序）
+     *
+     * @param dates 只检查这些日期，为空时返回全部
+     */
+    List<LocalDate> selectRecordDates(@Param("createUser") String createUser,
+                                      @Param("dates") Collection<LocalDate> dates);
+
     /**
      * 批量插入记录
      */
     void insertBatch(@Param("records") List<AssetRecord> records);
+
+    /**
+     * 按 用户 + 日期 + 资产名称ID + 方括号编号 写入：命中唯一键则更新金额（时间、备注未指定时保留原值），否则新增
+     * 当天某资产只有一条记录且输入中没有它的编号时，由该资产第一条非[首次导入]的输入行接管更新
+     *
+     * @param days 输入行落在的日期（未指定登记时间的为今天）
+     * @return 影响行数：新增计1，更新计2（命中时 version 加1，内容不变也计2），更新条数 = 返回值 - 行数
+     */
+    int upsertBatch(@Param("rows") List<UpsertRow> rows,
+                    @Param("days") Collection<LocalDate> days,
+                    @Param("createUser") String createUser,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * upsertBatch 的输入行
+     *
+     * @param seq         批次内顺序，同键多行以最后一行为准
+     * @param bracketCode 备注中的编号，与生成列 bracket_code 同一规则（BracketCodeUtil.extract）
+     * @param firstImport 备注含[首次导入]，只新增不接管
+     */
+    record UpsertRow(int seq, String bracketCode, boolean firstImport, AssetRecordDTO dto) {
+    }
 }
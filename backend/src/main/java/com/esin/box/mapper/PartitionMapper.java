@@ -0,0 +1,25 @@
+package com.esin.box.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 分区维护
+ * 表名与分区定义来自代码常量（PartitionMaintenanceJob），不接受外部输入
+ */
+@Mapper
+public interface PartitionMapper {
+
+    /**
+     * 当前库中指定表的分区名（按分区顺序），未分区时返回空列表
+     */
+    List<String> selectPartitionNames(@Param("table") String table);
+
+    /**
+     * 将 p_future 拆分为新的月分区 + p_future
+     */
+    void reorganizeFuturePartition(@Param("table") String table,
+                                   @Param("partitions") List<String> partitions);
+}
@@ -0,0 +1,18 @@
+package com.esin.box.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 用户写锁栅栏令牌（user_write_fence）
+ */
+@Mapper
+public interface UserWriteFenceMapper {
+
+    int insertIfAbsent(@Param("createUser") String createUser);
+
+    /**
+     * 令牌不小于已记录值时推进并锁定该行，返回0表示令牌已过期
+     */
+    int advance(@Param("createUser") String createUser, @Param("fencingToken") long fencingToken);
+}
@@ -0,0 +1,96 @@
+package com.esin.box.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * MyBatis语句耗时与行数统计
+ * 按Mapper语句ID打标签，如 AssetRecordMapper.selectPageWithMeta
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    public MapperMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        String mapper = shortStatementId(ms.getId());
+        String command = ms.getSqlCommandType().name();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("box.mapper.statements")
+                    .description("Mapper语句耗时")
+                    .tag("mapper", mapper)
+                    .tag("command", command)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+            if (result != null) {
+                DistributionSummary.builder("box.mapper.rows")
+                        .description("Mapper语句返回或影响的行数")
+                        .tag("mapper", mapper)
+                        .tag("command", command)
+                        .register(meterRegistry)
+                        .record(rowCount(result));
+            }
+        }
+    }
+
+    /**
+     * com.esin.box.mapper.AssetRecordMapper.selectPageWithMeta -> AssetRecordMapper.selectPageWithMeta
+     */
+    static String shortStatementId(String id) {
+        int methodDot = id.lastIndexOf('.');
+        if (methodDot <= 0) {
+            return id;
+        }
+        int classDot = id.lastIndexOf('.', methodDot - 1);
+        return classDot >= 0 ? id.substring(classDot + 1) : id;
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        return 1;
+    }
+}
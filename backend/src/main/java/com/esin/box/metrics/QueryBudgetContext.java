@@ -0,0 +1,96 @@
+package com.esin.box.metrics;
+
+import org.springframework.core.NamedThreadLocal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 单个请求内执行过的SQL统计，由 JwtAuthenticationFilter 在请求开始时开启、结束时关闭
+ * 隔离舱异步执行时由 RequestContextTaskDecorator 带到工作线程，两个线程可能先后写入，统计方法加锁
+ */
+public class QueryBudgetContext {
+    private static final ThreadLocal<QueryBudgetContext> holder = new NamedThreadLocal<>("Request Query Budget");
+
+    private final Supplier<String> endpointResolver;
+    private final Map<String, ShapeStats> shapes = new LinkedHashMap<>();
+    private int totalStatements;
+
+    public QueryBudgetContext(Supplier<String> endpointResolver) {
+        this.endpointResolver = endpointResolver;
+    }
+
+    /**
+     * @param endpointResolver 接口匹配模式，执行SQL时 Spring MVC 已完成路由，可按需解析
+     */
+    public static void begin(Supplier<String> endpointResolver) {
+        holder.set(new QueryBudgetContext(endpointResolver));
+    }
+
+    /**
+     * 异步线程沿用发起请求时的统计
+     */
+    public static void attach(QueryBudgetContext context) {
+        if (context != null) {
+            holder.set(context);
+        }
+    }
+
+    public static void detach() {
+        holder.remove();
+    }
+
+    public static QueryBudgetContext current() {
+        return holder.get();
+    }
+
+    public static QueryBudgetContext end() {
+        QueryBudgetContext context = holder.get();
+        holder.remove();
+        return context;
+    }
+
+    /**
+     * @return 该语句形态在本请求内的执行次数
+     */
+    synchronized int record(String statementId, String sql) {
+        totalStatements++;
+        return ++shapes.computeIfAbsent(statementId + "|" + sql, k -> new ShapeStats(statementId, sql)).count;
+    }
+
+    public String getEndpoint() {
+        return endpointResolver.get();
+    }
+
+    public synchronized int getTotalStatements() {
+        return totalStatements;
+    }
+
+    public synchronized Map<String, ShapeStats> getShapes() {
+        return new LinkedHashMap<>(shapes);
+    }
+
+    public static class ShapeStats {
+        private final String statementId;
+        private final String sql;
+        private int count;
+
+        ShapeStats(String statementId, String sql) {
+            this.statementId = statementId;
+            this.sql = sql;
+        }
+
+        public String getStatementId() {
+            return statementId;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
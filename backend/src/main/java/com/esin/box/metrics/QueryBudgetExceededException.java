@@ -0,0 +1,10 @@
+package com.esin.box.metrics;
+
+/**
+ * 请求执行的SQL超出预算（仅在 box.query-budget.fail-on-exceed=true 时抛出）
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
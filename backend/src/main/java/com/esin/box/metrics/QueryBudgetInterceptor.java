@@ -0,0 +1,71 @@
+package com.esin.box.metrics;
+
+import com.esin.box.config.QueryBudgetProperties;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按请求统计SQL执行情况，用于发现循环内逐条查询（N+1）
+ * 语句形态 = Mapper语句ID + 归一化后的SQL文本（参数为占位符，不区分取值）
+ * fail-on-exceed 开启时，越过预算或重复阈值的那条SQL不再执行，直接抛异常，此时响应尚未写出
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class QueryBudgetInterceptor implements Interceptor {
+
+    private final QueryBudgetProperties properties;
+
+    public QueryBudgetInterceptor(QueryBudgetProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        QueryBudgetContext context = QueryBudgetContext.current();
+        if (context != null) {
+            Object[] args = invocation.getArgs();
+            MappedStatement ms = (MappedStatement) args[0];
+            BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(args[1]);
+            String statementId = MapperMetricsInterceptor.shortStatementId(ms.getId());
+            int shapeCount = context.record(statementId, normalize(boundSql.getSql()));
+            if (properties.isFailOnExceed()) {
+                checkBudget(context, statementId, shapeCount);
+            }
+        }
+        return invocation.proceed();
+    }
+
+    private void checkBudget(QueryBudgetContext context, String statementId, int shapeCount) {
+        String endpoint = context.getEndpoint();
+        int budget = properties.budgetFor(endpoint);
+        if (shapeCount > properties.getRepeatThreshold()) {
+            throw new QueryBudgetExceededException(String.format("接口 %s 内语句 %s 重复执行 %d 次（阈值 %d 次），疑似N+1查询",
+                    endpoint, statementId, shapeCount, properties.getRepeatThreshold()));
+        }
+        if (context.getTotalStatements() > budget) {
+            throw new QueryBudgetExceededException(String.format("接口 %s 执行了 %d 条SQL（预算 %d 条）",
+                    endpoint, context.getTotalStatements(), budget));
+        }
+    }
+
+    private static String normalize(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+}
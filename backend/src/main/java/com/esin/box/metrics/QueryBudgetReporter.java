@@ -0,0 +1,85 @@
+package com.esin.box.metrics;
+
+import com.esin.box.config.QueryBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 请求结束时输出SQL预算报告：单请求SQL条数、重复执行的语句形态
+ */
+@Component
+public class QueryBudgetReporter {
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetReporter.class);
+
+    private static final int SQL_PREVIEW_LENGTH = 160;
+
+    private final QueryBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public QueryBudgetReporter(QueryBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 输出报告；测试模式下的失败由 QueryBudgetInterceptor 在越过预算时抛出，这里只记录
+     *
+     * @param endpoint Spring MVC 匹配模式，如 /api/asset-record/batch-add
+     */
+    public void report(String endpoint, QueryBudgetContext context) {
+        if (context == null || context.getTotalStatements() == 0) {
+            return;
+        }
+
+        int total = context.getTotalStatements();
+        int budget = properties.budgetFor(endpoint);
+
+        DistributionSummary.builder("box.query.per.request")
+                .description("单请求执行的SQL条数")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(total);
+
+        List<QueryBudgetContext.ShapeStats> repeated = context.getShapes().values().stream()
+                .filter(shape -> shape.getCount() > properties.getRepeatThreshold())
+                .toList();
+
+        for (QueryBudgetContext.ShapeStats shape : repeated) {
+            Counter.builder("box.query.repeated")
+                    .description("单请求内重复执行超过阈值的语句形态")
+                    .tag("endpoint", endpoint)
+                    .tag("mapper", shape.getStatementId())
+                    .register(meterRegistry)
+                    .increment();
+            logger.warn("疑似N+1查询: endpoint={}, mapper={}, 执行{}次, sql={}",
+                    endpoint, shape.getStatementId(), shape.getCount(), preview(shape.getSql()));
+        }
+
+        boolean exceeded = total > budget;
+        if (exceeded) {
+            Counter.builder("box.query.budget.exceeded")
+                    .description("超出SQL预算的请求数")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+            logger.warn("请求超出SQL预算: endpoint={}, 执行{}条, 预算{}条, 语句形态{}种",
+                    endpoint, total, budget, context.getShapes().size());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("请求SQL统计: endpoint={}, 执行{}条, 预算{}条", endpoint, total, budget);
+        }
+    }
+
+    private static String preview(String sql) {
+        return sql.length() > SQL_PREVIEW_LENGTH ? sql.substring(0, SQL_PREVIEW_LENGTH) + "..." : sql;
+    }
+}
@@ -0,0 +1,24 @@
+package com.esin.box.service;
+
+import java.time.LocalDate;
+
+/**
+ * 用户资产记录日期索引（去重、倒序），用于按偏移量定位统计日
+ */
+public interface AssetDateIndexService {
+
+    /**
+     * 第 offset 个有记录的日期，0 为最新；不存在时返回 null
+     */
+    LocalDate dateAt(String username, int offset);
+
+    /**
+     * 指定日期是否有记录
+     */
+    boolean hasRecordsOn(String username, LocalDate date);
+
+    /**
+     * 早于指定日期的最近一个记录日期；不存在时返回 null
+     */
+    LocalDate lastDateBefore(String username, LocalDate date);
+}
@@ -0,0 +1,15 @@
+package com.esin.box.service;
+
+import com.esin.box.dto.BatchAddResult;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface AssetImportService {
+    /**
+     * 流式解析 CSV / XLSX 文件并导入资产记录
+     * 表头支持：资产名称、金额、资产类型、货币单位（可省略，按资产类型默认单位）、资产位置、登记时间、备注
+     *
+     * @param forceOverwrite 是否强制覆盖今日记录
+     * @param copyLast       今日无记录时是否先复制上回记录
+     */
+    BatchAddResult importFile(MultipartFile file, boolean forceOverwrite, boolean copyLast, String username);
+}
@@ -3,9 +3,11 @@ package com.esin.box.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.esin.box.dto.AssetRecordDTO;
+import com.esin.box.dto.AssetSeriesDTO;
 import com.esin.box.dto.AssetStatsDTO;
 import com.esin.box.dto.BatchAddAssetRequest;
 import com.esin.box.dto.BatchAddResult;
+import com.esin.box.dto.BatchChunkContext;
 import com.esin.box.entity.AssetRecord;
 
 import java.util.List;
@@ -33,6 +35,14 @@ public interface AssetRecordService {
                                           String endDate,
                                           String createUser);
 
+    /**
+     * 按日期范围聚合资产趋势（总额、名称、类型、位置四个维度）
+     *
+     * @param granularity 聚合粒度：day / week / month，默认 day
+     */
+    AssetSeriesDTO getSeries(String createUser, String startDate, String endDate, String granularity,
+                             List<Long> assetNameIdList, List<Long> assetLocationIdList, List<Long> assetTypeIdList);
+
     /**
      * 检查指定用户今日是否有记录
      */
@@ -48,4 +58,27 @@ public interface AssetRecordService {
      * @return 批量添加结果
      */
     BatchAddResult smartBatchAddRecords(List<AssetRecordDTO> records, boolean forceOverwrite, boolean copyLast, String createUser);
+
+    /**
+     * 批量添加前的整体校验（强制覆盖的重复编号、非强制覆盖的编号匹配），供分块导入在首批次前调用
+     */
+    void validateBatchRecords(List<AssetRecordDTO> records, boolean forceOverwrite, String createUser);
+
+    /**
+     * 在独立事务中执行分块批量添加的一个批次
+     *
+     * @param records 本批次记录
+     * @param context 任务级状态，事务提交后累积本批次结果
+     * @return 截至本批次的累计结果
+     */
+    BatchAddResult applyBatchChunk(List<AssetRecordDTO> records, BatchChunkContext context);
+
+    /**
+     * 将暂存表中的导入行以集合SQL合并到资产记录，匹配规则与 smartBatchAddRecords 一致
+     *
+     * @param importId   暂存批次ID
+     * @param totalCount 暂存行数
+     * @return 合并结果
+     */
+    BatchAddResult mergeStagedImport(String importId, int totalCount, boolean forceOverwrite, boolean copyLast, String createUser);
 }
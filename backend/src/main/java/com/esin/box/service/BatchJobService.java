@@ -0,0 +1,24 @@
+package com.esin.box.service;
+
+import com.esin.box.dto.BatchAddAssetRequest;
+import com.esin.box.dto.BatchJobStatusDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface BatchJobService {
+    /**
+     * 提交异步批量添加任务，立即返回任务ID
+     *
+     * @param idempotencyKey 幂等键，为空时按请求内容计算；窗口期内重复提交返回同一任务
+     */
+    String submit(BatchAddAssetRequest request, String username, String idempotencyKey);
+
+    /**
+     * 查询任务进度，任务不存在或不属于该用户时抛出异常
+     */
+    BatchJobStatusDTO getStatus(String jobId, String username);
+
+    /**
+     * 以 SSE 推送任务进度，任务结束后关闭
+     */
+    SseEmitter subscribe(String jobId, String username);
+}
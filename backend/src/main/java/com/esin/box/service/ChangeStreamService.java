@@ -0,0 +1,10 @@
+package com.esin.box.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ChangeStreamService {
+    /**
+     * 订阅当前用户的数据变更通知（SSE），连接建立后先推送 ready 事件，之后每次变更推送 change 事件
+     */
+    SseEmitter subscribe(String username);
+}
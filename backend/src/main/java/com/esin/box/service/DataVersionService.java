@@ -0,0 +1,16 @@
+package com.esin.box.service;
+
+import com.esin.box.event.DataDomain;
+
+public interface DataVersionService {
+
+    /**
+     * 获取用户某业务域的数据版本，数据每次变更后版本都会变化
+     */
+    long currentVersion(String username, DataDomain domain);
+
+    /**
+     * 使用户某业务域的数据版本失效
+     */
+    void bump(String username, DataDomain domain);
+}
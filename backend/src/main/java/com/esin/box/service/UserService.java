@@ -4,6 +4,7 @@ import com.esin.box.entity.User;
 
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserService {
     User findByUsername(String username);
@@ -17,4 +18,10 @@ public interface UserService {
     void recordLogin(Long userId, LocalDateTime lastLoginTime); // 必须保留
 
     Map<String, String> generateLoginTokens(User user);
+
+    /**
+     * 用 refresh token 换取新的令牌对；同一 refresh token 的并发刷新只签发一次，其余请求拿到相同结果
+     * 其余请求异步等待首个请求签发完成，不占用请求线程
+     */
+    CompletableFuture<Map<String, String>> refreshTokens(String refreshToken);
 }
@@ -0,0 +1,313 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.event.DataDomain;
+import com.esin.box.event.RecordChangeEvent;
+import com.esin.box.mapper.AssetRecordMapper;
+import com.esin.box.service.AssetDateIndexService;
+import com.esin.box.service.DataVersionService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 资产记录日期索引
+ * Redis：位图 asset_days:<用户>，第 (BASE_DAY - epochDay) 位表示该日有未删除记录，
+ * 日期越新位越靠前，BITPOS 找到的第一个置位即最近记录日；末尾哨兵位表示位图已建立
+ * 本地缓存：用户 -> 倒序 epochDay 数组，以数据版本校验是否过期
+ */
+@Slf4j
+@Service
+public class AssetDateIndexServiceImpl implements AssetDateIndexService {
+
+    private static final String KEY_PREFIX = "asset_days:";
+    private static final String CALLER = "date-index";
+    private static final Duration KEY_TTL = Duration.ofDays(30);
+
+    // 位图支持的最大日期：2100-01-01 对应第 0 位
+    private static final long BASE_DAY = LocalDate.of(2100, 1, 1).toEpochDay();
+    // 哨兵位位于 1970-01-01 之后一位，区分“无记录”与“位图未建立”
+    private static final long SENTINEL_OFFSET = BASE_DAY + 1;
+
+    private static final BitFieldSubCommands.BitFieldType BIT = BitFieldSubCommands.BitFieldType.unsigned(1);
+
+    private final AssetRecordMapper assetRecordMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+    private final DataVersionService dataVersionService;
+
+    private final Cache<String, DateIndex> localCache = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    public AssetDateIndexServiceImpl(AssetRecordMapper assetRecordMapper, StringRedisTemplate redisTemplate,
+                                     RedisCommandExecutor redisCommandExecutor, DataVersionService dataVersionService) {
+        this.assetRecordMapper = assetRecordMapper;
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+        this.dataVersionService = dataVersionService;
+    }
+
+    @Override
+    public LocalDate dateAt(String username, int offset) {
+        if (offset < 0) {
+            return null;
+        }
+        long[] days = loadIndex(username);
+        return offset < days.length ? LocalDate.ofEpochDay(days[offset]) : null;
+    }
+
+    @Override
+    public boolean hasRecordsOn(String username, LocalDate date) {
+        String key = indexKey(username);
+        try {
+            // 一条 BITFIELD 同时读取当日位与哨兵位
+            List<Long> bits = redisCommandExecutor.execute(CALLER, "BITFIELD", () -> redisTemplate.opsForValue()
+                    .bitField(key, BitFieldSubCommands.create()
+                            .get(BIT).valueAt(bitOffset(date))
+                            .get(BIT).valueAt(SENTINEL_OFFSET)));
+            if (bits != null && bits.size() == 2 && bits.get(1) == 1L) {
+                return bits.get(0) == 1L;
+            }
+            return contains(rebuild(username), date);
+        } catch (Exception e) {
+            log.warn("读取日期位图失败，改为查询数据库: username={}, error={}", username, e.getMessage());
+            return !assetRecordMapper.selectRecordDates(username, Set.of(date)).isEmpty();
+        }
+    }
+
+    @Override
+    public LocalDate lastDateBefore(String username, LocalDate date) {
+        byte[] key = indexKey(username).getBytes(StandardCharsets.UTF_8);
+        byte[] start = String.valueOf(bitOffset(date) + 1).getBytes(StandardCharsets.UTF_8);
+        try {
+            Long position = redisCommandExecutor.execute(CALLER, "BITPOS", () -> redisTemplate.execute(
+                    (RedisCallback<Long>) connection -> (Long) connection.execute("BITPOS", key,
+                            "1".getBytes(StandardCharsets.UTF_8), start, "-1".getBytes(StandardCharsets.UTF_8),
+                            "BIT".getBytes(StandardCharsets.UTF_8))));
+            if (position != null && position >= 0) {
+                return position == SENTINEL_OFFSET ? null : LocalDate.ofEpochDay(BASE_DAY - position);
+            }
+            return firstBefore(rebuild(username), date);
+        } catch (Exception e) {
+            log.warn("读取日期位图失败，改为查询数据库: username={}, error={}", username, e.getMessage());
+            return firstBefore(toDays(assetRecordMapper.selectRecordDates(username, null)), date);
+        }
+    }
+
+    /**
+     * 记录变更提交后增量更新：只重新检查受影响日期是否仍有记录
+     * 需在数据版本刷新之前执行，保证其他节点看到新版本时索引已更新
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        if (event.getDomain() != DataDomain.ASSET || event.getDates().isEmpty()) {
+            return;
+        }
+        String username = event.getUsername();
+        String key = indexKey(username);
+        try {
+            Set<LocalDate> present = new HashSet<>(assetRecordMapper.selectRecordDates(username, event.getDates()));
+            for (LocalDate date : event.getDates()) {
+                if (isIndexable(date)) {
+                    boolean value = present.contains(date);
+                    redisCommandExecutor.run(CALLER, "SETBIT",
+                            () -> redisTemplate.opsForValue().setBit(key, bitOffset(date), value));
+                }
+            }
+        } catch (Exception e) {
+            // 位图可能已不准确，删除后由下次查询重建
+            log.warn("增量更新日期位图失败，将重建: username={}, error={}", username, e.getMessage());
+            try {
+                redisCommandExecutor.run(CALLER, "DEL", () -> redisTemplate.delete(key));
+            } catch (Exception ignored) {
+                // Redis不可用时本地缓存仍会因数据版本变化而失效
+            }
+        } finally {
+            localCache.invalidate(username);
+        }
+    }
+
+    private long[] loadIndex(String username) {
+        long version;
+        try {
+            version = dataVersionService.currentVersion(username, DataDomain.ASSET);
+        } catch (Exception e) {
+            log.warn("读取数据版本失败，日期索引直接查询数据库: username={}, error={}", username, e.getMessage());
+            return toDays(assetRecordMapper.selectRecordDates(username, null));
+        }
+
+        DateIndex cached = localCache.getIfPresent(username);
+        if (cached != null && cached.version == version) {
+            return cached.days;
+        }
+
+        long[] days = loadFromRedis(username);
+        localCache.put(username, new DateIndex(version, days));
+        return days;
+    }
+
+    private long[] loadFromRedis(String username) {
+        byte[] key = indexKey(username).getBytes(StandardCharsets.UTF_8);
+        byte[] bitmap = redisCommandExecutor.execute(CALLER, "GET",
+                () -> redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key)));
+        if (bitmap == null || !isSet(bitmap, SENTINEL_OFFSET)) {
+            return rebuild(username);
+        }
+        return decode(bitmap);
+    }
+
+    /**
+     * 从数据库重建位图；以 BITOP OR 合并，避免覆盖重建期间提交的增量更新
+     * OR 合并可能把重建读库后被删除日期的清除覆盖回来，合并后再读一次数据库清除这些日期
+     */
+    private long[] rebuild(String username) {
+        List<LocalDate> dates = assetRecordMapper.selectRecordDates(username, null);
+        long[] days = toDays(dates);
+
+        byte[] bitmap = new byte[(int) (SENTINEL_OFFSET / 8) + 1];
+        setBit(bitmap, SENTINEL_OFFSET);
+        for (long day : days) {
+            if (day >= 0 && day <= BASE_DAY) {
+                setBit(bitmap, BASE_DAY - day);
+            }
+        }
+
+        String key = indexKey(username);
+        String tmpKey = key + ":rebuild:" + UUID.randomUUID();
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        byte[] rawTmpKey = tmpKey.getBytes(StandardCharsets.UTF_8);
+        redisCommandExecutor.run(CALLER, "SET", () -> redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.stringCommands().set(rawTmpKey, bitmap, Expiration.seconds(60),
+                        RedisStringCommands.SetOption.upsert())));
+        redisCommandExecutor.run(CALLER, "BITOP", () -> redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitOp(RedisStringCommands.BitOperation.OR, rawKey, rawKey, rawTmpKey)));
+        redisCommandExecutor.run(CALLER, "DEL", () -> redisTemplate.delete(tmpKey));
+        redisCommandExecutor.run(CALLER, "EXPIRE", () -> redisTemplate.expire(key, KEY_TTL));
+
+        // 合并之后读到的结果才能作为依据：此后提交的变更由其增量更新覆盖合并结果
+        List<LocalDate> current = assetRecordMapper.selectRecordDates(username, null);
+        Set<LocalDate> removed = new HashSet<>(dates);
+        current.forEach(removed::remove);
+        if (!removed.isEmpty()) {
+            clearRemovedDates(key, username, removed);
+        }
+        log.debug("重建日期位图: username={}, 日期数={}, 重建期间删除={}", username, current.size(), removed.size());
+        return toDays(current);
+    }
+
+    /**
+     * 清除重建期间已删除的日期；清除后再确认一次，期间又新增了记录的日期重新置位
+     */
+    private void clearRemovedDates(String key, String username, Set<LocalDate> removed) {
+        for (LocalDate date : removed) {
+            if (isIndexable(date)) {
+                redisCommandExecutor.run(CALLER, "SETBIT",
+                        () -> redisTemplate.opsForValue().setBit(key, bitOffset(date), false));
+            }
+        }
+        for (LocalDate date : assetRecordMapper.selectRecordDates(username, removed)) {
+            if (isIndexable(date)) {
+                redisCommandExecutor.run(CALLER, "SETBIT",
+                        () -> redisTemplate.opsForValue().setBit(key, bitOffset(date), true));
+            }
+        }
+    }
+
+    /**
+     * 位图 -> 倒序 epochDay 数组（位序即日期倒序）
+     */
+    private static long[] decode(byte[] bitmap) {
+        long[] buffer = new long[64];
+        int size = 0;
+        long limit = Math.min((long) bitmap.length * 8, SENTINEL_OFFSET);
+        for (int i = 0; i < bitmap.length && (long) i * 8 < limit; i++) {
+            if (bitmap[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < 8; j++) {
+                long offset = (long) i * 8 + j;
+                if (offset < limit && (bitmap[i] & (0x80 >>> j)) != 0) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, size * 2);
+                    }
+                    buffer[size++] = BASE_DAY - offset;
+                }
+            }
+        }
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private static boolean isSet(byte[] bitmap, long offset) {
+        int index = (int) (offset / 8);
+        return index < bitmap.length && (bitmap[index] & (0x80 >>> (int) (offset % 8))) != 0;
+    }
+
+    private static void setBit(byte[] bitmap, long offset) {
+        bitmap[(int) (offset / 8)] |= (byte) (0x80 >>> (int) (offset % 8));
+    }
+
+    private static long bitOffset(LocalDate date) {
+        return BASE_DAY - date.toEpochDay();
+    }
+
+    private static boolean isIndexable(LocalDate date) {
+        long day = date.toEpochDay();
+        return day >= 0 && day <= BASE_DAY;
+    }
+
+    private static boolean contains(long[] daysDesc, LocalDate date) {
+        long target = date.toEpochDay();
+        for (long day : daysDesc) {
+            if (day == target) {
+                return true;
+            }
+            if (day < target) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static LocalDate firstBefore(long[] daysDesc, LocalDate date) {
+        long target = date.toEpochDay();
+        for (long day : daysDesc) {
+            if (day < target) {
+                return LocalDate.ofEpochDay(day);
+            }
+        }
+        return null;
+    }
+
+    private static long[] toDays(List<LocalDate> datesDesc) {
+        // 查询结果已按日期倒序
+        return datesDesc.stream().mapToLong(LocalDate::toEpochDay).toArray();
+    }
+
+    private String indexKey(String username) {
+        return KEY_PREFIX + username;
+    }
+
+    private record DateIndex(long version, long[] days) {
+    }
+}
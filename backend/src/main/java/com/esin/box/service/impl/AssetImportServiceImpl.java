@@ -0,0 +1,514 @@
+package com.esin.box.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.esin.box.dto.BatchAddResult;
+import com.esin.box.entity.AssetImportStaging;
+import com.esin.box.entity.AssetName;
+import com.esin.box.entity.CommonMeta;
+import com.esin.box.mapper.AssetImportStagingMapper;
+import com.esin.box.mapper.AssetNameMapper;
+import com.esin.box.mapper.CommonMetaMapper;
+import com.esin.box.service.AssetImportService;
+import com.esin.box.service.AssetRecordService;
+import com.esin.box.utils.BracketCodeUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 资产记录文件导入
+ * 逐行解析（CSV 用 commons-csv，XLSX 用 POI SAX），按字典解析名称为ID后分批写入暂存表，
+ * 再由 AssetRecordService.mergeStagedImport 在一个事务内以集合SQL合并
+ */
+@Slf4j
+@Service
+public class AssetImportServiceImpl implements AssetImportService {
+
+    private static final int STAGING_BATCH_SIZE = 1000;
+    private static final int MAX_ERRORS = 20;
+    private static final List<String> META_TYPES = List.of("ASSET_TYPE", "UNIT", "ASSET_LOCATION");
+
+    // 金额中的千分位、空白与货币符号
+    private static final Pattern AMOUNT_NOISE = Pattern.compile("[,\\s¥￥$]");
+
+    // 年-月-日[ 时:分[:秒]]，分隔符在解析前统一为 -
+    private static final DateTimeFormatter ACQUIRE_TIME_FORMATTER = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-M-d[ H:m[:s]]")
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+            .toFormatter();
+
+    private enum Column {
+        ASSET_NAME("资产名称", "assetname", "名称"),
+        AMOUNT("金额", "amount", "数量"),
+        ASSET_TYPE("资产类型", "assettype", "类型"),
+        UNIT("货币单位", "unit", "单位"),
+        ASSET_LOCATION("资产位置", "assetlocation", "location", "位置"),
+        ACQUIRE_TIME("登记时间", "acquiretime", "时间", "日期"),
+        REMARK("备注", "remark");
+
+        private final String[] aliases;
+
+        Column(String... aliases) {
+            this.aliases = aliases;
+        }
+    }
+
+    private static final Map<String, Column> HEADER_ALIASES = new HashMap<>();
+
+    static {
+        for (Column column : Column.values()) {
+            for (String alias : column.aliases) {
+                HEADER_ALIASES.put(alias, column);
+            }
+        }
+    }
+
+    private final AssetImportStagingMapper stagingMapper;
+    private final AssetNameMapper assetNameMapper;
+    private final CommonMetaMapper commonMetaMapper;
+    private final AssetRecordService assetRecordService;
+
+    // 公共元数据变化很少，按类型缓存
+    private final Cache<String, List<CommonMeta>> metaCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    public AssetImportServiceImpl(AssetImportStagingMapper stagingMapper, AssetNameMapper assetNameMapper,
+                                  CommonMetaMapper commonMetaMapper, AssetRecordService assetRecordService) {
+        this.stagingMapper = stagingMapper;
+        this.assetNameMapper = assetNameMapper;
+        this.commonMetaMapper = commonMetaMapper;
+        this.assetRecordService = assetRecordService;
+    }
+
+    @Override
+    public BatchAddResult importFile(MultipartFile file, boolean forceOverwrite, boolean copyLast, String username) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("导入文件不能为空");
+        }
+        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        if (!filename.endsWith(".csv") && !filename.endsWith(".xlsx")) {
+            throw new RuntimeException("仅支持 CSV 与 XLSX 文件");
+        }
+
+        String importId = UUID.randomUUID().toString().replace("-", "");
+        long start = System.nanoTime();
+        stagingMapper.deleteCreatedBefore(LocalDateTime.now().minusDays(1));
+
+        StagingWriter writer = new StagingWriter(importId, username, loadDictionary(username));
+        try {
+            if (filename.endsWith(".csv")) {
+                parseCsv(file, writer);
+            } else {
+                parseXlsx(file, writer);
+            }
+            writer.finish();
+
+            log.info("导入文件解析完成，用户: {}, 文件: {}, 行数: {}, 耗时: {}ms", username, file.getOriginalFilename(),
+                    writer.rowCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return assetRecordService.mergeStagedImport(importId, writer.rowCount, forceOverwrite, copyLast, username);
+        } finally {
+            stagingMapper.deleteByImportId(importId);
+        }
+    }
+
+    private void parseCsv(MultipartFile file, StagingWriter writer) {
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setIgnoreEmptyLines(true)
+                .setTrim(true)
+                .build();
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8);
+             CSVParser parser = format.parse(reader)) {
+            for (CSVRecord record : parser) {
+                String[] cells = new String[record.size()];
+                for (int i = 0; i < cells.length; i++) {
+                    cells[i] = record.get(i);
+                }
+                writer.accept((int) record.getRecordNumber(), cells);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取CSV文件失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 只读取第一个工作表；SAX 方式逐行回调，内存占用与行数无关
+     */
+    private void parseXlsx(MultipartFile file, StagingWriter writer) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("asset-import-", ".xlsx");
+            file.transferTo(tempFile);
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+                XSSFReader reader = new XSSFReader(pkg);
+                StylesTable styles = reader.getStylesTable();
+
+                // Excel 内置日期格式按 年-月-日 输出，便于统一解析
+                DataFormatter formatter = new DataFormatter(Locale.ROOT);
+                formatter.addFormat("m/d/yy", new SimpleDateFormat("yyyy-MM-dd"));
+                formatter.addFormat("m/d/yy h:mm", new SimpleDateFormat("yyyy-MM-dd HH:mm"));
+
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                        new SheetRowHandler(writer), formatter, false));
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    throw new RuntimeException("XLSX文件中没有工作表");
+                }
+                try (InputStream sheet = sheets.next()) {
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("读取XLSX文件失败：" + e.getMessage());
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("删除导入临时文件失败: {}", tempFile, e);
+                }
+            }
+        }
+    }
+
+    private ImportDictionary loadDictionary(String username) {
+        Map<String, Long> assetNames = assetNameMapper.selectList(new QueryWrapper<AssetName>()
+                        .select("id", "name")
+                        .eq("create_user", username))
+                .stream()
+                .collect(Collectors.toMap(name -> name.getName().trim(), AssetName::getId, (v1, v2) -> v1));
+
+        Map<String, List<CommonMeta>> metas = new HashMap<>();
+        for (String typeCode : META_TYPES) {
+            try {
+                metas.put(typeCode, metaCache.get(typeCode, () -> commonMetaMapper.selectList(
+                        new QueryWrapper<CommonMeta>().eq("type_code", typeCode))));
+            } catch (ExecutionException e) {
+                throw new RuntimeException("加载元数据失败：" + e.getCause().getMessage());
+            }
+        }
+        return new ImportDictionary(assetNames, metas.get("ASSET_TYPE"), metas.get("UNIT"), metas.get("ASSET_LOCATION"));
+    }
+
+    /**
+     * 名称 -> ID 字典，元数据按显示名（value1）匹配
+     */
+    private static class ImportDictionary {
+        private final Map<String, Long> assetNames;
+        private final Map<String, CommonMeta> assetTypes;
+        private final Map<String, CommonMeta> units;
+        private final Map<String, Long> unitIdsByCode;
+        private final Map<String, CommonMeta> locations;
+
+        ImportDictionary(Map<String, Long> assetNames, List<CommonMeta> assetTypes, List<CommonMeta> units,
+                         List<CommonMeta> locations) {
+            this.assetNames = assetNames;
+            this.assetTypes = byValue(assetTypes);
+            this.units = byValue(units);
+            this.locations = byValue(locations);
+            this.unitIdsByCode = units.stream()
+                    .filter(unit -> unit.getKey1() != null)
+                    .collect(Collectors.toMap(CommonMeta::getKey1, CommonMeta::getId, (v1, v2) -> v1));
+        }
+
+        private static Map<String, CommonMeta> byValue(List<CommonMeta> metas) {
+            return metas.stream()
+                    .filter(meta -> meta.getValue1() != null)
+                    .collect(Collectors.toMap(meta -> meta.getValue1().trim(), meta -> meta, (v1, v2) -> v1));
+        }
+
+        /**
+         * 资产类型的 key3 为默认货币单位的 key1
+         */
+        Long defaultUnitId(CommonMeta assetType) {
+            return assetType.getKey3() != null ? unitIdsByCode.get(assetType.getKey3()) : null;
+        }
+    }
+
+    /**
+     * 表头映射、行校验与暂存表分批写入
+     */
+    private class StagingWriter {
+        private final String importId;
+        private final String username;
+        private final ImportDictionary dictionary;
+        private final List<AssetImportStaging> buffer = new ArrayList<>(STAGING_BATCH_SIZE);
+        private final List<String> errors = new ArrayList<>();
+        private Map<Column, Integer> columnIndexes;
+        private int rowCount;
+
+        StagingWriter(String importId, String username, ImportDictionary dictionary) {
+            this.importId = importId;
+            this.username = username;
+            this.dictionary = dictionary;
+        }
+
+        void accept(int lineNo, String[] cells) {
+            if (columnIndexes == null) {
+                columnIndexes = mapHeader(cells);
+                return;
+            }
+            if (Arrays.stream(cells).noneMatch(StringUtils::hasText)) {
+                return;
+            }
+
+            AssetImportStaging row = toStagingRow(lineNo, cells);
+            if (row == null) {
+                if (errors.size() >= MAX_ERRORS) {
+                    throw new RuntimeException("导入文件校验失败：\n" + String.join("\n", errors));
+                }
+                return;
+            }
+            rowCount++;
+            if (errors.isEmpty()) {
+                buffer.add(row);
+                if (buffer.size() >= STAGING_BATCH_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        void finish() {
+            if (!errors.isEmpty()) {
+                throw new RuntimeException("导入文件校验失败：\n" + String.join("\n", errors));
+            }
+            if (columnIndexes == null || rowCount == 0) {
+                throw new RuntimeException("导入文件中没有数据行");
+            }
+            flush();
+        }
+
+        private void flush() {
+            if (!buffer.isEmpty()) {
+                stagingMapper.insertBatch(buffer);
+                buffer.clear();
+            }
+        }
+
+        private Map<Column, Integer> mapHeader(String[] headers) {
+            Map<Column, Integer> indexes = new EnumMap<>(Column.class);
+            for (int i = 0; i < headers.length; i++) {
+                if (headers[i] == null) {
+                    continue;
+                }
+                // 去掉 UTF-8 BOM、空白与大小写差异
+                String normalized = headers[i].replace("\uFEFF", "").replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+                Column column = HEADER_ALIASES.get(normalized);
+                if (column != null) {
+                    indexes.putIfAbsent(column, i);
+                }
+            }
+            List<String> missing = new ArrayList<>();
+            for (Column required : List.of(Column.ASSET_NAME, Column.AMOUNT, Column.ASSET_TYPE, Column.ASSET_LOCATION)) {
+                if (!indexes.containsKey(required)) {
+                    missing.add(required.aliases[0]);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new RuntimeException("导入文件缺少列：" + String.join("、", missing));
+            }
+            return indexes;
+        }
+
+        private AssetImportStaging toStagingRow(int lineNo, String[] cells) {
+            String assetName = cell(cells, Column.ASSET_NAME);
+            Long assetNameId = assetName != null ? dictionary.assetNames.get(assetName) : null;
+            if (assetNameId == null) {
+                return error(lineNo, "资产名称[" + nullToEmpty(assetName) + "]不存在");
+            }
+
+            BigDecimal amount = parseAmount(cell(cells, Column.AMOUNT));
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                return error(lineNo, "金额[" + nullToEmpty(cell(cells, Column.AMOUNT)) + "]必须是大于0的数字");
+            }
+
+            String typeName = cell(cells, Column.ASSET_TYPE);
+            CommonMeta assetType = typeName != null ? dictionary.assetTypes.get(typeName) : null;
+            if (assetType == null) {
+                return error(lineNo, "资产类型[" + nullToEmpty(typeName) + "]不存在");
+            }
+
+            String unitName = cell(cells, Column.UNIT);
+            Long unitId;
+            if (unitName != null) {
+                CommonMeta unit = dictionary.units.get(unitName);
+                unitId = unit != null ? unit.getId() : null;
+            } else {
+                unitId = dictionary.defaultUnitId(assetType);
+            }
+            if (unitId == null) {
+                return error(lineNo, "货币单位[" + nullToEmpty(unitName) + "]不存在");
+            }
+
+            String locationName = cell(cells, Column.ASSET_LOCATION);
+            CommonMeta location = locationName != null ? dictionary.locations.get(locationName) : null;
+            if (location == null) {
+                return error(lineNo, "资产位置[" + nullToEmpty(locationName) + "]不存在");
+            }
+
+            String acquireTimeText = cell(cells, Column.ACQUIRE_TIME);
+            LocalDateTime acquireTime = null;
+            if (acquireTimeText != null) {
+                acquireTime = parseAcquireTime(acquireTimeText);
+                if (acquireTime == null) {
+                    return error(lineNo, "登记时间[" + acquireTimeText + "]格式无效，应为 yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss");
+                }
+            }
+
+            String remark = cell(cells, Column.REMARK);
+
+            AssetImportStaging row = new AssetImportStaging();
+            row.setImportId(importId);
+            row.setLineNo(lineNo);
+            row.setCreateUser(username);
+            row.setAssetNameId(assetNameId);
+            row.setAssetTypeId(assetType.getId());
+            row.setUnitId(unitId);
+            row.setAssetLocationId(location.getId());
+            row.setAmount(amount);
+            row.setAcquireTime(acquireTime);
+            row.setRemark(remark);
+            row.setBracketCode(BracketCodeUtil.extract(remark));
+            return row;
+        }
+
+        private AssetImportStaging error(int lineNo, String message) {
+            errors.add("第" + lineNo + "行：" + message);
+            return null;
+        }
+
+        private String cell(String[] cells, Column column) {
+            Integer index = columnIndexes.get(column);
+            if (index == null || index >= cells.length || cells[index] == null) {
+                return null;
+            }
+            String value = cells[index].trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * XLSX 行回调：按列号还原为定长数组，空单元格不会回调
+     */
+    private static class SheetRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final StagingWriter writer;
+        private final List<String> cells = new ArrayList<>();
+
+        SheetRowHandler(StagingWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            writer.accept(rowNum + 1, cells.toArray(new String[0]));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = columnIndex(cellReference);
+            while (cells.size() < col) {
+                cells.add(null);
+            }
+            cells.add(formattedValue);
+        }
+    }
+
+    /**
+     * 单元格引用（如 AB12）中的列号，从0开始
+     */
+    private static int columnIndex(String cellReference) {
+        int col = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char c = cellReference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            col = col * 26 + (c - 'A' + 1);
+        }
+        return col - 1;
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(AMOUNT_NOISE.matcher(value).replaceAll(""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseAcquireTime(String value) {
+        String normalized = value.replace('/', '-')
+                .replace('T', ' ')
+                .replace("年", "-")
+                .replace("月", "-")
+                .replace("日", "");
+        try {
+            return LocalDateTime.parse(normalized, ACQUIRE_TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
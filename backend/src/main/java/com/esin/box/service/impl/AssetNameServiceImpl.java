@@ -1,5 +1,6 @@
 package com.esin.box.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
@@ -9,18 +10,30 @@ import com.esin.box.entity.AssetName;
 import com.esin.box.mapper.AssetNameMapper;
 import com.esin.box.service.AssetNameService;
 import com.esin.box.config.UserContextHolder;
+import com.esin.box.event.DataDomain;
+import com.esin.box.event.RecordChangeEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
+import java.util.List;
 
 @Service
 public class AssetNameServiceImpl extends ServiceImpl<AssetNameMapper, AssetName> implements AssetNameService {
-    
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AssetNameServiceImpl(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Override
     public AssetName addAssetName(AssetName assetName) {
         // 设置创建人
         assetName.setCreateUser(UserContextHolder.getCurrentUsername());
         save(assetName);
+        publishChange(assetName.getCreateUser());
         return assetName;
     }
 
@@ -33,6 +46,7 @@ public class AssetNameServiceImpl extends ServiceImpl<AssetNameMapper, AssetName
             throw new RuntimeException("您没有权限修改此资产名称");
         }
         updateById(assetName);
+        publishChange(currentUser);
         return assetName;
     }
 
@@ -44,10 +58,15 @@ public class AssetNameServiceImpl extends ServiceImpl<AssetNameMapper, AssetName
         if (existing != null && !currentUser.equals(existing.getCreateUser())) {
             throw new RuntimeException("您没有权限删除此资产名称");
         }
-        return super.removeById(id);
+        boolean removed = super.removeById(id);
+        if (removed) {
+            publishChange(currentUser);
+        }
+        return removed;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public AssetName getById(Serializable id) {
         AssetName assetName = super.getById(id);
         if (assetName != null) {
@@ -60,6 +79,19 @@ public class AssetNameServiceImpl extends ServiceImpl<AssetNameMapper, AssetName
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<AssetName> list(Wrapper<AssetName> queryWrapper) {
+        return super.list(queryWrapper);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public <E extends IPage<AssetName>> E page(E page, Wrapper<AssetName> queryWrapper) {
+        return super.page(page, queryWrapper);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public IPage<AssetName> listRecords(Page<AssetName> pageObj, String name, String description, String startTime, String endTime) {
         QueryWrapper<AssetName> query = new QueryWrapper<>();
         if (StringUtils.isNotBlank(name)) {
@@ -79,4 +111,14 @@ public class AssetNameServiceImpl extends ServiceImpl<AssetNameMapper, AssetName
         return this.page(pageObj, query);
     }
 
+    /**
+     * 发布资产名称变更事件，事务提交后刷新数据版本
+     */
+    private void publishChange(String username) {
+        eventPublisher.publishEvent(RecordChangeEvent.builder()
+                .domain(DataDomain.ASSET_NAME)
+                .username(username)
+                .build());
+    }
+
 }
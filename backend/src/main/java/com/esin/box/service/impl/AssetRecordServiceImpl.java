@@ -7,28 +7,40 @@ import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.esin.box.config.UserContextHolder;
 import com.esin.box.converter.AssetRecordConverter;
+import com.esin.box.dto.AssetDailyTotalsDTO;
 import com.esin.box.dto.AssetRecordDTO;
+import com.esin.box.dto.AssetSeriesDTO;
+import com.esin.box.dto.AssetSeriesRowDTO;
 import com.esin.box.dto.AssetStatsDTO;
 import com.esin.box.dto.BatchAddResult;
+import com.esin.box.dto.BatchChunkContext;
 import com.esin.box.entity.AssetName;
 import com.esin.box.entity.AssetRecord;
-import com.esin.box.entity.CommonMeta;
+import com.esin.box.event.DataDomain;
+import com.esin.box.event.RecordChangeEvent;
+import com.esin.box.lock.UserWriteLock;
+import com.esin.box.mapper.AssetImportStagingMapper;
 import com.esin.box.mapper.AssetNameMapper;
 import com.esin.box.mapper.AssetRecordMapper;
+import com.esin.box.service.AssetDateIndexService;
 import com.esin.box.service.AssetRecordService;
-import com.esin.box.service.CommonMetaService;
+import com.esin.box.utils.BracketCodeUtil;
+import com.esin.box.utils.FixedPointAmount;
+import com.esin.box.utils.LongLongHashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -42,19 +54,34 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     @Autowired
     private AssetRecordMapper assetRecordMapper;
 
-    @Autowired
-    private CommonMetaService commonMetaService;
-
     @Autowired
     private AssetRecordConverter assetRecordConverter;
 
     @Autowired
     private AssetNameMapper assetNameMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AssetDateIndexService assetDateIndexService;
+
+    @Autowired
+    private AssetImportStagingMapper assetImportStagingMapper;
+
+    private static final Set<String> SERIES_GRANULARITIES = Set.of("day", "week", "month");
+
+    // 违反唯一键 uk_user_day_asset_code 时的提示
+    private static final String DUPLICATE_RECORD_MESSAGE = "该日期已存在相同资产名称和编号的记录，请在备注中使用不同的编号（如[002]）";
+
+    // 文件导入合并校验失败时最多提示的行数
+    private static final int IMPORT_ERROR_LIMIT = 20;
+
     // 线程局部缓存，避免重复查询
     private final ThreadLocal<Map<Long, String>> assetNameCacheHolder = new ThreadLocal<>();
 
     @Override
+    @UserWriteLock
     public void addRecord(AssetRecord record) {
         log.debug("Adding new record: {}", record);
 
@@ -72,6 +99,9 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             log.debug("Inserting record with data: {}", record);
             assetRecordMapper.insert(record);
             log.debug("Record inserted successfully");
+            publishChange(record.getCreateUser(), dateSet(record.getAcquireTime()), Set.of(record.getId()));
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException(DUPLICATE_RECORD_MESSAGE);
         } catch (Exception e) {
             log.error("Failed to insert record: {}", e.getMessage(), e);
             throw new RuntimeException("添加记录失败：" + e.getMessage());
@@ -79,6 +109,7 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     }
 
     @Override
+    @UserWriteLock
     public void updateRecord(AssetRecord record) {
         // 验证是否是记录创建人
         AssetRecord existing = assetRecordMapper.selectById(record.getId());
@@ -86,10 +117,17 @@ public class AssetRecordServiceImpl implements AssetRecordService {
         if (existing != null && !currentUser.equals(existing.getCreateUser())) {
             throw new RuntimeException("您没有权限修改此记录");
         }
-        assetRecordMapper.updateById(record);
+        try {
+            assetRecordMapper.updateById(record);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException(DUPLICATE_RECORD_MESSAGE);
+        }
+        publishChange(currentUser, dateSet(existing != null ? existing.getAcquireTime() : null, record.getAcquireTime()),
+                Set.of(record.getId()));
     }
 
     @Override
+    @UserWriteLock
     public void deleteRecord(Long id) {
         // 验证是否是记录创建人
         AssetRecord existing = assetRecordMapper.selectById(id);
@@ -98,6 +136,7 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             throw new RuntimeException("您没有权限删除此记录");
         }
         assetRecordMapper.deleteById(id);
+        publishChange(currentUser, dateSet(existing != null ? existing.getAcquireTime() : null), Set.of(id));
     }
 
     @Override
@@ -110,20 +149,52 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     }
 
     @Override
+    @UserWriteLock
     public void copyLastRecords(boolean force) {
         String currentUser = UserContextHolder.getCurrentUsername();
+        LocalDateTime now = LocalDateTime.now();
         // 调用通用复制方法，保持原有逻辑
-        int copiedCount = copyLastRecordsCommon(currentUser, force, true);
+        int copiedCount = copyLastRecordsCommon(currentUser, force, true, now);
         log.info("复制操作完成，用户: {}, 复制记录数: {}", currentUser, copiedCount);
+        publishChange(currentUser, Set.of(now.toLocalDate()), Set.of());
     }
 
     @Override
     @Transactional
+    @UserWriteLock
     public BatchAddResult smartBatchAddRecords(List<AssetRecordDTO> records, boolean forceOverwrite,
                                                boolean copyLast, String createUser) {
         if (records == null || records.isEmpty()) {
             throw new RuntimeException("记录列表不能为空");
         }
+        return applyBatchChunk(records, new BatchChunkContext(createUser, forceOverwrite, copyLast, records.size()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void validateBatchRecords(List<AssetRecordDTO> records, boolean forceOverwrite, String createUser) {
+        if (records == null || records.isEmpty()) {
+            throw new RuntimeException("记录列表不能为空");
+        }
+        try {
+            assetNameCacheHolder.set(loadAssetNameCache(records));
+            // 非强制覆盖模式按唯一键 upsert，同键多行以最后一行为准，无需预校验
+            if (forceOverwrite) {
+                validateNoDuplicates(records);
+            }
+        } finally {
+            assetNameCacheHolder.remove();
+        }
+    }
+
+    @Override
+    @Transactional
+    @UserWriteLock
+    public BatchAddResult applyBatchChunk(List<AssetRecordDTO> records, BatchChunkContext context) {
+        if (records == null || records.isEmpty()) {
+            throw new RuntimeException("记录列表不能为空");
+        }
+        String createUser = context.getCreateUser();
 
         try {
             // 预加载资产名称缓存
@@ -131,46 +202,52 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             assetNameCacheHolder.set(cache);
 
             LocalDateTime now = LocalDateTime.now();
-            boolean hasTodayRecords = hasTodayRecords(createUser);
-
-            int successCount;
-            int updateCount = 0;
-            int addCount;
-            boolean overwrote = false;
-            boolean copied = false;
-
-            log.info("开始智能批量添加，用户: {}, 记录数: {}, 强制覆盖: {}, 复制历史: {}",
-                    createUser, records.size(), forceOverwrite, copyLast);
-
-            // 场景1：强制覆盖模式
-            BatchAddResult result;
-            if (forceOverwrite) {
-                result = handleForceOverwriteMode(records, createUser, now, hasTodayRecords);
-                overwrote = result.isOverwrote();
+            boolean hasTodayRecords = hasTodayRecords(createUser, now.toLocalDate());
+
+            log.debug("开始智能批量添加，用户: {}, 记录数: {}, 强制覆盖: {}, 复制历史: {}, 首批次: {}, 末批次: {}",
+                    createUser, records.size(), context.isForceOverwrite(), context.isCopyLast(),
+                    context.isFirstChunk(), context.isLastChunk());
+
+            Set<Long> insertedIds = new HashSet<>();
+            Set<Long> matchedIds = new HashSet<>();
+            BatchAddResult chunkResult;
+            if (context.isForceOverwrite()) {
+                // 场景1：强制覆盖模式
+                chunkResult = handleForceOverwriteMode(records, createUser, now, hasTodayRecords, context,
+                        insertedIds, matchedIds);
             } else {
                 // 场景2：非强制覆盖模式
-                result = handleNormalMode(records, createUser, now, hasTodayRecords, copyLast);
-                copied = result.isCopied();
-                updateCount = result.getUpdateCount();
+                chunkResult = handleNormalMode(records, createUser, now, hasTodayRecords, context);
             }
-            addCount = result.getAddCount();
-
-            // 计算最终结果
-            successCount = updateCount + addCount;
-            String message = buildResultMessage(overwrote, copied, updateCount, addCount);
 
-            log.info("智能批量添加完成，用户: {}, 成功: {}, 更新: {}, 新增: {}, 覆盖: {}, 复制: {}",
-                    createUser, successCount, updateCount, addCount, overwrote, copied);
-
-            return BatchAddResult.builder()
-                    .successCount(successCount)
-                    .totalCount(records.size())
-                    .overwrote(overwrote)
-                    .copied(copied)
-                    .updateCount(updateCount)
-                    .addCount(addCount)
-                    .message(message)
-                    .build();
+            BatchAddResult result = accumulate(context.getTotals(), chunkResult, context.getTotalCount());
+
+            log.info("智能批量添加完成，用户: {}, 成功: {}, 更新: {}, 新增: {}, 删除: {}, 未变化: {}, 覆盖: {}, 复制: {}",
+                    createUser, result.getSuccessCount(), result.getUpdateCount(), result.getAddCount(),
+                    result.getDeleteCount(), result.getUnchangedCount(), result.isOverwrote(), result.isCopied());
+
+            Set<LocalDate> changedDates = new HashSet<>();
+            changedDates.add(now.toLocalDate());
+            records.forEach(dto -> changedDates.addAll(dateSet(dto.getAcquireTime())));
+            publishChange(createUser, changedDates, Set.of());
+
+            // 事务提交后才计入任务状态，回滚的批次重试时不受影响
+            Runnable commitToContext = () -> {
+                context.getInsertedIds().addAll(insertedIds);
+                context.getMatchedIds().addAll(matchedIds);
+                context.setTotals(result);
+            };
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        commitToContext.run();
+                    }
+                });
+            } else {
+                commitToContext.run();
+            }
+            return result;
 
         } catch (RuntimeException e) {
             // 直接抛出业务异常，不再包装
@@ -185,115 +262,184 @@ public class AssetRecordServiceImpl implements AssetRecordService {
         }
     }
 
-    /**
-     * 处理强制覆盖模式
-     */
-    private BatchAddResult handleForceOverwriteMode(List<AssetRecordDTO> records, String createUser,
-                                                    LocalDateTime now, boolean hasTodayRecords) {
-        boolean overwrote = false;
-        int addCount = 0;
+    @Override
+    @Transactional
+    @UserWriteLock
+    public BatchAddResult mergeStagedImport(String importId, int totalCount, boolean forceOverwrite,
+                                            boolean copyLast, String createUser) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        boolean hasTodayRecords = hasTodayRecords(createUser, today);
+
+        BatchAddResult.BatchAddResultBuilder merged = BatchAddResult.builder();
+        if (forceOverwrite) {
+            List<String> duplicates = assetImportStagingMapper.selectDuplicateKeys(importId, IMPORT_ERROR_LIMIT).stream()
+                    .map(row -> String.format("资产[%s]编号[%s]出现%d次", row.getAssetName(),
+                            row.getBracketCode().isEmpty() ? "空" : row.getBracketCode(), row.getDuplicateCount()))
+                    .toList();
+            if (!duplicates.isEmpty()) {
+                throw new RuntimeException("输入数据中存在重复的编号记录：" + String.join("; ", duplicates));
+            }
 
-        if (hasTodayRecords) {
-            int deletedCount = deleteTodayRecords(createUser);
-            overwrote = true;
-            log.info("强制覆盖模式：已清空今日 {} 条记录", deletedCount);
+            int unchangedCount = 0;
+            int updateCount = 0;
+            int deleteCount = 0;
+            if (hasTodayRecords) {
+                assetImportStagingMapper.markOrdinalMatches(importId, createUser, today);
+                assetImportStagingMapper.markUnchanged(importId, today);
+                unchangedCount = assetImportStagingMapper.countUnchanged(importId);
+                updateCount = assetImportStagingMapper.overwriteMatchedRecords(importId, createUser, today, now);
+                deleteCount = assetImportStagingMapper.deleteUnmatchedToday(importId, createUser, today, now);
+            }
+            merged.overwrote(hasTodayRecords)
+                    .unchangedCount(unchangedCount)
+                    .updateCount(updateCount)
+                    .deleteCount(deleteCount)
+                    .addCount(assetImportStagingMapper.insertUnmatched(importId, createUser, now));
+        } else {
+            boolean copied = false;
+            if (!hasTodayRecords && copyLast) {
+                copied = copyLastRecordsCommon(createUser, false, false, now) > 0;
+            }
+            // 与 handleNormalMode 一致，由影响行数算出更新条数
+            int updateCount = assetImportStagingMapper.upsertStaged(importId, createUser, now) - totalCount;
+            merged.copied(copied).updateCount(updateCount).addCount(totalCount - updateCount);
         }
+        BatchAddResult result = accumulate(null, merged.build(), totalCount);
 
-        // 检查输入数据中的重复
-        validateNoDuplicates(records);
+        log.info("文件导入合并完成，用户: {}, 导入ID: {}, {}", createUser, importId, result.getMessage());
 
-        List<AssetRecord> recordsToInsert = new ArrayList<>();
-        for (AssetRecordDTO dto : records) {
-            AssetRecord newRecord = convertToEntity(dto, createUser, now);
-            recordsToInsert.add(newRecord);
-            addCount++;
-        }
+        Set<LocalDate> changedDates = new HashSet<>(assetImportStagingMapper.selectAcquireDates(importId));
+        changedDates.add(today);
+        publishChange(createUser, changedDates, Set.of());
+        return result;
+    }
 
-        if (!recordsToInsert.isEmpty()) {
-            batchInsert(recordsToInsert);
-            log.info("强制覆盖模式：批量插入完成 {} 条记录", recordsToInsert.size());
-        }
+    /**
+     * 将本批次结果累加到已提交批次的结果上（未变化的记录同样视为处理成功）
+     */
+    private BatchAddResult accumulate(BatchAddResult previous, BatchAddResult chunk, int totalCount) {
+        BatchAddResult base = previous != null ? previous : new BatchAddResult();
+        boolean overwrote = base.isOverwrote() || chunk.isOverwrote();
+        boolean copied = base.isCopied() || chunk.isCopied();
+        int updateCount = base.getUpdateCount() + chunk.getUpdateCount();
+        int addCount = base.getAddCount() + chunk.getAddCount();
+        int deleteCount = base.getDeleteCount() + chunk.getDeleteCount();
+        int unchangedCount = base.getUnchangedCount() + chunk.getUnchangedCount();
 
         return BatchAddResult.builder()
+                .successCount(updateCount + addCount + unchangedCount)
+                .totalCount(totalCount)
                 .overwrote(overwrote)
+                .copied(copied)
+                .updateCount(updateCount)
                 .addCount(addCount)
+                .deleteCount(deleteCount)
+                .unchangedCount(unchangedCount)
+                .message(buildResultMessage(overwrote, copied, updateCount, addCount, deleteCount, unchangedCount))
                 .build();
     }
 
     /**
-     * 处理非强制覆盖模式
+     * 处理强制覆盖模式：与今日记录按 资产名称ID + 方括号编号 比对，只写入差异
+     * 内容相同的记录不写库，内容变化的更新，今日多出的软删除，未匹配的新增
      */
-    private BatchAddResult handleNormalMode(List<AssetRecordDTO> records, String createUser,
-                                            LocalDateTime now, boolean hasTodayRecords, boolean copyLast) {
-        boolean copied = false;
-        int updateCount = 0;
-        int addCount = 0;
-
-        // 如果今日无记录且需要复制历史记录
-        if (!hasTodayRecords && copyLast) {
-            int copiedCount = copyLastRecordsCommon(createUser, false, false);
-            if (copiedCount > 0) {
-                copied = true;
-                log.info("已复制 {} 条历史记录到今日", copiedCount);
-            } else {
-                log.warn("没有找到可复制的历史记录，继续执行后续操作");
-            }
-        }
+    private BatchAddResult handleForceOverwriteMode(List<AssetRecordDTO> records, String createUser,
+                                                    LocalDateTime now, boolean hasTodayRecords,
+                                                    BatchChunkContext context, Set<Long> insertedIds,
+                                                    Set<Long> matchedIds) {
+        // 检查输入数据中的重复
+        validateNoDuplicates(records);
 
-        // 获取当前所有今日记录（包括刚复制的）
-        List<AssetRecord> todayRecords = getTodayRecords(createUser);
-        log.info("获取到今日现有记录: {} 条", todayRecords.size());
+        // 排除本任务前序批次已匹配或新增的记录
+        List<AssetRecord> todayRecords = hasTodayRecords ? getTodayRecords(createUser, now.toLocalDate()).stream()
+                .filter(record -> !context.getMatchedIds().contains(record.getId())
+                        && !context.getInsertedIds().contains(record.getId()))
+                .toList() : List.of();
 
-        // 构建多级索引
-        Map<Long, Map<String, List<AssetRecord>>> existingRecordsIndex = buildMultiLevelIndex(todayRecords);
+        // 资产名称ID + 编号 -> 待匹配的今日记录（按创建时间、ID先后）
+        Map<String, Deque<AssetRecord>> unmatched = new HashMap<>();
+        for (AssetRecord record : todayRecords) {
+            unmatched.computeIfAbsent(matchKey(record.getAssetNameId(), record.getRemark()), k -> new ArrayDeque<>())
+                    .add(record);
+        }
 
-        // 处理每条输入记录
+        int updateCount = 0;
+        int unchangedCount = 0;
         List<AssetRecord> recordsToInsert = new ArrayList<>();
 
         for (AssetRecordDTO dto : records) {
-            AssetRecord matchedRecord = findExactMatch(dto, existingRecordsIndex);
-
-            if (matchedRecord != null) {
-                // 更新现有记录
-                int result = updateExistingRecord(matchedRecord, dto, createUser, now);
-                if (result > 0) {
-                    updateCount++;
-                }
+            Deque<AssetRecord> candidates = unmatched.get(matchKey(dto.getAssetNameId(), dto.getRemark()));
+            AssetRecord matched = candidates != null ? candidates.pollFirst() : null;
+            if (matched == null) {
+                recordsToInsert.add(convertToEntity(dto, createUser, now));
+                continue;
+            }
+            matchedIds.add(matched.getId());
+            if (isSameContent(matched, dto)) {
+                unchangedCount++;
             } else {
-                // 新增记录
-                log.info("未找到匹配记录，新增：资产名称ID: {}, 金额: {}, 备注: {}",
-                        dto.getAssetNameId(), dto.getAmount(), dto.getRemark());
-                AssetRecord newRecord = convertToEntity(dto, createUser, now);
-                recordsToInsert.add(newRecord);
-                addCount++;
+                overwriteRecord(matched, dto, createUser, now);
+                updateCount++;
             }
         }
 
-        // 执行批量插入新记录
+        // 分块执行时，今日多出的记录要等全部批次匹配完才能确定
+        int deleteCount = 0;
+        if (context.isLastChunk()) {
+            List<Long> idsToDelete = unmatched.values().stream()
+                    .flatMap(Collection::stream)
+                    .map(AssetRecord::getId)
+                    .toList();
+            deleteCount = deleteRecordsByIds(idsToDelete, createUser, now);
+        }
+
         if (!recordsToInsert.isEmpty()) {
             batchInsert(recordsToInsert);
-            log.info("批量插入完成: {} 条记录", recordsToInsert.size());
+            recordsToInsert.forEach(record -> insertedIds.add(record.getId()));
         }
 
+        log.info("强制覆盖模式：今日原有 {} 条，未变化 {} 条，更新 {} 条，新增 {} 条，删除 {} 条，用户: {}",
+                todayRecords.size(), unchangedCount, updateCount, recordsToInsert.size(), deleteCount, createUser);
+
         return BatchAddResult.builder()
-                .copied(copied)
+                .overwrote(!todayRecords.isEmpty())
                 .updateCount(updateCount)
-                .addCount(addCount)
+                .addCount(recordsToInsert.size())
+                .deleteCount(deleteCount)
+                .unchangedCount(unchangedCount)
                 .build();
     }
 
+    private String matchKey(Long assetNameId, String remark) {
+        return assetNameId + "_" + BracketCodeUtil.extract(remark);
+    }
+
     /**
-     * 更新现有记录
+     * 比较今日记录与输入记录的内容是否一致（与 convertToEntity 的取值规则一致）
      */
-    private int updateExistingRecord(AssetRecord matchedRecord, AssetRecordDTO dto,
-                                     String createUser, LocalDateTime now) {
-        log.info("找到匹配记录，ID: {}, 资产名称: {}, 备注: {}, 原金额: {}, 新金额: {}",
-                matchedRecord.getId(), getAssetNameById(dto.getAssetNameId()),
-                dto.getRemark(), matchedRecord.getAmount(), dto.getAmount());
+    private boolean isSameContent(AssetRecord existing, AssetRecordDTO dto) {
+        String remark = dto.getRemark() != null ? dto.getRemark() : "批量导入";
+        return Objects.equals(existing.getAssetTypeId(), dto.getAssetTypeId())
+                && Objects.equals(existing.getUnitId(), dto.getUnitId())
+                && Objects.equals(existing.getAssetLocationId(), dto.getAssetLocationId())
+                && existing.getAmount() != null && dto.getAmount() != null
+                && existing.getAmount().compareTo(dto.getAmount()) == 0
+                && Objects.equals(existing.getRemark(), remark)
+                && (dto.getAcquireTime() == null || dto.getAcquireTime().equals(existing.getAcquireTime()));
+    }
 
+    /**
+     * 用输入记录覆盖今日记录的全部业务字段
+     */
+    private void overwriteRecord(AssetRecord existing, AssetRecordDTO dto, String createUser, LocalDateTime now) {
         UpdateWrapper<AssetRecord> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.eq("id", matchedRecord.getId())
+        updateWrapper.eq("id", existing.getId())
+                .set("asset_type_id", dto.getAssetTypeId())
                 .set("amount", dto.getAmount())
+                .set("unit_id", dto.getUnitId())
+                .set("asset_location_id", dto.getAssetLocationId())
+                .set("remark", dto.getRemark() != null ? dto.getRemark() : "批量导入")
                 .set("update_time", now)
                 .set("update_user", createUser);
 
@@ -301,115 +447,73 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             updateWrapper.set("acquire_time", dto.getAcquireTime());
         }
 
-        if (dto.getRemark() != null) {
-            updateWrapper.set("remark", dto.getRemark());
+        if (assetRecordMapper.update(null, updateWrapper) <= 0) {
+            throw new RuntimeException("更新记录失败，记录ID: " + existing.getId());
         }
-
-        int updateResult = assetRecordMapper.update(null, updateWrapper);
-        if (updateResult > 0) {
-            log.info("更新记录成功");
-        } else {
-            throw new RuntimeException("更新记录失败，记录ID: " + matchedRecord.getId());
-        }
-
-        return updateResult;
     }
 
-    /**
-     * 构建多级索引 - 使用方括号编号作为索引键
-     */
-    private Map<Long, Map<String, List<AssetRecord>>> buildMultiLevelIndex(List<AssetRecord> records) {
-        Map<Long, Map<String, List<AssetRecord>>> index = new HashMap<>();
-
-        for (AssetRecord record : records) {
-            Long assetNameId = record.getAssetNameId();
-            String bracketCode = extractBracketCode(record.getRemark());
-
-            index.computeIfAbsent(assetNameId, k -> new HashMap<>())
-                    .computeIfAbsent(bracketCode, k -> new ArrayList<>())
-                    .add(record);
+    private int deleteRecordsByIds(List<Long> ids, String username, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return 0;
         }
-
-        return index;
+        UpdateWrapper<AssetRecord> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.in("id", ids)
+                .eq("record_day", now.toLocalDate())
+                .eq("create_user", username)
+                .eq("deleted", 0)
+                .set("deleted", 1)
+                .set("update_time", now)
+                .set("update_user", username);
+        return assetRecordMapper.update(null, updateWrapper);
     }
 
     /**
-     * 精确匹配记录 - 基于方括号编号匹配
+     * 处理非强制覆盖模式：按 用户 + 日期 + 资产名称ID + 方括号编号 的唯一键整批 upsert
+     * 命中的记录更新金额（时间、备注未指定时保留原值），未命中的新增；同键多行以最后一行为准
+     * 当天某资产只有一条记录时，输入即使编号不同（如复制的无编号记录遇到带编号的输入）也更新这一条，不另起一行
      */
-    private AssetRecord findExactMatch(AssetRecordDTO dto, Map<Long, Map<String, List<AssetRecord>>> index) {
-        Map<String, List<AssetRecord>> codeMap = index.get(dto.getAssetNameId());
-        if (codeMap == null) {
-            return null;
-        }
-
-        List<AssetRecord> allMatches = codeMap.values().stream()
-                .flatMap(List::stream)
-                .toList();
-
-        if (allMatches.size() == 1) {
-            return allMatches.get(0);
-        }
-
-        // 获取资产名称
-        String assetName = getAssetNameById(dto.getAssetNameId());
+    private BatchAddResult handleNormalMode(List<AssetRecordDTO> records, String createUser,
+                                            LocalDateTime now, boolean hasTodayRecords,
+                                            BatchChunkContext context) {
+        boolean copied = false;
 
-        // 检查是否有[首次导入]标记
-        if (isFirstTimeAdd(dto.getRemark())) {
-            log.info("资产[{}]存在{}条记录，但输入记录标记为[首次导入]，将作为新记录添加",
-                    assetName, allMatches.size());
-            return null;
+        // 如果今日无记录且需要复制历史记录（仅首批次）
+        if (context.isFirstChunk() && !hasTodayRecords && context.isCopyLast()) {
+            int copiedCount = copyLastRecordsCommon(createUser, false, false, now);
+            if (copiedCount > 0) {
+                copied = true;
+                log.info("已复制 {} 条历史记录到今日", copiedCount);
+            } else {
+                log.warn("没有找到可复制的历史记录，继续执行后续操作");
+            }
         }
 
-        // 有多条记录，必须通过编号匹配
-        String dtoBracketCode = extractBracketCode(dto.getRemark());
-
-        if (dtoBracketCode.isEmpty()) {
-            Set<String> existingCodes = codeMap.keySet().stream()
-                    .filter(code -> !code.isEmpty())
-                    .collect(Collectors.toSet());
-
-            throw new RuntimeException(String.format(
-                    """
-                            资产[%s]存在%d条记录，必须在备注中添加编号（如[001]）来指定更新哪条记录。
-                            现有编号：%s
-                            如果要添加新记录，请在备注中加入[首次导入]标记。""",
-                    assetName,
-                    allMatches.size(),
-                    existingCodes.isEmpty() ? "无" : String.join(", ", existingCodes)
-            ));
+        List<AssetRecordMapper.UpsertRow> rows = new ArrayList<>(records.size());
+        Set<LocalDate> days = new HashSet<>();
+        for (AssetRecordDTO dto : records) {
+            rows.add(new AssetRecordMapper.UpsertRow(rows.size(), BracketCodeUtil.extract(dto.getRemark()),
+                    BracketCodeUtil.isFirstImport(dto.getRemark()), dto));
+            days.add(recordDay(dto, now));
         }
+        // 命中的行 version 必然加1，影响行数恒为2，新增为1，因此可由影响行数直接算出更新条数（同键多行的后续行计为更新）
+        int affected = assetRecordMapper.upsertBatch(rows, days, createUser, now);
+        int updateCount = affected - records.size();
+        int addCount = records.size() - updateCount;
 
-        // 有编号，进行严格匹配
-        List<AssetRecord> codeMatches = codeMap.get(dtoBracketCode);
-
-        if (codeMatches == null || codeMatches.isEmpty()) {
-            Set<String> existingCodes = codeMap.keySet().stream()
-                    .filter(code -> !code.isEmpty())
-                    .collect(Collectors.toSet());
+        log.info("非强制覆盖模式：匹配更新 {} 条，新增 {} 条，用户: {}", updateCount, addCount, createUser);
 
-            throw new RuntimeException(String.format(
-                    """
-                            资产[%s]存在%d条记录，但没有编号为[%s]的记录。
-                            现有编号：%s
-                            请检查编号是否正确，或使用[首次导入]标记来添加新记录。""",
-                    assetName,
-                    allMatches.size(),
-                    dtoBracketCode,
-                    existingCodes.isEmpty() ? "无" : String.join(", ", existingCodes)
-            ));
-        }
-
-        if (codeMatches.size() > 1) {
-            throw new RuntimeException(String.format(
-                    "资产[%s]编号[%s]匹配到%d条记录，无法确定更新哪一条。\n" +
-                            "请确保资产名称和编号的组合是唯一的。",
-                    assetName,
-                    dtoBracketCode,
-                    codeMatches.size()
-            ));
-        }
+        return BatchAddResult.builder()
+                .copied(copied)
+                .updateCount(updateCount)
+                .addCount(addCount)
+                .build();
+    }
 
-        return codeMatches.get(0);
+    /**
+     * 与 upsertBatch 一致：未指定登记时间的记录落在今天
+     */
+    private LocalDate recordDay(AssetRecordDTO dto, LocalDateTime now) {
+        return (dto.getAcquireTime() != null ? dto.getAcquireTime() : now).toLocalDate();
     }
 
     /**
@@ -479,39 +583,21 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     }
 
     /**
-     * 检查备注中是否包含[首次导入]标记
-     */
-    private boolean isFirstTimeAdd(String remark) {
-        if (StringUtils.isEmpty(remark)) {
-            return false;
-        }
-        return remark.contains("[首次导入]") || remark.contains("【首次导入】");
-    }
-
-    /**
-     * 验证输入数据中没有重复
+     * 验证输入数据中没有重复（同一 资产名称 + 编号 在同一天只能有一条记录，[首次导入]也不例外）
      */
     private void validateNoDuplicates(List<AssetRecordDTO> records) {
-        Map<String, List<AssetRecordDTO>> normalRecords = new HashMap<>();
-        Map<Long, Integer> firstTimeAddCount = new HashMap<>();
-
+        Map<String, List<AssetRecordDTO>> recordsByKey = new HashMap<>();
         for (AssetRecordDTO dto : records) {
-            if (isFirstTimeAdd(dto.getRemark())) {
-                firstTimeAddCount.merge(dto.getAssetNameId(), 1, Integer::sum);
-            } else {
-                String bracketCode = extractBracketCode(dto.getRemark());
-                String key = dto.getAssetNameId() + "_" + bracketCode;
-                normalRecords.computeIfAbsent(key, k -> new ArrayList<>()).add(dto);
-            }
+            recordsByKey.computeIfAbsent(matchKey(dto.getAssetNameId(), dto.getRemark()), k -> new ArrayList<>())
+                    .add(dto);
         }
 
         List<String> duplicates = new ArrayList<>();
 
-        for (Map.Entry<String, List<AssetRecordDTO>> entry : normalRecords.entrySet()) {
-            List<AssetRecordDTO> dtoList = entry.getValue();
+        for (List<AssetRecordDTO> dtoList : recordsByKey.values()) {
             if (dtoList.size() > 1) {
                 AssetRecordDTO first = dtoList.get(0);
-                String bracketCode = extractBracketCode(first.getRemark());
+                String bracketCode = BracketCodeUtil.extract(first.getRemark());
                 String assetName = getAssetNameById(first.getAssetNameId());
                 duplicates.add(String.format("资产[%s]编号[%s]出现%d次",
                         assetName,
@@ -520,60 +606,25 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             }
         }
 
-        for (Map.Entry<Long, Integer> entry : firstTimeAddCount.entrySet()) {
-            if (entry.getValue() > 1) {
-                String assetName = getAssetNameById(entry.getKey());
-                log.info("资产[{}]有{}条[首次导入]记录，都将作为新记录添加",
-                        assetName, entry.getValue());
-            }
-        }
-
         if (!duplicates.isEmpty()) {
             throw new RuntimeException("输入数据中存在重复的编号记录：" + String.join("; ", duplicates));
         }
     }
 
     /**
-     * 从备注中提取方括号内的编号（排除[首次导入]）
-     */
-    private String extractBracketCode(String remark) {
-        if (StringUtils.isEmpty(remark)) {
-            return "";
-        }
-
-        // 先移除[首次导入]标记
-        String cleanedRemark = remark
-                .replace("[首次导入]", "")
-                .replace("【首次导入】", "");
-
-        // 正则表达式匹配方括号内的内容
-        Pattern pattern = Pattern.compile("\\[([^]]+)]|【([^】]+)】");
-        Matcher matcher = pattern.matcher(cleanedRemark);
-
-        if (matcher.find()) {
-            String code = matcher.group(1);
-            if (code == null) {
-                code = matcher.group(2);
-            }
-            return code.trim();
-        }
-
-        return "";
-    }
-
-    /**
-     * 通用的复制上回记录方法
+     * 通用的复制上回记录方法，now 决定"今日"，与调用方写入的记录日期一致
      */
-    private int copyLastRecordsCommon(String username, boolean force, boolean throwIfNoHistory) {
+    private int copyLastRecordsCommon(String username, boolean force, boolean throwIfNoHistory, LocalDateTime now) {
         try {
-            log.info("开始复制上回记录，用户: {}, 强制模式: {}, 抛异常模式: {}",
+            log.debug("开始复制上回记录，用户: {}, 强制模式: {}, 抛异常模式: {}",
                     username, force, throwIfNoHistory);
 
             // 检查今日是否已有记录
-            boolean hasTodayRecords = hasTodayRecords(username);
+            LocalDate today = now.toLocalDate();
+            boolean hasTodayRecords = hasTodayRecords(username, today);
             if (force) {
                 if (hasTodayRecords) {
-                    int deletedCount = deleteTodayRecords(username);
+                    int deletedCount = deleteTodayRecords(username, now);
                     log.info("强制模式：已删除今日 {} 条记录", deletedCount);
                 }
             } else {
@@ -583,7 +634,7 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             }
 
             // 查找最近的记录日期
-            String lastDate = findLastRecordDate(username);
+            String lastDate = findLastRecordDate(username, today);
             if (lastDate == null) {
                 String message = String.format("用户 %s 没有找到历史记录可复制", username);
                 log.warn(message);
@@ -602,10 +653,10 @@ public class AssetRecordServiceImpl implements AssetRecordService {
                 return 0;
             }
 
-            log.info("找到 {} 条记录需要复制，从日期: {}", recordsToCopy.size(), lastDate);
+            log.debug("找到 {} 条记录需要复制，从日期: {}", recordsToCopy.size(), lastDate);
 
             // 复制记录到今天
-            List<AssetRecord> newRecords = createCopiedRecords(recordsToCopy, username, lastDate);
+            List<AssetRecord> newRecords = createCopiedRecords(recordsToCopy, username, lastDate, now);
 
             // 批量插入新记录
             batchInsert(newRecords);
@@ -627,22 +678,9 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     /**
      * 查找最近的记录日期
      */
-    private String findLastRecordDate(String username) {
-        QueryWrapper<AssetRecord> dateWrapper = new QueryWrapper<>();
-        dateWrapper.select("DATE(acquire_time) as record_date")
-                .eq("create_user", username)
-                .eq("deleted", 0)
-                .apply("DATE(acquire_time) < CURDATE()")
-                .groupBy("DATE(acquire_time)")
-                .orderByDesc("DATE(acquire_time)")
-                .last("LIMIT 1");
-
-        List<Map<String, Object>> dateResults = assetRecordMapper.selectMaps(dateWrapper);
-        if (dateResults.isEmpty()) {
-            return null;
-        }
-
-        return dateResults.get(0).get("record_date").toString();
+    private String findLastRecordDate(String username, LocalDate today) {
+        LocalDate lastDate = assetDateIndexService.lastDateBefore(username, today);
+        return lastDate != null ? lastDate.toString() : null;
     }
 
     /**
@@ -652,7 +690,7 @@ public class AssetRecordServiceImpl implements AssetRecordService {
         QueryWrapper<AssetRecord> recordWrapper = new QueryWrapper<>();
         recordWrapper.eq("create_user", username)
                 .eq("deleted", 0)
-                .apply("DATE(acquire_time) = {0}", date)
+                .eq("record_day", date)
                 .orderByAsc("create_time");
 
         return assetRecordMapper.selectList(recordWrapper);
@@ -662,8 +700,7 @@ public class AssetRecordServiceImpl implements AssetRecordService {
      * 创建复制的记录
      */
     private List<AssetRecord> createCopiedRecords(List<AssetRecord> recordsToCopy,
-                                                  String username, String lastDate) {
-        LocalDateTime now = LocalDateTime.now();
+                                                  String username, String lastDate, LocalDateTime now) {
         List<AssetRecord> newRecords = new ArrayList<>();
 
         for (AssetRecord record : recordsToCopy) {
@@ -676,6 +713,8 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             newRecord.setAssetLocationId(record.getAssetLocationId());
             newRecord.setAmount(record.getAmount());
             newRecord.setRemark(record.getRemark() != null ? record.getRemark() : "复制自" + lastDate);
+            // 保留历史重复序号，避免与唯一键冲突
+            newRecord.setDupSeq(record.getDupSeq());
 
             // 设置时间和用户信息
             newRecord.setAcquireTime(now);
@@ -688,52 +727,74 @@ public class AssetRecordServiceImpl implements AssetRecordService {
 
             newRecords.add(newRecord);
 
-            log.debug("准备复制记录: 资产名称ID={}, 类型ID={}, 金额={}",
-                    record.getAssetNameId(), record.getAssetTypeId(), record.getAmount());
         }
 
         return newRecords;
     }
 
-    private List<AssetRecord> getTodayRecords(String username) {
+    private List<AssetRecord> getTodayRecords(String username, LocalDate today) {
         QueryWrapper<AssetRecord> wrapper = new QueryWrapper<>();
         wrapper.eq("create_user", username)
                 .eq("deleted", 0)
-                .apply("DATE(acquire_time) = CURDATE()")
-                .orderByAsc("create_time");
+                .eq("record_day", today)
+                // 复制出的记录创建时间相同，按ID定序，与 markOrdinalMatches 的配对顺序一致
+                .orderByAsc("create_time", "id");
 
-        List<AssetRecord> records = assetRecordMapper.selectList(wrapper);
-        log.info("获取用户 {} 今日记录: {} 条", username, records.size());
-        return records;
+        return assetRecordMapper.selectList(wrapper);
     }
 
-    private int deleteTodayRecords(String username) {
+    private int deleteTodayRecords(String username, LocalDateTime now) {
         UpdateWrapper<AssetRecord> updateWrapper = new UpdateWrapper<>();
         updateWrapper.eq("create_user", username)
                 .eq("deleted", 0)
-                .apply("DATE(acquire_time) = CURDATE()")
+                .eq("record_day", now.toLocalDate())
                 .set("deleted", 1)
-                .set("update_time", LocalDateTime.now())
+                .set("update_time", now)
                 .set("update_user", username);
 
         int deletedCount = assetRecordMapper.update(null, updateWrapper);
-        log.info("软删除用户 {} 的今日记录: {} 条", username, deletedCount);
+        log.debug("软删除用户 {} 的今日记录: {} 条", username, deletedCount);
         return deletedCount;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean hasTodayRecords(String username) {
-        QueryWrapper<AssetRecord> wrapper = new QueryWrapper<>();
-        wrapper.eq("create_user", username)
-                .eq("deleted", 0)
-                .apply("DATE(acquire_time) = CURDATE()");
+        return hasTodayRecords(username, LocalDate.now());
+    }
 
-        Long count = assetRecordMapper.selectCount(wrapper);
-        boolean hasRecords = count > 0;
-        log.info("用户 {} 今日记录检查: {} 条", username, count);
+    /**
+     * "今日"统一取应用时钟：新记录的登记时间同样取自应用时钟，record_day 随之落在这一天
+     * 读写今日记录的 SQL 均传入该日期，不使用数据库的 CURDATE()，避免两边时区或跨零点时不一致
+     */
+    private boolean hasTodayRecords(String username, LocalDate today) {
+        boolean hasRecords = assetDateIndexService.hasRecordsOn(username, today);
+        log.debug("用户 {} 今日记录检查: {}", username, hasRecords);
         return hasRecords;
     }
 
+    /**
+     * 发布记录变更事件，事务提交后刷新数据版本
+     */
+    private void publishChange(String username, Set<LocalDate> dates, Set<Long> recordIds) {
+        eventPublisher.publishEvent(RecordChangeEvent.builder()
+                .domain(DataDomain.ASSET)
+                .username(username)
+                .dates(dates)
+                .recordIds(recordIds)
+                .build());
+    }
+
+    private static Set<LocalDate> dateSet(LocalDateTime... times) {
+        Set<LocalDate> dates = new HashSet<>();
+        for (LocalDateTime time : times) {
+            if (time != null) {
+                dates.add(time.toLocalDate());
+            }
+        }
+        return dates;
+    }
+
     private AssetRecord convertToEntity(AssetRecordDTO dto, String createUser, LocalDateTime now) {
         AssetRecord record = new AssetRecord();
         record.setAssetNameId(dto.getAssetNameId());
@@ -756,7 +817,6 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             return;
         }
 
-        log.info("开始批量插入 {} 条记录", records.size());
         int batchSize = 100;
         for (int i = 0; i < records.size(); i += batchSize) {
             int end = Math.min(i + batchSize, records.size());
@@ -767,11 +827,11 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             }
             log.debug("批次插入完成: {}-{}", i + 1, end);
         }
-        log.info("批量插入完成，总计: {} 条记录", records.size());
+        log.debug("批量插入完成，总计: {} 条记录", records.size());
     }
 
     private String buildResultMessage(boolean overwrote, boolean copied, int updateCount,
-                                      int addCount) {
+                                      int addCount, int deleteCount, int unchangedCount) {
         StringBuilder message = new StringBuilder("批量操作完成：");
 
         if (copied) {
@@ -793,111 +853,31 @@ public class AssetRecordServiceImpl implements AssetRecordService {
             message.append(String.format("新增%d条", addCount));
         }
 
-        return message.toString();
-    }
-
-    /**
-     * 查找统计日期
-     */
-    private String findStatisticsDate(String createUser, Integer offset) {
-        QueryWrapper<AssetRecord> dateWrapper = new QueryWrapper<>();
-        dateWrapper.select("DATE(acquire_time) as date_only")
-                .eq("create_user", createUser)
-                .eq("deleted", 0)
-                .groupBy("DATE(acquire_time)")
-                .orderByDesc("date_only");
-
-        if (offset > 0) {
-            dateWrapper.last("LIMIT " + offset + ", 1");
-        } else {
-            dateWrapper.last("LIMIT 1");
-        }
-
-        Map<String, Object> dateResult = assetRecordMapper.selectMaps(dateWrapper).stream()
-                .findFirst().orElse(null);
-        return dateResult != null ? dateResult.get("date_only").toString() : null;
-    }
-
-    /**
-     * 查找前一个日期
-     */
-    private String findPreviousDate(String createUser, String currentDate) {
-        QueryWrapper<AssetRecord> previousWrapper = new QueryWrapper<>();
-        previousWrapper.select("DATE(acquire_time) as date_only")
-                .eq("create_user", createUser)
-                .eq("deleted", 0)
-                .lt("DATE(acquire_time)", currentDate)
-                .orderByDesc("acquire_time")
-                .last("LIMIT 1");
-
-        return assetRecordMapper.selectMaps(previousWrapper).stream()
-                .findFirst()
-                .map(m -> m.get("date_only").toString())
-                .orElse(null);
-    }
-
-    /**
-     * 计算资产统计
-     */
-    private AssetStats calculateStats(List<AssetRecord> records) {
-        BigDecimal totalAssets = BigDecimal.ZERO;
-        BigDecimal totalLiabilities = BigDecimal.ZERO;
-        BigDecimal investmentAssets = BigDecimal.ZERO;  // 新增：理财资产
-        Map<Long, BigDecimal> typeAmounts = new HashMap<>();
-
-        log.info("🔍 开始计算资产统计，记录数: {}", records.size());
-
-        // 按类型累加金额
-        for (AssetRecord record : records) {
-            typeAmounts.merge(record.getAssetTypeId(), record.getAmount(), BigDecimal::add);
+        if (deleteCount > 0) {
+            if (updateCount > 0 || addCount > 0) {
+                message.append("，");
+            }
+            message.append(String.format("删除%d条", deleteCount));
         }
 
-        log.info("🔍 按类型汇总完成，类型数: {}", typeAmounts.size());
-
-        // 按类型统计资产和负债
-        for (Map.Entry<Long, BigDecimal> entry : typeAmounts.entrySet()) {
-            CommonMeta type = commonMetaService.getById(entry.getKey());
-
-            if (type != null && "ASSET_TYPE".equals(type.getTypeCode())) {
-                String key1 = type.getKey1();
-                BigDecimal amount = entry.getValue();
-
-                log.debug("🔍 处理类型 ID: {}, key1: '{}', value1: '{}', 金额: {}",
-                        entry.getKey(), key1, type.getValue1(), amount);
-
-                if ("DEBT".equals(key1)) {
-                    // 负债类型
-                    totalLiabilities = totalLiabilities.add(amount);
-                    log.debug("  ✅ 归类为负债");
-                } else {
-                    // 非负债类型都计入总资产
-                    totalAssets = totalAssets.add(amount);
-                    log.debug("  ✅ 归类为资产");
-
-                    // 检查是否为理财资产
-                    if ("FUND".equals(key1) || "FINANCE".equals(key1) || "STOCK".equals(key1)) {
-                        investmentAssets = investmentAssets.add(amount);
-                        log.debug("  💰 同时归类为理财资产");
-                    }
-                }
-            } else {
-                log.warn("🔍 未找到类型 ID: {} 或类型不是 ASSET_TYPE，默认归为资产", entry.getKey());
-                totalAssets = totalAssets.add(entry.getValue());
+        if (unchangedCount > 0) {
+            if (updateCount > 0 || addCount > 0 || deleteCount > 0) {
+                message.append("，");
             }
+            message.append(String.format("未变化%d条", unchangedCount));
         }
 
-        log.info("🔍 统计计算完成 - 总资产: {}, 总负债: {}, 理财资产: {}",
-                totalAssets, totalLiabilities, investmentAssets);
-
-        return new AssetStats(totalAssets, totalLiabilities, investmentAssets);
+        return message.toString();
     }
 
     /**
-     * 资产统计内部类 - 新增理财资产字段
-     *
-     * @param investmentAssets 新增
+     * 资产统计内部类，金额为定点最小单位
      */
-        private record AssetStats(BigDecimal totalAssets, BigDecimal totalLiabilities, BigDecimal investmentAssets) {
+    private record AssetStats(long totalAssets, long totalLiabilities, long investmentAssets) {
+        static AssetStats of(BigDecimal assets, BigDecimal liabilities, BigDecimal investment) {
+            return new AssetStats(FixedPointAmount.toMinorUnits(assets), FixedPointAmount.toMinorUnits(liabilities),
+                    FixedPointAmount.toMinorUnits(investment));
+        }
     }
 
     @Override
@@ -905,58 +885,168 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     public AssetStatsDTO getLatestStats(String createUser, Integer offset) {
         log.debug("获取用户 {} 的资产统计, 偏移天数: {}", createUser, offset);
 
-        // 找到指定偏移日期的记录日期
-        String latestDate = findStatisticsDate(createUser, offset);
-        if (latestDate == null) {
-            log.info("未找到任何记录，返回零值统计");
+        // 统计日与上一记录日由日期索引直接定位
+        int dayOffset = offset != null ? Math.max(offset, 0) : 0;
+        LocalDate latest = assetDateIndexService.dateAt(createUser, dayOffset);
+        if (latest == null) {
+            log.debug("未找到任何记录，返回零值统计");
             return AssetStatsDTO.builder()
-                    .netAssets(0.0)
-                    .totalLiabilities(0.0)
-                    .investmentAssets(0.0)
+                    .netAssets(BigDecimal.ZERO)
+                    .totalLiabilities(BigDecimal.ZERO)
+                    .investmentAssets(BigDecimal.ZERO)
                     .latestDate(LocalDateTime.now().toString())
                     .build();
         }
+        LocalDate previous = assetDateIndexService.dateAt(createUser, dayOffset + 1);
+        String latestDate = latest.toString();
 
-        // 获取最新日期的资产记录
-        List<AssetRecord> latestRecords = getRecordsByDate(createUser, latestDate);
-
-        // 获取上一个日期的资产记录
-        String previousDate = findPreviousDate(createUser, latestDate);
-        List<AssetRecord> previousRecords = previousDate != null ?
-                getRecordsByDate(createUser, previousDate) : new ArrayList<>();
+        // 一次查询得到两天的分类合计
+        AssetDailyTotalsDTO totals = assetRecordMapper.selectDailyTotals(createUser, latest, previous);
 
-        // 计算统计数据
-        AssetStats latestStats = calculateStats(latestRecords);
-        AssetStats previousStats = calculateStats(previousRecords);
+        AssetStats latestStats = AssetStats.of(totals.getLatestAssets(), totals.getLatestLiabilities(),
+                totals.getLatestInvestment());
+        AssetStats previousStats = AssetStats.of(totals.getPreviousAssets(), totals.getPreviousLiabilities(),
+                totals.getPreviousInvestment());
 
-        // 🔥 修复：净资产 = totalAssets（因为 totalAssets 已经排除了负债）
-        BigDecimal latestNetAssets = latestStats.totalAssets;
-        BigDecimal previousNetAssets = previousStats.totalAssets;
+        // 净资产 = totalAssets（totalAssets 已经排除了负债）
+        long latestNetAssets = latestStats.totalAssets();
+        long previousNetAssets = previousStats.totalAssets();
 
         // 计算变化额
-        BigDecimal netAssetsChange = latestNetAssets.subtract(previousNetAssets);
-        BigDecimal liabilitiesChange = latestStats.totalLiabilities.subtract(previousStats.totalLiabilities);
-        BigDecimal investmentAssetsChange = latestStats.investmentAssets.subtract(previousStats.investmentAssets);
+        long netAssetsChange = Math.subtractExact(latestNetAssets, previousNetAssets);
+        long liabilitiesChange = Math.subtractExact(latestStats.totalLiabilities(), previousStats.totalLiabilities());
+        long investmentAssetsChange = Math.subtractExact(latestStats.investmentAssets(), previousStats.investmentAssets());
 
         // 格式化日期显示
         String formattedDate = formatDate(latestDate);
 
-        log.info("计算完成 - 净资产: {}, 总负债: {}, 理财资产: {}, 净资产变化: {}, 负债变化: {}, 理财资产变化: {}",
-                latestNetAssets, latestStats.totalLiabilities, latestStats.investmentAssets,
+        log.debug("计算完成 - 净资产: {}, 总负债: {}, 理财资产: {}, 净资产变化: {}, 负债变化: {}, 理财资产变化: {}",
+                latestNetAssets, latestStats.totalLiabilities(), latestStats.investmentAssets(),
                 netAssetsChange, liabilitiesChange, investmentAssetsChange);
 
         return AssetStatsDTO.builder()
-                .netAssets(latestNetAssets.doubleValue())
-                .totalLiabilities(latestStats.totalLiabilities.doubleValue())
-                .investmentAssets(latestStats.investmentAssets.doubleValue())
+                .netAssets(FixedPointAmount.toAmount(latestNetAssets))
+                .totalLiabilities(FixedPointAmount.toAmount(latestStats.totalLiabilities()))
+                .investmentAssets(FixedPointAmount.toAmount(latestStats.investmentAssets()))
                 .latestDate(latestDate)
+                .previousDate(previous != null ? previous.toString() : null)
                 .formattedDate(formattedDate)
-                .netAssetsChange(netAssetsChange.doubleValue())
-                .liabilitiesChange(liabilitiesChange.doubleValue())
-                .investmentAssetsChange(investmentAssetsChange.doubleValue())
+                .netAssetsChange(FixedPointAmount.toAmount(netAssetsChange))
+                .liabilitiesChange(FixedPointAmount.toAmount(liabilitiesChange))
+                .investmentAssetsChange(FixedPointAmount.toAmount(investmentAssetsChange))
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AssetSeriesDTO getSeries(String createUser, String startDate, String endDate, String granularity,
+                                    List<Long> assetNameIdList, List<Long> assetLocationIdList,
+                                    List<Long> assetTypeIdList) {
+        String bucket = StringUtils.isBlank(granularity) ? "day" : granularity.trim().toLowerCase();
+        if (!SERIES_GRANULARITIES.contains(bucket)) {
+            throw new RuntimeException("不支持的聚合粒度：" + granularity);
+        }
+        LocalDate start = parseDay(startDate);
+        LocalDate end = parseDay(endDate);
+
+        List<AssetSeriesRowDTO> rows = assetRecordMapper.selectSeries(createUser, start,
+                end != null ? end.plusDays(1) : null, bucket, assetNameIdList, assetLocationIdList, assetTypeIdList);
+
+        // 按 epochDay 与维度ID 定点累加，最后统一转换为 名称 -> (日期 -> 金额)
+        LongLongHashMap total = new LongLongHashMap(64);
+        DimensionSeries byName = new DimensionSeries("资产");
+        DimensionSeries byType = new DimensionSeries("类型");
+        DimensionSeries byLocation = new DimensionSeries("位置");
+
+        for (AssetSeriesRowDTO row : rows) {
+            long amount = FixedPointAmount.toMinorUnits(row.getAmount());
+            if (amount == 0L) {
+                continue;
+            }
+            long day = row.getBucketDate().toEpochDay();
+            total.addTo(day, amount);
+            byName.add(row.getAssetNameId(), row.getAssetName(), day, amount);
+            byType.add(row.getAssetTypeId(), row.getAssetTypeName(), day, amount);
+            byLocation.add(row.getAssetLocationId(), row.getAssetLocationName(), day, amount);
+        }
+
+        long[] days = total.sortedKeys();
+        List<String> dates = new ArrayList<>(days.length);
+        Map<String, BigDecimal> totalByDate = new LinkedHashMap<>();
+        for (long day : days) {
+            String date = LocalDate.ofEpochDay(day).toString();
+            dates.add(date);
+            totalByDate.put(date, FixedPointAmount.toAmount(total.get(day, 0L)));
+        }
+
+        log.debug("资产趋势聚合完成，用户: {}, 粒度: {}, 聚合行: {}, 时间桶: {}", createUser, bucket, rows.size(), days.length);
+
+        return AssetSeriesDTO.builder()
+                .granularity(bucket)
+                .dates(dates)
+                .total(totalByDate)
+                .byName(byName.toSeries(days, dates))
+                .byType(byType.toSeries(days, dates))
+                .byLocation(byLocation.toSeries(days, dates))
                 .build();
     }
 
+    /**
+     * 单个维度的趋势累加：维度ID -> (epochDay -> 定点金额)
+     */
+    private static final class DimensionSeries {
+        private final String prefix;
+        private final Map<Long, LongLongHashMap> amounts = new HashMap<>();
+        private final Map<Long, String> names = new HashMap<>();
+
+        DimensionSeries(String prefix) {
+            this.prefix = prefix;
+        }
+
+        void add(Long id, String name, long day, long amount) {
+            long key = id != null ? id : 0L;
+            amounts.computeIfAbsent(key, k -> new LongLongHashMap()).addTo(day, amount);
+            names.putIfAbsent(key, StringUtils.isNotBlank(name) ? name : prefix + id);
+        }
+
+        /**
+         * 转换为 名称 -> (日期 -> 金额)，同名维度合并；日期字符串复用 days 对应的 dates，不逐点生成
+         */
+        Map<String, Map<String, BigDecimal>> toSeries(long[] days, List<String> dates) {
+            Map<String, LongLongHashMap> byDisplayName = new TreeMap<>();
+            // 名称唯一时直接沿用该维度的累加表，只有同名维度才合并到首个表中
+            amounts.forEach((id, byDay) -> byDisplayName.merge(names.get(id), byDay, (merged, other) -> {
+                other.forEach(merged::addTo);
+                return merged;
+            }));
+
+            Map<String, Map<String, BigDecimal>> series = new LinkedHashMap<>();
+            byDisplayName.forEach((name, byDay) -> {
+                Map<String, BigDecimal> points = new LinkedHashMap<>();
+                for (long day : byDay.sortedKeys()) {
+                    points.put(dates.get(Arrays.binarySearch(days, day)), FixedPointAmount.toAmount(byDay.get(day, 0L)));
+                }
+                series.put(name, points);
+            });
+            return series;
+        }
+    }
+
+    /**
+     * 解析日期参数，兼容 yyyy-MM-dd 与带时间的格式
+     */
+    private static LocalDate parseDay(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return LocalDate.parse(trimmed.length() > 10 ? trimmed.substring(0, 10) : trimmed);
+        } catch (Exception e) {
+            throw new RuntimeException("日期格式错误：" + value);
+        }
+    }
+
     /**
      * 格式化日期
      */
@@ -970,6 +1060,7 @@ public class AssetRecordServiceImpl implements AssetRecordService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<AssetRecordDTO> listByConditions(List<Long> assetNameIdList,
                                                  List<Long> assetLocationIdList,
                                                  List<Long> assetTypeIdList,
@@ -990,10 +1081,13 @@ public class AssetRecordServiceImpl implements AssetRecordService {
         if (remark != null && !remark.isBlank()) {
             wrapper.like("remark", remark);
         }
+        // record_day 为分区键，需同时作为条件才能裁剪分区
         if (startDate != null && !startDate.isBlank()) {
+            wrapper.apply("record_day >= CAST({0} AS DATE)", startDate);
             wrapper.ge("acquire_time", startDate);
         }
         if (endDate != null && !endDate.isBlank()) {
+            wrapper.apply("record_day <= CAST({0} AS DATE)", endDate);
             wrapper.le("acquire_time", endDate);
         }
         wrapper.eq("create_user", createUser);
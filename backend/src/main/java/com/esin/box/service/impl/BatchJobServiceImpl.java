@@ -0,0 +1,456 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.config.BatchJobProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.dto.AssetRecordDTO;
+import com.esin.box.dto.BatchAddAssetRequest;
+import com.esin.box.dto.BatchAddResult;
+import com.esin.box.dto.BatchChunkContext;
+import com.esin.box.dto.BatchJobStatusDTO;
+import com.esin.box.service.AssetRecordService;
+import com.esin.box.service.BatchJobService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 异步批量添加任务
+ * 任务状态保存在Redis哈希 batch_job:{id} 中，任意节点都可查询；
+ * 记录按 chunkSize 分块，每块一个事务，块之间释放行锁
+ * 执行节点持有租约 batch_job_lease:{id} 并定时续约，节点停止后租约过期，查询时判定任务失败并释放幂等键
+ */
+@Slf4j
+@Service
+public class BatchJobServiceImpl implements BatchJobService {
+
+    private static final String JOB_KEY_PREFIX = "batch_job:";
+    private static final String DEDUPE_KEY_PREFIX = "batch_job_key:";
+    private static final String LEASE_KEY_PREFIX = "batch_job_lease:";
+    private static final String STALE_ERROR = "执行任务的节点已停止，请重新提交";
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+    // 租约已过期且任务仍未结束时标记为失败；与执行节点写入最终状态互斥，已结束的任务不会被改写
+    private static final RedisScript<Long> MARK_STALE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 0 end "
+                    + "local status = redis.call('HGET', KEYS[1], 'status') "
+                    + "if status ~= 'PENDING' and status ~= 'RUNNING' then return 0 end "
+                    + "redis.call('HSET', KEYS[1], 'status', 'FAILED', 'error', ARGV[1], 'updateTime', ARGV[2]) "
+                    + "return 1", Long.class);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final AssetRecordService assetRecordService;
+    private final ThreadPoolTaskExecutor batchJobExecutor;
+    private final BatchJobProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService ssePoller;
+    private final ScheduledExecutorService leaseRenewer;
+    // 本节点的租约标识，以及本节点提交且尚未结束的任务
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+    private final Set<String> lostLeases = ConcurrentHashMap.newKeySet();
+
+    public BatchJobServiceImpl(AssetRecordService assetRecordService,
+                               @Qualifier("batchJobExecutor") ThreadPoolTaskExecutor batchJobExecutor,
+                               BatchJobProperties properties,
+                               StringRedisTemplate redisTemplate,
+                               RedisCommandExecutor redisCommandExecutor,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry) {
+        this.assetRecordService = assetRecordService;
+        this.batchJobExecutor = batchJobExecutor;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ssePoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-job-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.leaseRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-job-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewMillis = Math.max(1, properties.getLeaseTime().toMillis() / 3);
+        leaseRenewer.scheduleAtFixedRate(this::renewLeases, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ssePoller.shutdownNow();
+        leaseRenewer.shutdownNow();
+    }
+
+    @Override
+    public String submit(BatchAddAssetRequest request, String username, String idempotencyKey) {
+        List<AssetRecordDTO> records = request.getRecords();
+        if (records == null || records.isEmpty()) {
+            throw new RuntimeException("记录列表不能为空");
+        }
+
+        String key = StringUtils.hasText(idempotencyKey) ? idempotencyKey : contentKey(request);
+        String dedupeKey = DEDUPE_KEY_PREFIX + username + ":" + key;
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        String existing = claimDedupeKey(dedupeKey, jobId);
+        if (existing != null) {
+            // 原任务的执行节点已停止时，判定失败并释放幂等键，允许重新提交
+            BatchJobStatusDTO status = readJob(existing);
+            if (status == null || !STALE_ERROR.equals(status.getError())) {
+                log.info("重复提交导入任务，返回已有任务: username={}, jobId={}", username, existing);
+                return existing;
+            }
+            existing = claimDedupeKey(dedupeKey, jobId);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        int chunkCount = (records.size() + properties.getChunkSize() - 1) / properties.getChunkSize();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("jobId", jobId);
+        fields.put("username", username);
+        fields.put("status", "PENDING");
+        fields.put("totalCount", String.valueOf(records.size()));
+        fields.put("processedCount", "0");
+        fields.put("chunkCount", String.valueOf(chunkCount));
+        fields.put("completedChunks", "0");
+        fields.put("createTime", now());
+        fields.put("updateTime", now());
+        fields.put("dedupeKey", dedupeKey);
+        writeJob(jobId, fields);
+        // 排队中的任务同样持有租约，节点停止时一并判定失败
+        redisCommandExecutor.run("batch-job", "SET", () -> redisTemplate.opsForValue()
+                .set(leaseKey(jobId), nodeId, properties.getLeaseTime()));
+        activeJobs.add(jobId);
+
+        try {
+            batchJobExecutor.execute(() -> runJob(jobId, dedupeKey, request, username));
+        } catch (TaskRejectedException e) {
+            activeJobs.remove(jobId);
+            redisCommandExecutor.run("batch-job", "DEL", () ->
+                    redisTemplate.delete(List.of(dedupeKey, jobKey(jobId), leaseKey(jobId))));
+            countJob("rejected");
+            throw new RuntimeException("导入任务过多，请稍后重试");
+        }
+        log.info("提交导入任务: username={}, jobId={}, 记录数: {}, 批次数: {}", username, jobId, records.size(), chunkCount);
+        return jobId;
+    }
+
+    /**
+     * 抢占幂等键，成功返回 null；已被占用时返回占用的任务ID
+     */
+    private String claimDedupeKey(String dedupeKey, String jobId) {
+        Boolean claimed = redisCommandExecutor.execute("batch-job", "SETNX", () ->
+                redisTemplate.opsForValue().setIfAbsent(dedupeKey, jobId, properties.getDedupeWindow()));
+        if (Boolean.TRUE.equals(claimed)) {
+            return null;
+        }
+        return redisCommandExecutor.execute("batch-job", "GET", () -> redisTemplate.opsForValue().get(dedupeKey));
+    }
+
+    @Override
+    public BatchJobStatusDTO getStatus(String jobId, String username) {
+        BatchJobStatusDTO status = readOwnedJob(jobId, username);
+        if (status == null) {
+            throw new RuntimeException("导入任务不存在或已过期");
+        }
+        return status;
+    }
+
+    @Override
+    public SseEmitter subscribe(String jobId, String username) {
+        BatchJobStatusDTO initial = getStatus(jobId, username);
+        SseEmitter emitter = new SseEmitter(properties.getSseTimeout().toMillis());
+        AtomicReference<String> lastState = new AtomicReference<>();
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+
+        Runnable push = () -> {
+            try {
+                BatchJobStatusDTO status = readJob(jobId);
+                if (status == null) {
+                    emitter.completeWithError(new RuntimeException("导入任务不存在或已过期"));
+                    return;
+                }
+                // 状态或已完成批次变化时才推送
+                String state = status.getStatus() + ":" + status.getCompletedChunks();
+                if (!state.equals(lastState.getAndSet(state))) {
+                    emitter.send(SseEmitter.event().name("progress").data(status));
+                }
+                if (status.isFinished()) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                // 客户端已断开
+                emitter.completeWithError(e);
+            } catch (Exception e) {
+                log.warn("推送导入任务进度失败: jobId={}", jobId, e);
+            }
+        };
+        Runnable cancel = () -> {
+            ScheduledFuture<?> future = task.get();
+            if (future != null) {
+                future.cancel(false);
+            }
+        };
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(e -> cancel.run());
+
+        if (initial.isFinished()) {
+            push.run();
+        } else {
+            task.set(ssePoller.scheduleWithFixedDelay(push, 0, properties.getSsePollMillis(), TimeUnit.MILLISECONDS));
+        }
+        return emitter;
+    }
+
+    private void runJob(String jobId, String dedupeKey, BatchAddAssetRequest request, String username) {
+        List<AssetRecordDTO> records = request.getRecords();
+        updateJob(jobId, Map.of("status", "RUNNING"));
+        int processed = 0;
+        int completedChunks = 0;
+        try {
+            assetRecordService.validateBatchRecords(records, request.isForceOverwrite(), username);
+
+            BatchChunkContext context = new BatchChunkContext(username, request.isForceOverwrite(),
+                    request.isCopyLast(), records.size());
+            List<List<AssetRecordDTO>> chunks = Lists.partition(records, properties.getChunkSize());
+            BatchAddResult result = null;
+            for (int i = 0; i < chunks.size(); i++) {
+                if (lostLeases.contains(jobId)) {
+                    // 租约已过期，任务可能已被判定失败并重新提交，不再继续写入
+                    throw new RuntimeException("导入任务租约已失效，已停止执行");
+                }
+                context.setFirstChunk(i == 0);
+                context.setLastChunk(i == chunks.size() - 1);
+                result = applyWithRetry(jobId, chunks.get(i), context);
+                processed += chunks.get(i).size();
+                completedChunks++;
+                updateJob(jobId, Map.of(
+                        "processedCount", String.valueOf(processed),
+                        "completedChunks", String.valueOf(completedChunks),
+                        "result", toJson(result)));
+            }
+
+            updateJob(jobId, Map.of("status", "SUCCEEDED"));
+            countJob("succeeded");
+            log.info("导入任务完成: username={}, jobId={}, {}", username, jobId, result != null ? result.getMessage() : "");
+        } catch (Exception e) {
+            // 已提交的批次保留，再次提交相同内容时按编号匹配更新，不会重复新增
+            log.error("导入任务失败: username={}, jobId={}, 已提交批次: {}", username, jobId, completedChunks, e);
+            updateJob(jobId, Map.of("status", "FAILED", "error", String.valueOf(e.getMessage())));
+            countJob("failed");
+            // 失败的任务允许用相同内容重新提交
+            try {
+                redisCommandExecutor.run("batch-job", "DEL", () -> redisTemplate.delete(dedupeKey));
+            } catch (Exception ex) {
+                log.warn("清理导入任务幂等键失败: jobId={}", jobId, ex);
+            }
+        } finally {
+            // 最终状态写入后再释放租约，查询方不会把已结束的任务判定为失败
+            activeJobs.remove(jobId);
+            lostLeases.remove(jobId);
+            try {
+                redisCommandExecutor.execute("batch-job", "EVAL", () ->
+                        redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(jobId)), nodeId));
+            } catch (Exception e) {
+                log.warn("释放导入任务租约失败，等待过期: jobId={}, error={}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 为本节点未结束的任务续约；租约已丢失（Redis 长时间不可用或已被判定失败）的任务停止执行
+     */
+    private void renewLeases() {
+        String leaseMillis = String.valueOf(properties.getLeaseTime().toMillis());
+        for (String jobId : activeJobs) {
+            try {
+                Long renewed = redisCommandExecutor.execute("batch-job", "EVAL", () ->
+                        redisTemplate.execute(RENEW_SCRIPT, List.of(leaseKey(jobId)), nodeId, leaseMillis));
+                if (renewed == null || renewed == 0) {
+                    log.warn("导入任务租约已失效，停止执行: jobId={}", jobId);
+                    activeJobs.remove(jobId);
+                    lostLeases.add(jobId);
+                }
+            } catch (Exception e) {
+                log.warn("导入任务续约失败: jobId={}, error={}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 未结束的任务租约已过期（执行节点已停止）时标记为失败，并释放幂等键
+     */
+    private boolean markIfStale(String jobId, Map<Object, Object> entries) {
+        Long marked = redisCommandExecutor.execute("batch-job", "EVAL", () -> redisTemplate.execute(
+                MARK_STALE_SCRIPT, List.of(jobKey(jobId), leaseKey(jobId)), STALE_ERROR, now()));
+        if (marked == null || marked == 0) {
+            return false;
+        }
+        log.warn("导入任务的执行节点已停止，判定失败: jobId={}, 已完成批次: {}", jobId, entries.get("completedChunks"));
+        countJob("stale");
+        String dedupeKey = (String) entries.get("dedupeKey");
+        if (dedupeKey != null) {
+            redisCommandExecutor.execute("batch-job", "EVAL", () ->
+                    redisTemplate.execute(RELEASE_SCRIPT, List.of(dedupeKey), jobId));
+        }
+        return true;
+    }
+
+    /**
+     * 死锁、锁等待超时等可重试异常时重试当前批次；批次事务已回滚，任务状态未计入，重试是幂等的
+     */
+    private BatchAddResult applyWithRetry(String jobId, List<AssetRecordDTO> chunk, BatchChunkContext context)
+            throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return assetRecordService.applyBatchChunk(chunk, context);
+            } catch (TransientDataAccessException e) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    throw e;
+                }
+                log.warn("导入批次遇到可重试异常，第{}次重试: jobId={}, {}", attempt, jobId, e.getMessage());
+                Thread.sleep(200L * attempt);
+            }
+        }
+    }
+
+    private BatchJobStatusDTO readJob(String jobId) {
+        Map<Object, Object> entries = redisCommandExecutor.execute("batch-job", "HGETALL", () ->
+                redisTemplate.opsForHash().entries(jobKey(jobId)));
+        if (entries == null || entries.isEmpty()) {
+            return null;
+        }
+        Object current = entries.get("status");
+        if (("PENDING".equals(current) || "RUNNING".equals(current)) && markIfStale(jobId, entries)) {
+            entries = new HashMap<>(entries);
+            entries.put("status", "FAILED");
+            entries.put("error", STALE_ERROR);
+        }
+        BatchJobStatusDTO status = new BatchJobStatusDTO();
+        status.setJobId(jobId);
+        status.setStatus((String) entries.get("status"));
+        status.setTotalCount(intValue(entries.get("totalCount")));
+        status.setProcessedCount(intValue(entries.get("processedCount")));
+        status.setChunkCount(intValue(entries.get("chunkCount")));
+        status.setCompletedChunks(intValue(entries.get("completedChunks")));
+        status.setError((String) entries.get("error"));
+        status.setCreateTime((String) entries.get("createTime"));
+        status.setUpdateTime((String) entries.get("updateTime"));
+        String result = (String) entries.get("result");
+        if (result != null) {
+            try {
+                status.setResult(objectMapper.readValue(result, BatchAddResult.class));
+            } catch (JsonProcessingException e) {
+                log.warn("解析导入任务结果失败: jobId={}", jobId, e);
+            }
+        }
+        return status;
+    }
+
+    private BatchJobStatusDTO readOwnedJob(String jobId, String username) {
+        String owner = redisCommandExecutor.execute("batch-job", "HGET", () ->
+                (String) redisTemplate.opsForHash().get(jobKey(jobId), "username"));
+        if (owner == null || !owner.equals(username)) {
+            return null;
+        }
+        return readJob(jobId);
+    }
+
+    private void writeJob(String jobId, Map<String, String> fields) {
+        String key = jobKey(jobId);
+        redisCommandExecutor.run("batch-job", "HSET", () -> redisTemplate.opsForHash().putAll(key, fields));
+        redisCommandExecutor.run("batch-job", "EXPIRE", () -> redisTemplate.expire(key, properties.getJobTtl()));
+    }
+
+    private void updateJob(String jobId, Map<String, String> fields) {
+        Map<String, String> values = new HashMap<>(fields);
+        values.put("updateTime", now());
+        try {
+            writeJob(jobId, values);
+        } catch (Exception e) {
+            log.error("更新导入任务状态失败: jobId={}, fields={}", jobId, fields.keySet(), e);
+        }
+    }
+
+    /**
+     * 未提供幂等键时，以请求内容的摘要作为幂等键
+     */
+    private String contentKey(BatchAddAssetRequest request) {
+        return Hashing.murmur3_128().hashString(toJson(request), StandardCharsets.UTF_8).toString();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化导入任务数据失败：" + e.getMessage());
+        }
+    }
+
+    private void countJob(String outcome) {
+        Counter.builder("box.batch.jobs")
+                .description("异步导入任务数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static int intValue(Object value) {
+        return value != null ? Integer.parseInt((String) value) : 0;
+    }
+
+    // 哈希标签保证任务状态与租约在 Redis Cluster 的同一槽位
+    private static String jobKey(String jobId) {
+        return JOB_KEY_PREFIX + "{" + jobId + "}";
+    }
+
+    private static String leaseKey(String jobId) {
+        return LEASE_KEY_PREFIX + "{" + jobId + "}";
+    }
+
+    private static String now() {
+        return LocalDateTime.now().format(TIME_FORMATTER);
+    }
+}
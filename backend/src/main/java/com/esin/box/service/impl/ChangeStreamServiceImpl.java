@@ -0,0 +1,211 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.config.ChangeStreamProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.dto.RecordChangeNoticeDTO;
+import com.esin.box.event.RecordChangeEvent;
+import com.esin.box.service.ChangeStreamService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户数据变更推送：事务提交后把变更摘要发布到 Redis 频道，各节点订阅后推送给本机上该用户的 SSE 连接
+ * Redis 不可用时只推送本机连接，其他节点的客户端在重连后自行刷新
+ */
+@Slf4j
+@Service
+public class ChangeStreamServiceImpl implements ChangeStreamService, MessageListener {
+
+    private final ChangeStreamProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Deque<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChangeStreamServiceImpl(ChangeStreamProperties properties, StringRedisTemplate redisTemplate,
+                                   RedisCommandExecutor redisCommandExecutor,
+                                   RedisMessageListenerContainer listenerContainer, ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        long interval = properties.getHeartbeatInterval().toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, interval, interval, TimeUnit.MILLISECONDS);
+        Gauge.builder("box.change-stream.connections", emitters,
+                        map -> map.values().stream().mapToInt(Deque::size).sum())
+                .description("本节点上的变更推送连接数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        emitters.values().forEach(connections -> connections.forEach(SseEmitter::complete));
+        emitters.clear();
+    }
+
+    @Override
+    public SseEmitter subscribe(String username) {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Deque<SseEmitter> connections = emitters.compute(username, (key, existing) -> {
+            Deque<SseEmitter> deque = existing != null ? existing : new ConcurrentLinkedDeque<>();
+            deque.addLast(emitter);
+            return deque;
+        });
+        while (connections.size() > properties.getMaxConnectionsPerUser()) {
+            SseEmitter oldest = connections.pollFirst();
+            if (oldest != null) {
+                oldest.complete();
+            }
+        }
+
+        Runnable remove = () -> remove(username, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        try {
+            // 客户端收到 ready 后可按需补拉断线期间错过的变更
+            emitter.send(SseEmitter.event().name("ready").data("ok"));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * 需在数据版本刷新之后执行，保证客户端收到通知后重新请求时拿到的是新版本的ETag
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        RecordChangeNoticeDTO notice = new RecordChangeNoticeDTO(event.getDomain().getCode(),
+                event.getDates().stream().sorted().map(LocalDate::toString).toList(),
+                event.getRecordIds().stream().sorted().toList());
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new Envelope(event.getUsername(), notice));
+        } catch (JsonProcessingException e) {
+            log.error("序列化变更通知失败: username={}, domain={}", event.getUsername(), event.getDomain(), e);
+            return;
+        }
+
+        try {
+            redisCommandExecutor.run("change-stream", "PUBLISH", () ->
+                    redisTemplate.convertAndSend(properties.getChannel(), payload));
+            count("redis");
+        } catch (RuntimeException e) {
+            log.warn("发布变更通知失败，仅推送本机连接: username={}, error={}", event.getUsername(), e.getMessage());
+            count("local");
+            deliver(event.getUsername(), notice);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Envelope envelope = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8),
+                    Envelope.class);
+            deliver(envelope.getUsername(), envelope.getNotice());
+        } catch (IOException e) {
+            log.warn("解析变更通知失败: error={}", e.getMessage());
+        }
+    }
+
+    private void deliver(String username, RecordChangeNoticeDTO notice) {
+        Deque<SseEmitter> connections = emitters.get(username);
+        if (connections == null) {
+            return;
+        }
+        for (SseEmitter emitter : connections) {
+            try {
+                emitter.send(SseEmitter.event().name("change").data(notice));
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开
+                emitter.completeWithError(e);
+                remove(username, emitter);
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        emitters.forEach((username, connections) -> {
+            for (SseEmitter emitter : connections) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                    remove(username, emitter);
+                }
+            }
+        });
+    }
+
+    private void remove(String username, SseEmitter emitter) {
+        emitters.computeIfPresent(username, (key, connections) -> {
+            connections.remove(emitter);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    private void count(String route) {
+        Counter.builder("box.change-stream.published")
+                .description("已发布的数据变更通知")
+                .tag("route", route)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Envelope {
+        private String username;
+        private RecordChangeNoticeDTO notice;
+    }
+}
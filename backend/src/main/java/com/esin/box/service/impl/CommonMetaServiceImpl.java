@@ -7,6 +7,7 @@ import com.esin.box.entity.CommonMeta;
 import com.esin.box.mapper.CommonMetaMapper;
 import com.esin.box.service.CommonMetaService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -16,6 +17,7 @@ import java.util.List;
 public class CommonMetaServiceImpl extends ServiceImpl<CommonMetaMapper, CommonMeta> implements CommonMetaService {
 
     @Override
+    @Transactional(readOnly = true)
     public List<CommonMeta> queryByFields(List<CommonMetaDTO> commonMetaDTOList) {
         if (CollectionUtils.isEmpty(commonMetaDTOList)) {
             throw new IllegalArgumentException("请求参数不能为空");
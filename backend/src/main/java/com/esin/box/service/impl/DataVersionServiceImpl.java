@@ -0,0 +1,74 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.event.DataDomain;
+import com.esin.box.event.RecordChangeEvent;
+import com.esin.box.service.DataVersionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 基于Redis的用户数据版本
+ * 版本键缺失时以当前毫秒时间戳初始化，保证Redis数据丢失后新版本不会与旧ETag重复
+ */
+@Slf4j
+@Service
+public class DataVersionServiceImpl implements DataVersionService {
+
+    private static final String KEY_PREFIX = "data_version:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCommandExecutor redisCommandExecutor;
+
+    public DataVersionServiceImpl(StringRedisTemplate redisTemplate, RedisCommandExecutor redisCommandExecutor) {
+        this.redisTemplate = redisTemplate;
+        this.redisCommandExecutor = redisCommandExecutor;
+    }
+
+    @Override
+    public long currentVersion(String username, DataDomain domain) {
+        String key = versionKey(username, domain);
+        String value = redisCommandExecutor.execute("data-version", "GET", () -> redisTemplate.opsForValue().get(key));
+        if (value == null) {
+            String seed = String.valueOf(System.currentTimeMillis());
+            redisCommandExecutor.run("data-version", "SETNX", () -> redisTemplate.opsForValue().setIfAbsent(key, seed));
+            value = redisCommandExecutor.execute("data-version", "GET", () -> redisTemplate.opsForValue().get(key));
+        }
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    @Override
+    public void bump(String username, DataDomain domain) {
+        String key = versionKey(username, domain);
+        Long version = redisCommandExecutor.execute("data-version", "INCR", () -> redisTemplate.opsForValue().increment(key));
+        if (version != null && version == 1L) {
+            // 键此前不存在，重新以时间戳作为版本起点
+            String seed = String.valueOf(System.currentTimeMillis());
+            redisCommandExecutor.run("data-version", "SET", () -> redisTemplate.opsForValue().set(key, seed));
+        }
+    }
+
+    /**
+     * 在变更推送之前执行，客户端收到推送后重新请求即可拿到新版本
+     */
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecordChange(RecordChangeEvent event) {
+        try {
+            bump(event.getUsername(), event.getDomain());
+            if (event.getDomain() == DataDomain.ASSET_NAME) {
+                // 资产记录列表关联展示资产名称
+                bump(event.getUsername(), DataDomain.ASSET);
+            }
+        } catch (Exception e) {
+            log.error("更新数据版本失败: username={}, domain={}", event.getUsername(), event.getDomain(), e);
+        }
+    }
+
+    private String versionKey(String username, DataDomain domain) {
+        return KEY_PREFIX + domain.getCode() + ":" + username;
+    }
+}
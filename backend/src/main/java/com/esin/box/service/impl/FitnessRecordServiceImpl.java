@@ -8,13 +8,20 @@ import com.esin.box.converter.FitnessRecordConverter;
 import com.esin.box.dto.FitnessRecordDTO;
 import com.esin.box.dto.FitnessStatsDTO;
 import com.esin.box.entity.FitnessRecord;
+import com.esin.box.event.DataDomain;
+import com.esin.box.event.RecordChangeEvent;
 import com.esin.box.mapper.FitnessRecordMapper;
 import com.esin.box.service.FitnessRecordService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -26,11 +33,15 @@ public class FitnessRecordServiceImpl implements FitnessRecordService {
     @Autowired
     private FitnessRecordConverter fitnessRecordConverter;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public void addRecord(FitnessRecord record) {
         // 设置创建人
         record.setCreateUser(UserContextHolder.getCurrentUsername());
         fitnessRecordMapper.insert(record);
+        publishChange(record.getCreateUser(), record.getId(), record.getFinishTime());
     }
 
     @Override
@@ -42,6 +53,8 @@ public class FitnessRecordServiceImpl implements FitnessRecordService {
             throw new RuntimeException("您没有权限修改此记录");
         }
         fitnessRecordMapper.updateById(record);
+        publishChange(currentUser, record.getId(), existing != null ? existing.getFinishTime() : null,
+                record.getFinishTime());
     }
 
     @Override
@@ -53,6 +66,7 @@ public class FitnessRecordServiceImpl implements FitnessRecordService {
             throw new RuntimeException("您没有权限删除此记录");
         }
         fitnessRecordMapper.deleteById(id);
+        publishChange(currentUser, id, existing != null ? existing.getFinishTime() : null);
     }
 
     @Override
@@ -77,6 +91,7 @@ public class FitnessRecordServiceImpl implements FitnessRecordService {
 
 
     @Override
+    @Transactional(readOnly = true)
     public List<FitnessRecordDTO> listByConditions(List<Long> typeIdList, String remark, String startDate, String endDate, String username) {
         QueryWrapper<FitnessRecord> wrapper = buildQueryWrapper(typeIdList, remark, startDate, endDate, username);
         List<FitnessRecord> entities = fitnessRecordMapper.selectList(wrapper);
@@ -91,14 +106,35 @@ public class FitnessRecordServiceImpl implements FitnessRecordService {
         if (remark != null && !remark.isBlank()) {
             wrapper.like("remark", remark);
         }
+        // record_day 为分区键，需同时作为条件才能裁剪分区
         if (startDate != null && !startDate.isBlank()) {
+            wrapper.apply("record_day >= CAST({0} AS DATE)", startDate);
             wrapper.ge("finish_time", startDate);
         }
         if (endDate != null && !endDate.isBlank()) {
+            wrapper.apply("record_day <= CAST({0} AS DATE)", endDate);
             wrapper.le("finish_time", endDate);
         }
         wrapper.eq("create_user", username);
         wrapper.orderByDesc("finish_time");
         return wrapper;
     }
+
+    /**
+     * 发布记录变更事件，事务提交后刷新数据版本
+     */
+    private void publishChange(String username, Long recordId, LocalDateTime... finishTimes) {
+        Set<LocalDate> dates = new HashSet<>();
+        for (LocalDateTime time : finishTimes) {
+            if (time != null) {
+                dates.add(time.toLocalDate());
+            }
+        }
+        eventPublisher.publishEvent(RecordChangeEvent.builder()
+                .domain(DataDomain.FITNESS)
+                .username(username)
+                .dates(dates)
+                .recordIds(recordId != null ? Set.of(recordId) : Set.of())
+                .build());
+    }
 }
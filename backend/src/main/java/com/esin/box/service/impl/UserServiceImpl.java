@@ -1,29 +1,77 @@
 package com.esin.box.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.deadline.RequestDeadline;
 import com.esin.box.entity.User;
 import com.esin.box.filter.JwtTokenProvider;
+import com.esin.box.filter.RefreshInProgressException;
 import com.esin.box.mapper.UserMapper;
 import com.esin.box.service.UserService;
+import com.google.common.hash.Hashing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 public class UserServiceImpl implements UserService {
 
+    // 刷新单飞：refresh_flight:<token摘要> 为占位，refresh_result:<token摘要> 缓存签发结果
+    private static final String REFRESH_FLIGHT_KEY_PREFIX = "refresh_flight:";
+    private static final String REFRESH_RESULT_KEY_PREFIX = "refresh_result:";
+    private static final long REFRESH_POLL_MILLIS = 50;
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
     @Autowired
     private UserMapper userMapper;
 
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private RedisCommandExecutor redisCommandExecutor;
+
+    @Value("${jwt.refresh-dedupe-window:10000}") // 10秒 并发刷新共享同一结果的时间窗口，也是等待首个请求签发的最长时间
+    private long refreshDedupeWindowInMs;
+
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
+    // 并发刷新的等待方不占用请求线程，由该线程轮询首个请求（可能在其他实例上）的签发结果
+    private final ScheduledExecutorService refreshPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "refresh-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        refreshPoller.shutdownNow();
+    }
+
     @Override
     public User findByUsername(String username) {
         return userMapper.selectOne(new QueryWrapper<User>().eq("username", username));
@@ -58,6 +106,129 @@ public class UserServiceImpl implements UserService {
         return tokens;
     }
 
+    @Override
+    public CompletableFuture<Map<String, String>> refreshTokens(String refreshToken) {
+        String flightId = Hashing.sha256().hashString(refreshToken, StandardCharsets.UTF_8).toString();
+        String flightKey = REFRESH_FLIGHT_KEY_PREFIX + flightId;
+        String resultKey = REFRESH_RESULT_KEY_PREFIX + flightId;
+        try {
+            Map<String, String> tokens = tryRefresh(refreshToken, flightKey, resultKey);
+            if (tokens != null) {
+                return CompletableFuture.completedFuture(tokens);
+            }
+            // 等到首个请求签发为止，最长为单飞窗口（即占位的有效期），且不超过本请求的时限
+            long waitMillis = Math.min(refreshDedupeWindowInMs, RequestDeadline.checkRemaining("等待Token刷新"));
+            CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+            scheduleRefreshPoll(future, refreshToken, flightKey, resultKey, System.currentTimeMillis() + waitMillis);
+            return future;
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 窗口内已签发过则返回同一令牌对，否则抢占单飞占位并签发；占位被其他请求持有时返回 null
+     */
+    private Map<String, String> tryRefresh(String refreshToken, String flightKey, String resultKey) {
+        // 已签发过（旧 refresh token 此时已进黑名单），校验新令牌仍有效后返回同一令牌对
+        String owner = UUID.randomUUID().toString();
+        Boolean claimed;
+        try {
+            Map<String, String> issued = readIssuedTokens(resultKey, refreshToken);
+            if (issued != null) {
+                return issued;
+            }
+            claimed = redisCommandExecutor.execute("jwt", "SETNX", () -> redisTemplate.opsForValue()
+                    .setIfAbsent(flightKey, owner, refreshDedupeWindowInMs, TimeUnit.MILLISECONDS));
+        } catch (DataAccessException e) {
+            // Redis 不可用时放弃合并，直接签发
+            log.warn("刷新单飞不可用，直接签发: error={}", e.getMessage());
+            return issueTokens(refreshToken, null);
+        }
+        if (!Boolean.TRUE.equals(claimed)) {
+            return null;
+        }
+
+        try {
+            return issueTokens(refreshToken, resultKey);
+        } catch (RuntimeException e) {
+            // 签发失败释放占位，等待中的请求随即接手签发
+            try {
+                redisCommandExecutor.execute("jwt", "EVAL", () ->
+                        redisTemplate.execute(RELEASE_SCRIPT, List.of(flightKey), owner));
+            } catch (DataAccessException releaseError) {
+                log.warn("释放刷新占位失败，等待过期: error={}", releaseError.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 每隔 REFRESH_POLL_MILLIS 重试一次：拿到结果或占位已释放时由本请求签发；直到截止仍在签发中才返回409
+     */
+    private void scheduleRefreshPoll(CompletableFuture<Map<String, String>> future, String refreshToken,
+                                     String flightKey, String resultKey, long deadline) {
+        refreshPoller.schedule(() -> {
+            try {
+                Map<String, String> tokens = tryRefresh(refreshToken, flightKey, resultKey);
+                if (tokens != null) {
+                    future.complete(tokens);
+                } else if (System.currentTimeMillis() >= deadline) {
+                    future.completeExceptionally(new RefreshInProgressException("Token正在刷新，请稍后重试"));
+                } else {
+                    scheduleRefreshPoll(future, refreshToken, flightKey, resultKey, deadline);
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }, REFRESH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private Map<String, String> issueTokens(String refreshToken, String resultKey) {
+        if (!jwtTokenProvider.validateToken(refreshToken)) {
+            throw new RuntimeException("Refresh Token无效");
+        }
+        if (!"refresh".equals(jwtTokenProvider.getTokenType(refreshToken))) {
+            throw new RuntimeException("非法的Token类型");
+        }
+        // 登出后会话已删除，未过期的 refresh token 也不能再刷新
+        jwtTokenProvider.validateRefreshTokenActive(refreshToken);
+        String username = jwtTokenProvider.getUsernameFromJWT(refreshToken);
+        if (username == null) {
+            throw new RuntimeException("无法获取用户信息");
+        }
+
+        // 生成新的 token 对，缓存后再失效旧token，并发请求在窗口内拿到同一结果
+        String accessToken = jwtTokenProvider.generateAccessToken(username);
+        String newRefreshToken = jwtTokenProvider.generateRefreshToken(username);
+        if (resultKey != null) {
+            redisCommandExecutor.run("jwt", "SET", () -> redisTemplate.opsForValue().set(resultKey,
+                    accessToken + " " + newRefreshToken, refreshDedupeWindowInMs, TimeUnit.MILLISECONDS));
+        }
+        jwtTokenProvider.invalidateToken(refreshToken);
+
+        return tokenPair(accessToken, newRefreshToken);
+    }
+
+    private Map<String, String> readIssuedTokens(String resultKey, String refreshToken) {
+        String cached = redisCommandExecutor.execute("jwt", "GET", () -> redisTemplate.opsForValue().get(resultKey));
+        if (cached == null) {
+            return null;
+        }
+        int separator = cached.indexOf(' ');
+        String issuedRefreshToken = cached.substring(separator + 1);
+        jwtTokenProvider.validateRotatedRefreshToken(refreshToken, issuedRefreshToken);
+        log.debug("并发刷新返回已签发的令牌对: key={}", resultKey);
+        return tokenPair(cached.substring(0, separator), issuedRefreshToken);
+    }
+
+    private static Map<String, String> tokenPair(String accessToken, String refreshToken) {
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("accessToken", accessToken);
+        tokens.put("refreshToken", refreshToken);
+        return tokens;
+    }
+
     @Override
     public void recordLogin(Long userId, LocalDateTime lastLoginTime) {
         userMapper.updateLastLoginTime(userId, java.sql.Timestamp.valueOf(lastLoginTime));
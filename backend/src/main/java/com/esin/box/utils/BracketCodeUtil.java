@@ -0,0 +1,75 @@
+package com.esin.box.utils;
+
+import org.springframework.util.StringUtils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 资产记录备注中的方括号编号，批量添加与文件导入按 资产名称ID + 编号 匹配今日记录
+ * 与 asset_record.bracket_code 生成列（V5 迁移）的表达式逐项一致，暂存表的编号与生成列直接比较
+ */
+public final class BracketCodeUtil {
+
+    /**
+     * 生成列 bracket_code 的长度 VARCHAR(100)，按字符计
+     */
+    public static final int MAX_LENGTH = 100;
+
+    private static final Pattern BRACKET_PATTERN = Pattern.compile("\\[([^\\]]+)]|【([^】]+)】");
+
+    private BracketCodeUtil() {
+    }
+
+    /**
+     * 从备注中提取方括号内的编号（排除[首次导入]），没有编号时返回空串
+     * 与 SQL 的 TRIM 一致只去掉首尾半角空格，与 LEFT(..., 100) 一致截取前100个字符
+     */
+    public static String extract(String remark) {
+        if (!StringUtils.hasLength(remark)) {
+            return "";
+        }
+
+        // 先移除[首次导入]标记
+        String cleanedRemark = remark
+                .replace("[首次导入]", "")
+                .replace("【首次导入】", "");
+
+        Matcher matcher = BRACKET_PATTERN.matcher(cleanedRemark);
+        if (matcher.find()) {
+            String code = matcher.group(1);
+            if (code == null) {
+                code = matcher.group(2);
+            }
+            return truncate(trimSpaces(code));
+        }
+
+        return "";
+    }
+
+    /**
+     * 备注是否带[首次导入]标记
+     */
+    public static boolean isFirstImport(String remark) {
+        return remark != null && (remark.contains("[首次导入]") || remark.contains("【首次导入】"));
+    }
+
+    private static String trimSpaces(String value) {
+        int begin = 0;
+        int end = value.length();
+        while (begin < end && value.charAt(begin) == ' ') {
+            begin++;
+        }
+        while (end > begin && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(begin, end);
+    }
+
+    private static String truncate(String value) {
+        if (value.codePointCount(0, value.length()) <= MAX_LENGTH) {
+            return value;
+        }
+        return value.substring(0, value.offsetByCodePoints(0, MAX_LENGTH));
+    }
+}
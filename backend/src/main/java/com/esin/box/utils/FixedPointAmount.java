@@ -0,0 +1,36 @@
+package com.esin.box.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额定点数转换：聚合时使用 long 最小单位（万分之一），仅在接口边界转换为 BigDecimal
+ */
+public final class FixedPointAmount {
+
+    /**
+     * 小数位数，覆盖金额字段的全部精度
+     */
+    public static final int SCALE = 4;
+
+    private FixedPointAmount() {
+    }
+
+    /**
+     * BigDecimal -> 最小单位，超过 SCALE 的小数位四舍五入，超出 long 范围时抛出 ArithmeticException
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        // 移动小数点后 scale 为0，longValueExact 直接取紧凑值，不经 unscaledValue 生成 BigInteger
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).scaleByPowerOfTen(SCALE).longValueExact();
+    }
+
+    /**
+     * 最小单位 -> BigDecimal（精确转换）
+     */
+    public static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
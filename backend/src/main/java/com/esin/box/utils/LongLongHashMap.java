@@ -0,0 +1,176 @@
+package com.esin.box.utils;
+
+import java.util.Arrays;
+
+/**
+ * long -> long 开放寻址哈希表（线性探测），用于金额聚合，避免 Map&lt;Long, BigDecimal&gt; 的装箱与对象分配
+ * 只支持累加与读取，不支持删除；非线程安全
+ */
+public class LongLongHashMap {
+    private static final long FREE_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    // 键0与空槽标记冲突，单独存放
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 累加，溢出时抛出 ArithmeticException
+     */
+    public void addTo(long key, long delta) {
+        if (key == FREE_KEY) {
+            zeroValue = hasZeroKey ? Math.addExact(zeroValue, delta) : delta;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            return;
+        }
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                keys[index] = key;
+                values[index] = delta;
+                if (++size >= threshold) {
+                    rehash();
+                }
+                return;
+            }
+            if (current == key) {
+                values[index] = Math.addExact(values[index], delta);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public long get(long key, long defaultValue) {
+        if (key == FREE_KEY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return defaultValue;
+            }
+            if (current == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey;
+        }
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == FREE_KEY) {
+                return false;
+            }
+            if (current == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 遍历所有键值（无序）
+     */
+    public void forEach(Consumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(FREE_KEY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * 升序返回所有键
+     */
+    public long[] sortedKeys() {
+        long[] result = new long[size];
+        int n = 0;
+        if (hasZeroKey) {
+            result[n++] = FREE_KEY;
+        }
+        for (long key : keys) {
+            if (key != FREE_KEY) {
+                result[n++] = key;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int slot(long key) {
+        // murmur3 fmix64，打散连续的ID与日期
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int index = slot(key);
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,14 @@
+-- 软删除记录归档表：结构与业务表一致，额外记录归档时间
+CREATE TABLE IF NOT EXISTS asset_record_archive LIKE asset_record;
+ALTER TABLE asset_record_archive ADD COLUMN archived_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS fitness_record_archive LIKE fitness_record;
+ALTER TABLE fitness_record_archive ADD COLUMN archived_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS asset_name_archive LIKE asset_name;
+ALTER TABLE asset_name_archive ADD COLUMN archived_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- 归档任务按 (deleted, update_time) 查找过期的软删除记录
+CREATE INDEX idx_deleted_update_time ON asset_record (deleted, update_time);
+CREATE INDEX idx_deleted_update_time ON fitness_record (deleted, update_time);
+CREATE INDEX idx_deleted_update_time ON asset_name (deleted, update_time);
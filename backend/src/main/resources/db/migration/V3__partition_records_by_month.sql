@@ -0,0 +1,43 @@
+-- 资产记录、健身记录按月范围分区
+-- 分区键 record_day 为存储型生成列，查询条件需直接使用 record_day 才能裁剪分区
+-- 分区表的主键/唯一键必须包含分区键，因此主键调整为 (id, record_day)
+-- 迁移时只建当月与下月分区（按数据库当前日期），之前的数据落入 p_history；
+-- 之后的月分区由 PartitionMaintenanceJob 在启动时及每日从 p_future 拆出，滚动窗口只由该任务维护
+
+-- 分区定义随迁移日期变化，用预处理语句执行
+SET @month_start = CURDATE() - INTERVAL (DAY(CURDATE()) - 1) DAY;
+SET @partitions = CONCAT(
+    'PARTITION p_history VALUES LESS THAN (''', @month_start, '''), ',
+    'PARTITION p', DATE_FORMAT(@month_start, '%Y%m'),
+    ' VALUES LESS THAN (''', @month_start + INTERVAL 1 MONTH, '''), ',
+    'PARTITION p', DATE_FORMAT(@month_start + INTERVAL 1 MONTH, '%Y%m'),
+    ' VALUES LESS THAN (''', @month_start + INTERVAL 2 MONTH, '''), ',
+    'PARTITION p_future VALUES LESS THAN (MAXVALUE)');
+
+-- 资产记录：按 acquire_time 的日期生成 record_day，按月分区
+ALTER TABLE asset_record
+    ADD COLUMN record_day DATE AS (COALESCE(DATE(acquire_time), DATE '1970-01-01')) STORED NOT NULL;
+
+ALTER TABLE asset_record
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, record_day),
+    ADD INDEX idx_user_record_day (create_user, record_day);
+
+SET @ddl = CONCAT('ALTER TABLE asset_record PARTITION BY RANGE COLUMNS (record_day) (', @partitions, ')');
+PREPARE partition_stmt FROM @ddl;
+EXECUTE partition_stmt;
+DEALLOCATE PREPARE partition_stmt;
+
+-- 健身记录：按 finish_time 的日期生成 record_day，按月分区
+ALTER TABLE fitness_record
+    ADD COLUMN record_day DATE AS (COALESCE(DATE(finish_time), DATE '1970-01-01')) STORED NOT NULL;
+
+ALTER TABLE fitness_record
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, record_day),
+    ADD INDEX idx_user_record_day (create_user, record_day);
+
+SET @ddl = CONCAT('ALTER TABLE fitness_record PARTITION BY RANGE COLUMNS (record_day) (', @partitions, ')');
+PREPARE partition_stmt FROM @ddl;
+EXECUTE partition_stmt;
+DEALLOCATE PREPARE partition_stmt;
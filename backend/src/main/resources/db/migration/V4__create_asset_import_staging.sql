@@ -0,0 +1,22 @@
+-- 文件导入暂存表：解析后的行先批量写入，再以集合SQL合并到 asset_record，合并后按 import_id 清理
+CREATE TABLE IF NOT EXISTS asset_import_staging (
+    import_id         CHAR(32)       NOT NULL,
+    line_no           INT            NOT NULL,
+    create_user       VARCHAR(64)    NOT NULL,
+    asset_name_id     BIGINT         NOT NULL,
+    asset_type_id     BIGINT         NOT NULL,
+    unit_id           BIGINT         NOT NULL,
+    asset_location_id BIGINT         NOT NULL,
+    amount            DECIMAL(20, 4) NOT NULL,
+    acquire_time      DATETIME       NULL,
+    remark            VARCHAR(500)   NULL,
+    bracket_code      VARCHAR(100)   NOT NULL DEFAULT '', -- 备注中的方括号编号（不含[首次导入]）
+    first_time        TINYINT        NOT NULL DEFAULT 0,  -- 备注含[首次导入]
+    today_count       INT            NULL,                -- 合并时写入：该资产今日已有记录数
+    target_id         BIGINT         NULL,                -- 合并时写入：匹配到的今日记录ID
+    unchanged         TINYINT        NOT NULL DEFAULT 0,  -- 合并时写入：强制覆盖模式下内容未变化
+    created_time      DATETIME       NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (import_id, line_no),
+    KEY idx_import_target (import_id, target_id),
+    KEY idx_created_time (created_time)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,36 @@
+-- 资产记录按 用户 + 日期 + 资产名称 + 方括号编号 唯一，批量添加直接 INSERT ... ON DUPLICATE KEY UPDATE，不再先查后写
+-- bracket_code：备注中去掉[首次导入]后第一个 [..] 或 【..】 内的编号，去掉首尾空格后截取前100个字符，没有编号时为空串
+--   STORED 生成列，任何写 remark 的路径都会同步；BracketCodeUtil.extract 按同一规则计算（BracketCodeUtilTest 对照本表达式）
+-- bracket_key：仅未删除记录取 bracket_code，已删除记录为 NULL，不参与唯一约束（MySQL 唯一索引允许多个 NULL）
+-- dup_seq：上线前已存在的同键重复记录依次编号 1、2...，新记录恒为 0，只有 dup_seq = 0 的记录会被批量添加命中
+-- 分区表的唯一键必须包含分区键 record_day
+
+ALTER TABLE asset_record
+    ADD COLUMN bracket_code VARCHAR(100) AS (LEFT(TRIM(IFNULL(SUBSTRING(
+        REGEXP_SUBSTR(REPLACE(REPLACE(IFNULL(remark, ''), '[首次导入]', ''), '【首次导入】', ''), '\\[[^\\]]+\\]|【[^】]+】'),
+        2,
+        CHAR_LENGTH(REGEXP_SUBSTR(REPLACE(REPLACE(IFNULL(remark, ''), '[首次导入]', ''), '【首次导入】', ''), '\\[[^\\]]+\\]|【[^】]+】')) - 2
+    ), '')), 100)) STORED NOT NULL,
+    ADD COLUMN dup_seq INT NOT NULL DEFAULT 0;
+
+ALTER TABLE asset_record
+    ADD COLUMN bracket_key VARCHAR(100) AS (IF(deleted = 0, bracket_code, NULL)) STORED;
+
+UPDATE asset_record r
+JOIN (
+    SELECT id, record_day,
+           ROW_NUMBER() OVER (PARTITION BY create_user, record_day, asset_name_id, bracket_code
+                              ORDER BY create_time, id) - 1 AS seq
+    FROM asset_record
+    WHERE deleted = 0
+) d ON d.id = r.id AND d.record_day = r.record_day
+SET r.dup_seq = d.seq
+WHERE d.seq > 0;
+
+ALTER TABLE asset_record
+    ADD UNIQUE KEY uk_user_day_asset_code (create_user, record_day, asset_name_id, bracket_key, dup_seq);
+
+-- 文件导入的非强制覆盖模式改为 upsert，不再需要今日记录数与[首次导入]标记
+ALTER TABLE asset_import_staging
+    DROP COLUMN today_count,
+    DROP COLUMN first_time;
@@ -0,0 +1,8 @@
+-- 用户写锁栅栏：REDIS 模式下每次写事务先推进本用户的栅栏令牌
+-- 令牌小于已记录值说明租约过期后已被其他节点接管，该事务回滚
+CREATE TABLE IF NOT EXISTS user_write_fence (
+    create_user   VARCHAR(64) NOT NULL,
+    fencing_token BIGINT      NOT NULL DEFAULT 0,
+    update_time   DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (create_user)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,3 @@
+-- 归档资产名称前需确认没有资产记录（含已归档记录）引用它，按 asset_name_id 查找引用
+CREATE INDEX idx_asset_name_ref ON asset_record (asset_name_id);
+CREATE INDEX idx_asset_name_ref ON asset_record_archive (asset_name_id);
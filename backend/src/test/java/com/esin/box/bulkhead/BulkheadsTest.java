@@ -0,0 +1,146 @@
+package com.esin.box.bulkhead;
+
+import com.esin.box.config.BatchJobProperties;
+import com.esin.box.config.BulkheadExecutorConfig;
+import com.esin.box.config.BulkheadProperties;
+import com.esin.box.config.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+/**
+ * 隔离舱已满返回429、异步超时返回503；线程数超出可分配的数据库连接时启动失败
+ */
+class BulkheadsTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private BulkheadProperties properties;
+    private ThreadPoolTaskExecutor heavyReadExecutor;
+    private ThreadPoolTaskExecutor heavyWriteExecutor;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BulkheadProperties();
+        properties.setHeavyRead(new BulkheadProperties.Pool(1, 0, Duration.ofSeconds(30)));
+        Bulkheads bulkheads = bulkheads(10);
+        mockMvc = standaloneSetup(new SlowController(bulkheads))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        heavyReadExecutor.shutdown();
+        heavyWriteExecutor.shutdown();
+    }
+
+    @Test
+    void fullBulkheadReturns429() throws Exception {
+        MvcResult running = mockMvc.perform(get("/slow")).andExpect(request().asyncStarted()).andReturn();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 线程已占满且不排队，第二个请求被拒绝
+        mockMvc.perform(get("/slow")).andExpect(status().isTooManyRequests());
+
+        release.countDown();
+        running.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(running)).andExpect(status().isOk());
+    }
+
+    @Test
+    void asyncTimeoutReturns503() throws Exception {
+        MvcResult running = mockMvc.perform(get("/slow")).andExpect(request().asyncStarted()).andReturn();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 模拟容器触发异步超时
+        MockAsyncContext asyncContext = (MockAsyncContext) running.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+        // 超时会中断任务线程，被中断的任务也必须以超时结束
+        awaitAsyncResult(running);
+        mockMvc.perform(asyncDispatch(running)).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void oversubscribedConnectionPoolFailsStartup() {
+        // heavy-read 1 + heavy-write 2 + 导入任务 2 = 5，连接池 7 保留 3 只能分出 4 个
+        assertThrows(IllegalStateException.class, () -> bulkheads(7));
+    }
+
+    /**
+     * MockMvc 只记录任务线程交回的结果，等任务线程响应中断后再派发
+     */
+    private static void awaitAsyncResult(MvcResult result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                result.getAsyncResult(0);
+                return;
+            } catch (IllegalStateException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private Bulkheads bulkheads(int connectionPoolSize) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BulkheadExecutorConfig config = new BulkheadExecutorConfig();
+        heavyReadExecutor = config.heavyReadExecutor(properties, meterRegistry);
+        heavyWriteExecutor = config.heavyWriteExecutor(properties, meterRegistry);
+        heavyReadExecutor.initialize();
+        heavyWriteExecutor.initialize();
+        Bulkheads bulkheads = new Bulkheads(properties, new BatchJobProperties(), heavyReadExecutor,
+                heavyWriteExecutor, meterRegistry);
+        ReflectionTestUtils.setField(bulkheads, "connectionPoolSize", connectionPoolSize);
+        bulkheads.init();
+        return bulkheads;
+    }
+
+    @RestController
+    private class SlowController {
+
+        private final Bulkheads bulkheads;
+
+        SlowController(Bulkheads bulkheads) {
+            this.bulkheads = bulkheads;
+        }
+
+        @GetMapping("/slow")
+        public WebAsyncTask<String> slow() {
+            return bulkheads.heavyRead(() -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "ok";
+            });
+        }
+    }
+}
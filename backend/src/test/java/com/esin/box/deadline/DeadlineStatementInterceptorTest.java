@@ -0,0 +1,175 @@
+package com.esin.box.deadline;
+
+import com.esin.box.config.DeadlineProperties;
+import com.esin.box.config.GlobalExceptionHandler;
+import com.esin.box.dto.Result;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+/**
+ * 请求剩余时间向上取整为SQL语句超时；超时后不再执行SQL，超时引起的SQL错误转换为 DeadlineExceededException 并返回503
+ */
+class DeadlineStatementInterceptorTest {
+
+    private static final String ENDPOINT = "/api/asset-record/list";
+
+    private final DeadlineStatementInterceptor interceptor = new DeadlineStatementInterceptor();
+    private StatementHandler statementHandler;
+    private Statement statement;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        statementHandler = mock(StatementHandler.class);
+        statement = mock(Statement.class);
+        when(statementHandler.prepare(any(), any())).thenReturn(statement);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.end();
+    }
+
+    @Test
+    void withoutDeadlineLeavesStatementUntouched() throws Throwable {
+        interceptor.intercept(prepare());
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void remainingTimeIsRoundedUpToSeconds() throws Throwable {
+        RequestDeadline.begin(ENDPOINT, 1500);
+        interceptor.intercept(prepare());
+        verify(statement).setQueryTimeout(2);
+    }
+
+    @Test
+    void lessThanOneSecondLeftStillGetsOneSecond() throws Throwable {
+        RequestDeadline.begin(ENDPOINT, 200);
+        interceptor.intercept(prepare());
+        verify(statement).setQueryTimeout(1);
+    }
+
+    @Test
+    void shorterExistingTimeoutIsKept() throws Throwable {
+        when(statement.getQueryTimeout()).thenReturn(1);
+        RequestDeadline.begin(ENDPOINT, 5000);
+        interceptor.intercept(prepare());
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void refusesStatementsAfterDeadline() throws Throwable {
+        RequestDeadline.begin(ENDPOINT, 0);
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                () -> interceptor.intercept(prepare()));
+
+        assertTrue(e.getMessage().contains(ENDPOINT));
+        assertTrue(RequestDeadline.current().isExceeded());
+        verify(statementHandler, never()).prepare(any(), any());
+    }
+
+    @Test
+    void sqlErrorAfterDeadlineBecomesDeadlineExceeded() throws Throwable {
+        SQLTimeoutException timeout = new SQLTimeoutException("Statement cancelled due to timeout");
+        when(statementHandler.query(any(), any())).thenThrow(timeout);
+        RequestDeadline.begin(ENDPOINT, 20);
+        Thread.sleep(30);
+
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                () -> interceptor.intercept(query()));
+        assertSame(timeout, e.getCause());
+    }
+
+    @Test
+    void sqlErrorBeforeDeadlinePassesThrough() throws Throwable {
+        SQLException error = new SQLException("Duplicate entry");
+        when(statementHandler.query(any(), any())).thenThrow(error);
+        RequestDeadline.begin(ENDPOINT, 5000);
+
+        InvocationTargetException e = assertThrows(InvocationTargetException.class,
+                () -> interceptor.intercept(query()));
+        assertSame(error, e.getCause());
+        assertFalse(RequestDeadline.current().isExceeded());
+    }
+
+    @Test
+    void deadlineExceededReturns503() throws Exception {
+        DeadlineProperties properties = new DeadlineProperties();
+        properties.getEndpoints().put("/expired/**", Duration.ofMillis(20));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockMvc mockMvc = standaloneSetup(new SqlController())
+                .setControllerAdvice(new GlobalExceptionHandler(), new DeadlineResponseAdvice())
+                .addFilters(new DeadlineFilter(properties, meterRegistry))
+                .build();
+
+        // 异常经 GlobalExceptionHandler 返回503
+        mockMvc.perform(get("/expired/thrown")).andExpect(status().isServiceUnavailable());
+        // 控制器捕获异常返回 error 结果时，由 DeadlineResponseAdvice 改为503
+        mockMvc.perform(get("/expired/caught")).andExpect(status().isServiceUnavailable());
+        assertEquals(2, meterRegistry.get("box.request.deadline.exceeded").counter().count());
+    }
+
+    private Invocation prepare() throws NoSuchMethodException {
+        Method method = StatementHandler.class.getMethod("prepare", Connection.class, Integer.class);
+        return new Invocation(statementHandler, method, new Object[]{mock(Connection.class), null});
+    }
+
+    private Invocation query() throws NoSuchMethodException {
+        Method method = StatementHandler.class.getMethod("query", Statement.class, ResultHandler.class);
+        return new Invocation(statementHandler, method, new Object[]{statement, null});
+    }
+
+    @RestController
+    private class SqlController {
+
+        @GetMapping("/expired/thrown")
+        public Result<String> thrown() throws Throwable {
+            Thread.sleep(30);
+            interceptor.intercept(prepare());
+            return Result.success("ok");
+        }
+
+        @GetMapping("/expired/caught")
+        public Result<String> caught() throws Throwable {
+            Thread.sleep(30);
+            try {
+                interceptor.intercept(prepare());
+                return Result.success("ok");
+            } catch (DeadlineExceededException e) {
+                return Result.error("查询失败");
+            }
+        }
+    }
+}
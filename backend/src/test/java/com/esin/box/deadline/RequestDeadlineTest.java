@@ -0,0 +1,70 @@
+package com.esin.box.deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时限只对当前线程生效，异步线程 attach 后沿用同一截止时间；超时后标记为已超时
+ */
+class RequestDeadlineTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.end();
+    }
+
+    @Test
+    void noDeadlineMeansUnlimited() {
+        assertNull(RequestDeadline.current());
+        assertEquals(Long.MAX_VALUE, RequestDeadline.checkRemaining("SQL执行"));
+    }
+
+    @Test
+    void remainingCountsDownFromTimeout() {
+        RequestDeadline.begin("/api/asset-record/list", 5000);
+        long remaining = RequestDeadline.checkRemaining("SQL执行");
+        assertTrue(remaining > 4000 && remaining <= 5000);
+        assertFalse(RequestDeadline.current().isExceeded());
+    }
+
+    @Test
+    void checkAfterDeadlineThrowsAndMarksExceeded() {
+        RequestDeadline.begin("/api/asset-record/list", 0);
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                () -> RequestDeadline.checkRemaining("Redis命令"));
+
+        assertTrue(e.getMessage().contains("Redis命令"));
+        assertTrue(e.getMessage().contains("/api/asset-record/list"));
+        assertTrue(RequestDeadline.current().isExceeded());
+    }
+
+    @Test
+    void attachedThreadSharesDeadline() {
+        RequestDeadline.begin("/api/asset-record/listAll", 0);
+        RequestDeadline deadline = RequestDeadline.current();
+
+        CompletableFuture.runAsync(() -> {
+            assertNull(RequestDeadline.current());
+            RequestDeadline.attach(deadline);
+            try {
+                assertThrows(DeadlineExceededException.class, () -> RequestDeadline.checkRemaining("SQL执行"));
+            } finally {
+                RequestDeadline.end();
+            }
+        }).join();
+
+        // 隔离舱线程上的超时对发起请求的线程可见，写出结果时据此返回503
+        assertTrue(deadline.isExceeded());
+        assertSame(deadline, RequestDeadline.end());
+        assertNull(RequestDeadline.current());
+    }
+}
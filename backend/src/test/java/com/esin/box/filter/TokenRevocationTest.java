@@ -0,0 +1,125 @@
+package com.esin.box.filter;
+
+import com.esin.box.support.LatencyProxy;
+import com.esin.box.support.TokenNode;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 登出后各实例对旧 token 的结论一致；Redis 变慢时熔断器打开、校验快速降级，恢复后关闭
+ */
+class TokenRevocationTest {
+
+    private static RedisServer redis;
+    private static LatencyProxy proxy;
+    private static TokenNode nodeA;
+    private static TokenNode nodeB;
+    private static TokenNode slowNode;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        proxy = new LatencyProxy(port);
+        nodeA = TokenNode.start(port);
+        nodeB = TokenNode.start(port);
+        slowNode = TokenNode.start(proxy.getPort(), properties -> {
+            properties.setSlowCallDuration(Duration.ofMillis(100));
+            properties.setSlidingWindowSize(10);
+            properties.setMinimumNumberOfCalls(6);
+            properties.setWaitInOpenState(Duration.ofSeconds(1));
+            properties.setPermittedCallsInHalfOpen(2);
+        });
+    }
+
+    @AfterAll
+    static void stopNodes() throws IOException {
+        nodeA.close();
+        nodeB.close();
+        slowNode.close();
+        proxy.close();
+        redis.stop();
+    }
+
+    @Test
+    void logoutRevokesEarlierTokensOnEveryNode() throws InterruptedException {
+        String accessToken = nodeA.jwtTokenProvider().generateAccessToken("carol");
+        String refreshToken = nodeA.jwtTokenProvider().generateRefreshToken("carol");
+        assertTrue(nodeB.jwtTokenProvider().validateToken(accessToken));
+
+        nodeA.jwtTokenProvider().invalidateAllUserTokens("carol");
+
+        // 其他实例不会因会话已删除而把未过期的 token 重新激活
+        assertThrows(JwtException.class, () -> nodeB.jwtTokenProvider().validateToken(accessToken));
+        assertThrows(JwtException.class, () -> nodeA.jwtTokenProvider().validateToken(accessToken));
+        assertThrows(JwtException.class, () -> nodeB.jwtTokenProvider().validateRefreshTokenActive(refreshToken));
+
+        // iat 精确到秒，跨过登出所在的秒后重新登录签发的 token 在两个实例上都有效
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000 + 10);
+        String relogin = nodeB.jwtTokenProvider().generateAccessToken("carol");
+        assertTrue(nodeA.jwtTokenProvider().validateToken(relogin));
+        assertTrue(nodeB.jwtTokenProvider().validateToken(relogin));
+    }
+
+    @Test
+    void breakerOpensOnSlowRedisAndClosesAfterRecovery() throws InterruptedException {
+        JwtTokenProvider provider = slowNode.jwtTokenProvider();
+        String accessToken = provider.generateAccessToken("dave");
+        assertTrue(provider.validateToken(accessToken));
+        assertEquals(0, circuitState("open"));
+
+        // 每条命令延迟 300ms（慢调用阈值 100ms），满足最少调用数后熔断
+        proxy.setDelayMillis(300);
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(provider.validateToken(accessToken));
+            }
+            assertEquals(1, circuitState("open"));
+
+            // 熔断期间不再等待 Redis，按签名与过期时间降级放行
+            long start = System.nanoTime();
+            assertTrue(provider.validateToken(accessToken));
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 100);
+            assertTrue(degradedCount() > 0);
+
+            // 熔断期间登出写不进 Redis，本机记住并拒绝登出前签发的 token
+            provider.invalidateAllUserTokens("dave");
+            assertThrows(JwtException.class, () -> provider.validateToken(accessToken));
+        } finally {
+            proxy.setDelayMillis(0);
+        }
+
+        // 等待半开后试探成功，熔断关闭
+        Thread.sleep(1200);
+        String relogin = provider.generateAccessToken("dave");
+        provider.validateToken(relogin);
+        assertEquals(1, circuitState("closed"));
+    }
+
+    private static double circuitState(String state) {
+        Gauge gauge = slowNode.meterRegistry().find("resilience4j.circuitbreaker.state").tag("state", state).gauge();
+        return gauge != null ? gauge.value() : 0;
+    }
+
+    private static double degradedCount() {
+        return slowNode.meterRegistry().find("box.jwt.degraded").counters().stream()
+                .mapToDouble(Counter::count).sum();
+    }
+}
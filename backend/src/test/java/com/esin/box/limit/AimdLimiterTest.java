@@ -0,0 +1,103 @@
+package com.esin.box.limit;
+
+import com.esin.box.config.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发接近上限且响应正常时加1，超过耗时阈值或出现过载信号时按比例收缩，始终限制在 [min, max] 内
+ */
+class AimdLimiterTest {
+
+    private static final long THRESHOLD = Duration.ofMillis(100).toNanos();
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofMillis(200).toNanos();
+
+    @Test
+    void initialLimitIsClamped() {
+        assertEquals(2, limiter(1, 2, 8).getLimit());
+        assertEquals(8, limiter(20, 2, 8).getLimit());
+    }
+
+    @Test
+    void rejectsBeyondLimitWithoutQueueing() {
+        AimdLimiter limiter = limiter(2, 1, 8);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInflight());
+
+        limiter.release(FAST, THRESHOLD, false, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void increasesOnlyWhenNearLimit() {
+        AimdLimiter limiter = limiter(4, 1, 8);
+
+        // 并发只有上限的四分之一，空闲时不放大
+        limiter.tryAcquire();
+        limiter.release(FAST, THRESHOLD, false, false);
+        assertEquals(4, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.release(FAST, THRESHOLD, false, false);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(1, limiter.getInflight());
+    }
+
+    @Test
+    void decreasesOnSlowResponseOrOverload() {
+        AimdLimiter limiter = limiter(10, 1, 16);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, THRESHOLD, false, false);
+        assertEquals(9, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(FAST, THRESHOLD, true, false);
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void staysWithinMinAndMax() {
+        AimdLimiter limiter = limiter(4, 2, 6);
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, THRESHOLD, false, false);
+        }
+        assertEquals(2, limiter.getLimit());
+
+        // 每轮占满上限后全部正常返回
+        for (int i = 0; i < 50; i++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int j = 0; j < acquired; j++) {
+                limiter.release(FAST, THRESHOLD, false, false);
+            }
+        }
+        assertEquals(6, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    void ignoredReleaseFreesSlotWithoutAdjusting() {
+        AimdLimiter limiter = limiter(4, 1, 8);
+        limiter.tryAcquire();
+        limiter.release(SLOW, THRESHOLD, true, true);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    private static AimdLimiter limiter(int initial, int min, int max) {
+        return new AimdLimiter(new ConcurrencyLimitProperties.Group(initial, min, max, Duration.ofMillis(100)));
+    }
+}
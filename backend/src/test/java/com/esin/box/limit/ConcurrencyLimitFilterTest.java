@@ -0,0 +1,133 @@
+package com.esin.box.limit;
+
+import com.esin.box.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 按接口的耗时阈值调整 heavy 组上限；超限返回429；隔离舱异步请求完成时才释放，SSE 立即释放且不参与调整
+ */
+class ConcurrencyLimitFilterTest {
+
+    private static final String LIST = "/api/asset-record/listAll";
+    private static final String IMPORT = "/api/asset-record/import";
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = filter(4);
+    }
+
+    private ConcurrencyLimitFilter filter(int initialLimit) {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setHeavyPaths(List.of(LIST, IMPORT));
+        ConcurrencyLimitProperties.Group heavy =
+                new ConcurrencyLimitProperties.Group(initialLimit, 1, 16, Duration.ofMillis(20));
+        heavy.getLatencyThresholds().put(IMPORT, Duration.ofSeconds(10));
+        properties.setHeavy(heavy);
+        meterRegistry = new SimpleMeterRegistry();
+        return new ConcurrencyLimitFilter(properties, meterRegistry);
+    }
+
+    @Test
+    void slowResponseShrinksOnlyAgainstItsOwnThreshold() throws Exception {
+        // 导入的阈值单独设为10s，50ms 不算慢
+        perform(IMPORT, null, (request, response) -> sleep(50));
+        assertEquals(4, gauge("box.concurrency.limit", "heavy"));
+
+        // 全量列表使用组阈值20ms
+        perform(LIST, null, (request, response) -> sleep(50));
+        assertEquals(3, gauge("box.concurrency.limit", "heavy"));
+    }
+
+    @Test
+    void rejectsWith429AndReleasesOnAsyncCompletion() throws Exception {
+        filter = filter(2);
+        MockHttpServletRequest first = perform(LIST, null, (request, response) -> request.startAsync(request, response));
+        MockHttpServletRequest second = perform(LIST, null, (request, response) -> request.startAsync(request, response));
+        assertEquals(2, gauge("box.concurrency.inflight", "heavy"));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request(LIST, null), rejected, (request, response) -> {
+            throw new AssertionError("超限请求不应进入后续处理");
+        });
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("box.concurrency.rejected").tag("group", "heavy").counter().count());
+
+        // 异步完成时释放名额，503 视为过载信号
+        ((MockHttpServletResponse) second.getAsyncContext().getResponse()).setStatus(503);
+        second.getAsyncContext().complete();
+        assertEquals(1, gauge("box.concurrency.inflight", "heavy"));
+        assertEquals(1, gauge("box.concurrency.limit", "heavy"));
+        first.getAsyncContext().complete();
+        assertEquals(0, gauge("box.concurrency.inflight", "heavy"));
+    }
+
+    @Test
+    void eventStreamReleasesImmediatelyWithoutAdjusting() throws Exception {
+        perform(LIST, "text/event-stream", (request, response) -> {
+            request.startAsync(request, response);
+            sleep(50);
+        });
+        assertEquals(0, gauge("box.concurrency.inflight", "heavy"));
+        assertEquals(4, gauge("box.concurrency.limit", "heavy"));
+    }
+
+    @Test
+    void onlyRejectionExceptionsShrinkLimit() {
+        assertThrows(IllegalArgumentException.class, () -> perform(LIST, null, (request, response) -> {
+            throw new IllegalArgumentException("参数错误");
+        }));
+        assertEquals(4, gauge("box.concurrency.limit", "heavy"));
+
+        assertThrows(RejectedExecutionException.class, () -> perform(LIST, null, (request, response) -> {
+            throw new RejectedExecutionException("隔离舱已满: heavy-read");
+        }));
+        assertEquals(3, gauge("box.concurrency.limit", "heavy"));
+        assertEquals(0, gauge("box.concurrency.inflight", "heavy"));
+    }
+
+    private MockHttpServletRequest perform(String path, String accept, FilterChain chain)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = request(path, accept);
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String path, String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setAsyncSupported(true);
+        if (accept != null) {
+            request.addHeader("Accept", accept);
+        }
+        return request;
+    }
+
+    private double gauge(String name, String group) {
+        return meterRegistry.get(name).tag("group", group).gauge().value();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.esin.box.metrics;
+
+import com.esin.box.config.QueryBudgetProperties;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * test profile 下循环内逐条查询（N+1）必须在越过阈值的那条SQL处失败
+ */
+class QueryBudgetInterceptorTest {
+
+    private static final String ENDPOINT = "/api/fitness-record/list";
+
+    private final Configuration configuration = new Configuration();
+    private QueryBudgetProperties properties;
+    private Executor executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = loadTestProfile();
+        executor = mock(Executor.class);
+        QueryBudgetContext.begin(() -> ENDPOINT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        QueryBudgetContext.end();
+    }
+
+    @Test
+    void testProfileEnablesFailOnExceed() {
+        assertTrue(properties.isFailOnExceed());
+    }
+
+    @Test
+    void failsOnInjectedNPlusOne() throws Throwable {
+        QueryBudgetInterceptor interceptor = new QueryBudgetInterceptor(properties);
+        MappedStatement selectType = select("com.esin.box.mapper.CommonMetaMapper.selectById",
+                "SELECT * FROM common_meta WHERE id = ?");
+        int threshold = properties.getRepeatThreshold();
+
+        // 模拟按记录逐条查询类型
+        for (int i = 0; i < threshold; i++) {
+            interceptor.intercept(query(selectType, (long) i));
+        }
+        QueryBudgetExceededException e = assertThrows(QueryBudgetExceededException.class,
+                () -> interceptor.intercept(query(selectType, (long) threshold)));
+
+        assertTrue(e.getMessage().contains(ENDPOINT));
+        // 越过阈值的那条SQL不会执行
+        verify(executor, times(threshold)).query(any(), any(), any(), any());
+    }
+
+    @Test
+    void distinctStatementsWithinBudgetPass() throws Throwable {
+        QueryBudgetInterceptor interceptor = new QueryBudgetInterceptor(properties);
+        interceptor.intercept(query(select("com.esin.box.mapper.FitnessRecordMapper.selectPageWithMeta",
+                "SELECT * FROM fitness_record WHERE create_user = ? LIMIT ?"), "user"));
+        interceptor.intercept(query(select("com.esin.box.mapper.FitnessRecordMapper.selectCount",
+                "SELECT COUNT(*) FROM fitness_record WHERE create_user = ?"), "user"));
+
+        assertEquals(2, QueryBudgetContext.current().getTotalStatements());
+        verify(executor, times(2)).query(any(), any(), any(), any());
+    }
+
+    private QueryBudgetProperties loadTestProfile() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        // 与 Spring Boot 一致，profile 配置优先于默认配置
+        loader.load("application-test", new ClassPathResource("application-test.yml"))
+                .forEach(environment.getPropertySources()::addLast);
+        loader.load("application", new ClassPathResource("application.yml"))
+                .forEach(environment.getPropertySources()::addLast);
+        return Binder.get(environment).bind("box.query-budget", QueryBudgetProperties.class)
+                .orElseGet(QueryBudgetProperties::new);
+    }
+
+    private MappedStatement select(String id, String sql) {
+        return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, sql),
+                SqlCommandType.SELECT).build();
+    }
+
+    private Invocation query(MappedStatement ms, Object parameter) throws NoSuchMethodException {
+        Method method = Executor.class.getMethod("query",
+                MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class);
+        return new Invocation(executor, method,
+                new Object[]{ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER});
+    }
+}
@@ -0,0 +1,137 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.config.RedisCircuitBreakerProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.event.DataDomain;
+import com.esin.box.event.RecordChangeEvent;
+import com.esin.box.mapper.AssetRecordMapper;
+import com.esin.box.service.DataVersionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 重建位图期间提交的删除不会被 BITOP OR 合并覆盖回来
+ */
+class AssetDateIndexRebuildTest {
+
+    private static final String USER = "erin";
+    private static final LocalDate KEPT = LocalDate.of(2024, 3, 1);
+    private static final LocalDate DELETED = LocalDate.of(2024, 3, 5);
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    // 模拟数据库中该用户有记录的日期
+    private final TreeSet<LocalDate> recordDays = new TreeSet<>();
+    private final AtomicInteger fullScans = new AtomicInteger();
+    private AssetRecordMapper assetRecordMapper;
+    private AssetDateIndexServiceImpl service;
+    private Runnable afterFirstScan;
+    private Runnable afterSecondScan;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.delete("asset_days:" + USER);
+        recordDays.addAll(List.of(KEPT, DELETED));
+        assetRecordMapper = mock(AssetRecordMapper.class);
+        when(assetRecordMapper.selectRecordDates(anyString(), any())).thenAnswer(invocation -> {
+            Collection<LocalDate> dates = invocation.getArgument(1);
+            List<LocalDate> result = new ArrayList<>(recordDays.descendingSet());
+            if (dates != null && !dates.isEmpty()) {
+                result.retainAll(dates);
+                return result;
+            }
+            int scan = fullScans.incrementAndGet();
+            Runnable hook = scan == 1 ? afterFirstScan : scan == 2 ? afterSecondScan : null;
+            if (hook != null) {
+                hook.run();
+            }
+            return result;
+        });
+        DataVersionService dataVersionService = mock(DataVersionService.class);
+        RedisCommandExecutor redisCommandExecutor =
+                new RedisCommandExecutor(new SimpleMeterRegistry(), new RedisCircuitBreakerProperties());
+        service = new AssetDateIndexServiceImpl(assetRecordMapper, redisTemplate, redisCommandExecutor,
+                dataVersionService);
+    }
+
+    @Test
+    void deleteCommittedDuringRebuildStaysCleared() {
+        // 重建读库之后、合并之前，另一个请求删除了该日记录并完成增量清除
+        afterFirstScan = () -> {
+            recordDays.remove(DELETED);
+            service.onRecordChange(change(DELETED));
+        };
+
+        assertFalse(service.hasRecordsOn(USER, DELETED));
+        assertFalse(service.hasRecordsOn(USER, DELETED));
+        assertTrue(service.hasRecordsOn(USER, KEPT));
+        assertEquals(KEPT, service.lastDateBefore(USER, LocalDate.of(2024, 3, 10)));
+    }
+
+    @Test
+    void recordAddedBackWhileClearingIsKept() {
+        afterFirstScan = () -> {
+            recordDays.remove(DELETED);
+            service.onRecordChange(change(DELETED));
+        };
+        // 合并后的复查看到已删除，清除前该日又新增了记录（其增量置位先于本次清除）
+        afterSecondScan = () -> {
+            recordDays.add(DELETED);
+            service.onRecordChange(change(DELETED));
+        };
+
+        service.hasRecordsOn(USER, KEPT);
+        assertTrue(service.hasRecordsOn(USER, DELETED));
+        assertEquals(2, fullScans.get());
+    }
+
+    private static RecordChangeEvent change(LocalDate date) {
+        return RecordChangeEvent.builder().domain(DataDomain.ASSET).username(USER).dates(Set.of(date)).build();
+    }
+}
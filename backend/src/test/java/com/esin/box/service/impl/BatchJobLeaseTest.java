@@ -0,0 +1,172 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.config.BatchJobProperties;
+import com.esin.box.config.RedisCircuitBreakerProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.dto.AssetRecordDTO;
+import com.esin.box.dto.BatchAddAssetRequest;
+import com.esin.box.dto.BatchAddResult;
+import com.esin.box.dto.BatchJobStatusDTO;
+import com.esin.box.service.AssetRecordService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 执行节点停止后任务不会一直停留在 RUNNING：租约过期后查询即判定失败，相同内容可重新提交；存活节点持续续约
+ */
+class BatchJobLeaseTest {
+
+    private static final String USER = "frank";
+    private static final Duration LEASE = Duration.ofMillis(300);
+
+    private static RedisServer redis;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final List<BatchJobServiceImpl> nodes = new ArrayList<>();
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redis.stop();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(BatchJobServiceImpl::shutdown);
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Test
+    void jobOfStoppedNodeFailsAndCanBeResubmitted() throws InterruptedException {
+        // 节点接收任务后停止：任务未执行，也不再续约
+        BatchJobServiceImpl deadNode = node(mock(ThreadPoolTaskExecutor.class), mock(AssetRecordService.class));
+        BatchJobServiceImpl liveNode = node(executor(), assetRecordService(null));
+
+        String jobId = deadNode.submit(request(), USER, "import-1");
+        assertEquals(jobId, liveNode.submit(request(), USER, "import-1"));
+        deadNode.shutdown();
+        Thread.sleep(LEASE.toMillis() * 2);
+
+        BatchJobStatusDTO status = liveNode.getStatus(jobId, USER);
+        assertEquals("FAILED", status.getStatus());
+        assertTrue(status.getError().contains("节点已停止"));
+
+        String resubmitted = liveNode.submit(request(), USER, "import-1");
+        assertNotEquals(jobId, resubmitted);
+        assertEquals("SUCCEEDED", awaitFinished(liveNode, resubmitted).getStatus());
+    }
+
+    @Test
+    void stoppedNodeDetectedOnResubmitWithoutStatusQuery() throws InterruptedException {
+        BatchJobServiceImpl deadNode = node(mock(ThreadPoolTaskExecutor.class), mock(AssetRecordService.class));
+        BatchJobServiceImpl liveNode = node(executor(), assetRecordService(null));
+
+        String jobId = deadNode.submit(request(), USER, "import-2");
+        deadNode.shutdown();
+        Thread.sleep(LEASE.toMillis() * 2);
+
+        String resubmitted = liveNode.submit(request(), USER, "import-2");
+        assertNotEquals(jobId, resubmitted);
+        assertEquals("FAILED", liveNode.getStatus(jobId, USER).getStatus());
+        assertEquals("SUCCEEDED", awaitFinished(liveNode, resubmitted).getStatus());
+    }
+
+    @Test
+    void runningNodeKeepsLeaseBeyondLeaseTime() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        BatchJobServiceImpl runner = node(executor(), assetRecordService(release));
+        BatchJobServiceImpl observer = node(executor(), assetRecordService(null));
+
+        String jobId = runner.submit(request(), USER, "import-3");
+        Thread.sleep(LEASE.toMillis() * 4);
+        assertEquals("RUNNING", observer.getStatus(jobId, USER).getStatus());
+
+        release.countDown();
+        assertEquals("SUCCEEDED", awaitFinished(observer, jobId).getStatus());
+    }
+
+    private BatchJobServiceImpl node(ThreadPoolTaskExecutor executor, AssetRecordService assetRecordService) {
+        BatchJobProperties properties = new BatchJobProperties();
+        properties.setLeaseTime(LEASE);
+        BatchJobServiceImpl node = new BatchJobServiceImpl(assetRecordService, executor, properties, redisTemplate,
+                new RedisCommandExecutor(new SimpleMeterRegistry(), new RedisCircuitBreakerProperties()),
+                new ObjectMapper(), new SimpleMeterRegistry());
+        nodes.add(node);
+        return node;
+    }
+
+    private ThreadPoolTaskExecutor executor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.initialize();
+        executors.add(executor);
+        return executor;
+    }
+
+    private static AssetRecordService assetRecordService(CountDownLatch release) {
+        AssetRecordService service = mock(AssetRecordService.class);
+        when(service.applyBatchChunk(any(), any())).thenAnswer(invocation -> {
+            if (release != null) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new BatchAddResult();
+        });
+        return service;
+    }
+
+    private static BatchJobStatusDTO awaitFinished(BatchJobServiceImpl node, String jobId)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        BatchJobStatusDTO status = node.getStatus(jobId, USER);
+        while (!status.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = node.getStatus(jobId, USER);
+        }
+        return status;
+    }
+
+    private static BatchAddAssetRequest request() {
+        BatchAddAssetRequest request = new BatchAddAssetRequest();
+        request.setRecords(List.of(new AssetRecordDTO()));
+        return request;
+    }
+}
@@ -0,0 +1,112 @@
+package com.esin.box.service.impl;
+
+import com.esin.box.support.TokenNode;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 两个应用实例共用一个 Redis：同一 refresh token 的并发刷新只签发一次，所有请求拿到同一令牌对
+ */
+class RefreshSingleFlightTest {
+
+    private static RedisServer redis;
+    private static TokenNode nodeA;
+    private static TokenNode nodeB;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redis = new RedisServer(port);
+        redis.start();
+        nodeA = TokenNode.start(port);
+        nodeB = TokenNode.start(port);
+    }
+
+    @AfterAll
+    static void stopNodes() throws IOException {
+        nodeA.close();
+        nodeB.close();
+        redis.stop();
+    }
+
+    @Test
+    void concurrentRefreshesOnBothNodesShareOnePair() throws Exception {
+        String refreshToken = nodeA.jwtTokenProvider().generateRefreshToken("alice");
+        int requests = 16;
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Map<String, String>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                UserServiceImpl userService = (i % 2 == 0 ? nodeA : nodeB).userService();
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    await(start);
+                    return userService.refreshTokens(refreshToken);
+                }, clients).thenCompose(future -> future));
+            }
+            start.countDown();
+
+            Map<String, String> first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (CompletableFuture<Map<String, String>> result : results) {
+                assertEquals(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertNotEquals(refreshToken, first.get("refreshToken"));
+            // 只签发了一个新的 refresh token，原会话已删除
+            assertEquals(1, nodeA.redisTemplate().opsForHash().size("sess:r:alice"));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersOnOtherNodeGetThePairInsteadOfConflict() throws Exception {
+        String refreshToken = nodeA.jwtTokenProvider().generateRefreshToken("bob");
+        // 第三个实例抢到了占位、正在签发
+        String flightKey = "refresh_flight:" + Hashing.sha256().hashString(refreshToken, StandardCharsets.UTF_8);
+        nodeA.redisTemplate().opsForValue().set(flightKey, "node-c", Duration.ofSeconds(10));
+
+        CompletableFuture<Map<String, String>> onA = nodeA.userService().refreshTokens(refreshToken);
+        CompletableFuture<Map<String, String>> onB = nodeB.userService().refreshTokens(refreshToken);
+        // 超过原来的 300ms 等待上限仍在等待，而不是返回409
+        Thread.sleep(600);
+        assertFalse(onA.isDone());
+        assertFalse(onB.isDone());
+
+        // 持有方签发失败并释放占位：等待方之一接手签发，另一个拿到同一令牌对
+        nodeA.redisTemplate().delete(flightKey);
+        Map<String, String> tokens = onA.get(2, TimeUnit.SECONDS);
+        assertEquals(tokens, onB.get(2, TimeUnit.SECONDS));
+        assertEquals(1, nodeB.redisTemplate().opsForHash().size("sess:r:bob"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.esin.box.support;
+
+import com.esin.box.config.RedisCircuitBreakerProperties;
+import com.esin.box.config.RedisCommandExecutor;
+import com.esin.box.filter.JwtTokenProvider;
+import com.esin.box.mapper.UserMapper;
+import com.esin.box.service.impl.UserServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 模拟一个应用实例：独立的 Spring 上下文，只包含令牌相关的 Bean，多个实例共用同一个 Redis
+ */
+public final class TokenNode implements AutoCloseable {
+
+    public static final String SECRET = "RjFk8V2p9X7mN3qL5tYzA4wQ1cB6vE0sH8uD2xG4nJ7bK9mP3rT5";
+
+    private final AnnotationConfigApplicationContext context;
+
+    private TokenNode(AnnotationConfigApplicationContext context) {
+        this.context = context;
+    }
+
+    public static TokenNode start(int redisPort) {
+        return start(redisPort, properties -> {
+        });
+    }
+
+    /**
+     * @param customizer 调整配置，如 Redis 命令超时（redis.timeout）或熔断参数
+     */
+    public static TokenNode start(int redisPort, Consumer<RedisCircuitBreakerProperties> customizer) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jwt.secret", SECRET);
+        properties.put("redis.port", redisPort);
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.registerBean("circuitBreakerCustomizer", Consumer.class, () -> customizer);
+        context.register(NodeConfig.class);
+        context.refresh();
+        return new TokenNode(context);
+    }
+
+    public UserServiceImpl userService() {
+        return context.getBean(UserServiceImpl.class);
+    }
+
+    public JwtTokenProvider jwtTokenProvider() {
+        return context.getBean(JwtTokenProvider.class);
+    }
+
+    public StringRedisTemplate redisTemplate() {
+        return context.getBean(StringRedisTemplate.class);
+    }
+
+    public MeterRegistry meterRegistry() {
+        return context.getBean(MeterRegistry.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    @Configuration
+    static class NodeConfig {
+
+        @Bean
+        LettuceConnectionFactory redisConnectionFactory(org.springframework.core.env.Environment environment) {
+            RedisStandaloneConfiguration server = new RedisStandaloneConfiguration("127.0.0.1",
+                    environment.getRequiredProperty("redis.port", Integer.class));
+            LettuceClientConfiguration client = LettuceClientConfiguration.builder()
+                    .commandTimeout(Duration.ofMillis(environment.getProperty("redis.timeout", Long.class, 2000L)))
+                    .build();
+            return new LettuceConnectionFactory(server, client);
+        }
+
+        @Bean
+        StringRedisTemplate redisTemplate(RedisConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        @SuppressWarnings("unchecked")
+        RedisCircuitBreakerProperties redisCircuitBreakerProperties(Consumer<?> circuitBreakerCustomizer) {
+            RedisCircuitBreakerProperties properties = new RedisCircuitBreakerProperties();
+            ((Consumer<RedisCircuitBreakerProperties>) circuitBreakerCustomizer).accept(properties);
+            return properties;
+        }
+
+        @Bean
+        RedisCommandExecutor redisCommandExecutor(MeterRegistry meterRegistry, RedisCircuitBreakerProperties properties) {
+            return new RedisCommandExecutor(meterRegistry, properties);
+        }
+
+        @Bean
+        JwtTokenProvider jwtTokenProvider() {
+            return new JwtTokenProvider();
+        }
+
+        @Bean
+        UserMapper userMapper() {
+            return mock(UserMapper.class);
+        }
+
+        @Bean
+        UserServiceImpl userService() {
+            return new UserServiceImpl();
+        }
+    }
+}
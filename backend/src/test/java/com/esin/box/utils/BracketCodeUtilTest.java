@@ -0,0 +1,99 @@
+package com.esin.box.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BracketCodeUtil.extract 与 V5 生成列 bracket_code 的表达式必须给出相同的编号
+ * 指定 -Dbox.test.jdbc-url 时直接在数据库上执行迁移脚本中的表达式逐条对照
+ */
+class BracketCodeUtilTest {
+
+    private static final String MIGRATION = "db/migration/V5__asset_record_bracket_code_unique.sql";
+    private static final Pattern GENERATED_EXPRESSION =
+            Pattern.compile("bracket_code VARCHAR\\((\\d+)\\) AS \\((.*?)\\) STORED", Pattern.DOTALL);
+
+    private static final String LONG_CODE = "9".repeat(BracketCodeUtil.MAX_LENGTH + 20);
+    private static final String EMOJI_CODE = "a".repeat(BracketCodeUtil.MAX_LENGTH - 1) + "💰" + "b";
+
+    /**
+     * 备注 -> 期望编号
+     */
+    private static final String[][] CASES = {
+            {null, ""},
+            {"", ""},
+            {"批量导入", ""},
+            {"工资卡[001]", "001"},
+            {"工资卡【002】", "002"},
+            {"[ 003 ]", "003"},
+            {"[\t004\t]", "\t004\t"},
+            {"[首次导入]", ""},
+            {"【首次导入】[005]", "005"},
+            {"[首次导入][006]【007】", "006"},
+            {"[]【】[a", ""},
+            {"[[008]]", "[008"},
+            {"[多行\n编号]", "多行\n编号"},
+            {"[" + LONG_CODE + "]", LONG_CODE.substring(0, BracketCodeUtil.MAX_LENGTH)},
+            {"[" + " ".repeat(10) + LONG_CODE + "]", LONG_CODE.substring(0, BracketCodeUtil.MAX_LENGTH)},
+            {"[" + EMOJI_CODE + "]", EMOJI_CODE.substring(0, EMOJI_CODE.length() - 1)},
+    };
+
+    @Test
+    void extractsNormalizedCode() {
+        for (String[] c : CASES) {
+            assertEquals(c[1], BracketCodeUtil.extract(c[0]), "备注: " + c[0]);
+        }
+    }
+
+    @Test
+    void maxLengthMatchesGeneratedColumn() throws IOException {
+        Matcher matcher = GENERATED_EXPRESSION.matcher(migration());
+        assertTrue(matcher.find(), "V5 中未找到 bracket_code 生成列");
+        assertEquals(BracketCodeUtil.MAX_LENGTH, Integer.parseInt(matcher.group(1)));
+        assertTrue(matcher.group(2).contains(", " + BracketCodeUtil.MAX_LENGTH + ")"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "box.test.jdbc-url", matches = ".+")
+    void matchesGeneratedColumnExpression() throws IOException, SQLException {
+        Matcher matcher = GENERATED_EXPRESSION.matcher(migration());
+        assertTrue(matcher.find(), "V5 中未找到 bracket_code 生成列");
+        String sql = "SELECT " + matcher.group(2) + " FROM (SELECT CAST(? AS CHAR(500)) AS remark) t";
+
+        List<String> remarks = new ArrayList<>(Arrays.stream(CASES).map(c -> c[0]).toList());
+        remarks.add("【 全角 】 [半角]");
+        remarks.add("  [  ]  ");
+        try (Connection connection = DriverManager.getConnection(System.getProperty("box.test.jdbc-url"),
+                System.getProperty("box.test.jdbc-user", "root"), System.getProperty("box.test.jdbc-password", ""));
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (String remark : remarks) {
+                statement.setString(1, remark);
+                try (ResultSet rs = statement.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(rs.getString(1), BracketCodeUtil.extract(remark), "备注: " + remark);
+                }
+            }
+        }
+    }
+
+    private static String migration() throws IOException {
+        return new ClassPathResource(MIGRATION).getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -22,6 +22,8 @@ type CustomRequestConfig = InternalAxiosRequestConfig & {
     signal?: AbortSignal
     _isRetry?: boolean
 }
+const IDEMPOTENCY_HEADER = 'Idempotency-Key'
+
 const AUTH_WHITELIST: string[] = [
     '/api/user/login',
     '/api/user/register',
@@ -68,6 +70,11 @@ instance.interceptors.request.use(
             if (token) {
                 customConfig.headers.set('Authorization', `Bearer ${token}`)
             }
+            // 写请求携带幂等键，超时重试复用同一 config，服务端据此回放首次结果而不是重复执行
+            const method = (customConfig.method || 'get').toLowerCase()
+            if (method !== 'get' && !customConfig.headers.has(IDEMPOTENCY_HEADER)) {
+                customConfig.headers.set(IDEMPOTENCY_HEADER, crypto.randomUUID())
+            }
         }
 
         return customConfig
@@ -0,0 +1,149 @@
+// src/api/changeStream.ts
+import emitter from '@/utils/eventBus'
+import { tokenService } from '@/api/tokenService'
+
+// 服务端推送的数据变更通知
+export interface RecordChangeNotice {
+  domain: 'asset' | 'asset-name' | 'fitness'
+  dates: string[] // yyyy-MM-dd
+  recordIds: Array<string | number> // 后端数字按字符串序列化
+}
+
+const STREAM_PATH = '/api/events/stream'
+const INITIAL_RETRY_DELAY = 1000
+const MAX_RETRY_DELAY = 30000
+
+/**
+ * 数据变更推送（SSE）
+ * EventSource 不能携带 Authorization 头，这里用 fetch 读取事件流；断开后指数退避重连
+ */
+class ChangeStream {
+  private controller: AbortController | null = null
+  private retryTimer: ReturnType<typeof setTimeout> | null = null
+  private retryDelay = INITIAL_RETRY_DELAY
+  private connected = false
+  private hasConnected = false
+  private isDev = import.meta.env.DEV
+
+  start(): void {
+    if (this.controller || this.retryTimer) return
+    void this.connect()
+  }
+
+  stop(): void {
+    if (this.retryTimer) {
+      clearTimeout(this.retryTimer)
+      this.retryTimer = null
+    }
+    this.controller?.abort()
+    this.controller = null
+    this.connected = false
+    this.hasConnected = false
+    this.retryDelay = INITIAL_RETRY_DELAY
+  }
+
+  // 连接正常时写操作无需主动刷新，等待 record-changed 事件即可
+  isConnected(): boolean {
+    return this.connected
+  }
+
+  private async connect(): Promise<void> {
+    this.retryTimer = null
+    const token = tokenService.getToken()
+    if (!token) return
+
+    const controller = new AbortController()
+    this.controller = controller
+
+    try {
+      const base = (import.meta.env.VITE_API_BASE_URL || '').replace(/\/$/, '')
+      const response = await fetch(`${base}${STREAM_PATH}`, {
+        headers: {
+          Accept: 'text/event-stream',
+          Authorization: `Bearer ${token}`
+        },
+        cache: 'no-store',
+        signal: controller.signal
+      })
+
+      if (response.status === 401) {
+        // access token 过期，刷新后立即重连；刷新失败说明需要重新登录，由 axios 拦截器处理
+        const refreshed = await tokenService.refreshToken()
+        if (!refreshed) {
+          this.stop()
+          return
+        }
+        this.retryDelay = 0
+      } else if (!response.ok || !response.body) {
+        throw new Error(`HTTP ${response.status}`)
+      } else {
+        await this.read(response.body)
+      }
+    } catch (error) {
+      if (controller.signal.aborted) return
+      if (this.isDev) {
+        console.warn('🟡 [变更推送] 连接中断', error)
+      }
+    } finally {
+      this.connected = false
+    }
+
+    if (this.controller === controller) {
+      this.controller = null
+      this.scheduleReconnect()
+    }
+  }
+
+  private scheduleReconnect(): void {
+    const delay = this.retryDelay
+    this.retryDelay = Math.min(Math.max(this.retryDelay * 2, INITIAL_RETRY_DELAY), MAX_RETRY_DELAY)
+    this.retryTimer = setTimeout(() => void this.connect(), delay)
+  }
+
+  private async read(body: ReadableStream<Uint8Array>): Promise<void> {
+    const reader = body.getReader()
+    const decoder = new TextDecoder()
+    let buffer = ''
+
+    while (true) {
+      const { done, value } = await reader.read()
+      if (done) return
+
+      buffer += decoder.decode(value, { stream: true })
+      const blocks = buffer.split(/\r?\n\r?\n/)
+      buffer = blocks.pop() ?? ''
+      blocks.forEach(block => this.dispatch(block))
+    }
+  }
+
+  private dispatch(block: string): void {
+    let event = 'message'
+    const data: string[] = []
+
+    for (const line of block.split(/\r?\n/)) {
+      // 以冒号开头的是心跳注释
+      if (!line || line.startsWith(':')) continue
+      const index = line.indexOf(':')
+      const field = index === -1 ? line : line.slice(0, index)
+      const value = index === -1 ? '' : line.slice(index + 1).replace(/^ /, '')
+      if (field === 'event') event = value
+      else if (field === 'data') data.push(value)
+    }
+
+    if (event === 'ready') {
+      this.connected = true
+      this.retryDelay = INITIAL_RETRY_DELAY
+      // 重连成功时断线期间的变更可能已错过，通知各 store 补拉
+      emitter.emit('change-stream-ready', this.hasConnected)
+      this.hasConnected = true
+    } else if (event === 'change' && data.length > 0) {
+      try {
+        emitter.emit('record-changed', JSON.parse(data.join('\n')) as RecordChangeNotice)
+      } catch (error) {
+        console.error('🔴 [变更推送] 解析通知失败', error)
+      }
+    }
+  }
+}
+
+export const changeStream = new ChangeStream()
@@ -1,5 +1,5 @@
 // src/api/tokenService.ts
-import axios, { type AxiosError } from 'axios'
+import axios, { type AxiosError, type AxiosResponse } from 'axios'
 
 interface TokenPair {
   accessToken: string
@@ -12,6 +12,9 @@ interface ApiErrorResponse {
   data?: any
 }
 
+// 刷新冲突（409）时的最大重试次数
+const MAX_REFRESH_CONFLICT_RETRIES = 3
+
 // 类型保护函数
 const isAxiosError = (error: unknown): error is AxiosError => {
   return typeof error === 'object' && error !== null && 'isAxiosError' in error
@@ -126,14 +129,7 @@ class TokenService {
         console.log('🔄 开始刷新token...')
       }
 
-      const res = await axios.post<ApiErrorResponse>('/api/user/refresh-token', {
-        refreshToken
-      }, {
-        skipAuthRetry: true,
-        headers: {
-          'Content-Type': 'application/json'
-        }
-      })
+      const res = await this.postRefreshToken(refreshToken)
 
       // 检查响应数据
       if (!res.data.success || !res.data.data?.accessToken) {
@@ -164,6 +160,27 @@ class TokenService {
     }
   }
 
+  // 其他标签页正用同一 refresh token 刷新时服务端返回 409，按 Retry-After 重试即可拿到同一令牌对
+  private async postRefreshToken(refreshToken: string, attempt = 0): Promise<AxiosResponse<ApiErrorResponse>> {
+    try {
+      return await axios.post<ApiErrorResponse>('/api/user/refresh-token', {
+        refreshToken
+      }, {
+        skipAuthRetry: true,
+        headers: {
+          'Content-Type': 'application/json'
+        }
+      })
+    } catch (error: unknown) {
+      if (attempt >= MAX_REFRESH_CONFLICT_RETRIES || !isAxiosError(error) || error.response?.status !== 409) {
+        throw error
+      }
+      const retryAfter = Number(error.response.headers['retry-after']) || 1
+      await new Promise(resolve => setTimeout(resolve, retryAfter * 1000))
+      return this.postRefreshToken(refreshToken, attempt + 1)
+    }
+  }
+
   private handleRefreshError(error: unknown) {
     if (!this.isDev) {
       // 生产环境：静默处理，不打印错误信息，提升用户体验
@@ -149,6 +149,8 @@ export function useBatchSubmit(
                 if (result.overwrote) details.push('已覆盖今日记录')
                 if (result.updateCount > 0) details.push(`更新${result.updateCount}条`)
                 if (result.addCount > 0) details.push(`新增${result.addCount}条`)
+                if (result.deleteCount > 0) details.push(`删除${result.deleteCount}条`)
+                if (result.unchangedCount > 0) details.push(`未变化${result.unchangedCount}条`)
 
                 emitter.emit('notify', {
                     type: 'success',
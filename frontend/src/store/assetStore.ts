@@ -3,6 +3,7 @@ import { defineStore } from 'pinia'
 import { ref, reactive, computed } from 'vue'
 import axiosInstance from '@/api/axios'
 import emitter from '@/utils/eventBus'
+import { changeStream, type RecordChangeNotice } from '@/api/changeStream'
 import qs from 'qs'
 import type { RawAssetRecord, AssetRecord, AssetQueryConditions, AssetStatsData } from '@/types/asset'
 import { formatAssetRecord } from '@/utils/commonMeta'
@@ -72,6 +73,12 @@ export const useAssetStore = defineStore('asset', () => {
     let lastListRequestParams: string = ''
     let lastAllRequestParams: string = ''
 
+    // 变更推送触发的刷新合并执行
+    type RefreshTarget = 'list' | 'all' | 'stats'
+    const pendingRefresh = new Set<RefreshTarget>()
+    let changeTimer: ReturnType<typeof setTimeout> | null = null
+    let statsLoaded = false
+
     // 🔥 统一的加载状态管理函数 - 移除识别相关类型
     function setLoadingState(type: 'list' | 'stats' | 'operation', loading: boolean): void {
         switch (type) {
@@ -358,6 +365,7 @@ export const useAssetStore = defineStore('asset', () => {
             if (!data) return // 需要重新登录
 
             Object.assign(stats, data)
+            statsLoaded = true
 
             if (isDev) {
                 console.log('🟢 [获取统计] 统计查询成功')
@@ -380,6 +388,69 @@ export const useAssetStore = defineStore('asset', () => {
         debounceTimer = setTimeout(() => loadAllRecords(true), delay)
     }
 
+    // 🔥 变更推送：只刷新受影响的列表页与统计
+    function inQueryRange(dates: string[]): boolean {
+        // 批量操作未给出日期时按受影响处理
+        if (dates.length === 0) return true
+        return dates.some(date =>
+            (!query.startDate || date >= query.startDate) && (!query.endDate || date <= query.endDate))
+    }
+
+    function affectsStats(dates: string[]): boolean {
+        if (dates.length === 0 || !stats.previousDate) return true
+        return dates.some(date => date >= stats.previousDate!)
+    }
+
+    function handleRecordChanged(change: RecordChangeNotice): void {
+        // 资产名称变更影响列表中关联展示的名称
+        if (change.domain !== 'asset' && change.domain !== 'asset-name') return
+
+        const ids = new Set(change.recordIds.map(String))
+        const inRange = inQueryRange(change.dates)
+        const onPage = list.value.some(record => ids.has(String(record.id)))
+
+        if (lastListRequestParams && (onPage || inRange)) pendingRefresh.add('list')
+        if (lastAllRequestParams && inRange) pendingRefresh.add('all')
+        // 统计只比较最新记录日与上一记录日，其他日期的变更不影响
+        if (statsLoaded && change.domain === 'asset' && affectsStats(change.dates)) pendingRefresh.add('stats')
+
+        if (pendingRefresh.size > 0) {
+            if (isDev) {
+                console.log('🟢 [变更推送] 资产记录变更', change, [...pendingRefresh])
+            }
+            scheduleChangeRefresh()
+        }
+    }
+
+    // 断线重连后可能错过了变更，已加载的数据全部补拉一次
+    function handleStreamReady(reconnected: boolean): void {
+        if (!reconnected) return
+        if (lastListRequestParams) pendingRefresh.add('list')
+        if (lastAllRequestParams) pendingRefresh.add('all')
+        if (statsLoaded) pendingRefresh.add('stats')
+        scheduleChangeRefresh()
+    }
+
+    function scheduleChangeRefresh(delay = 200): void {
+        if (changeTimer) clearTimeout(changeTimer)
+        changeTimer = setTimeout(() => {
+            changeTimer = null
+            const targets = [...pendingRefresh]
+            pendingRefresh.clear()
+            void Promise.all(targets.map(target =>
+                target === 'list' ? loadList(true) : target === 'all' ? loadAllRecords(true) : loadStats()))
+        }, delay)
+    }
+
+    // 推送在线时由 record-changed 事件按需刷新，离线时写后直接刷新当前页与统计
+    async function refreshAfterWrite(): Promise<void> {
+        if (changeStream.isConnected()) return
+        await Promise.all([loadList(true), statsLoaded ? loadStats() : Promise.resolve()])
+    }
+
+    emitter.on('record-changed', handleRecordChanged)
+    emitter.on('change-stream-ready', handleStreamReady)
+
     // 🔥 数据操作函数
     async function addRecord(data: any): Promise<boolean> {
         setLoadingState('operation', true)
@@ -390,7 +461,7 @@ export const useAssetStore = defineStore('asset', () => {
 
             if (result !== null) {
                 emitter.emit('notify', { message: '添加成功', type: 'success' })
-                await loadList(true)
+                await refreshAfterWrite()
                 return true
             }
             return false
@@ -414,7 +485,7 @@ export const useAssetStore = defineStore('asset', () => {
 
             if (result !== null) {
                 emitter.emit('notify', { message: '更新成功', type: 'success' })
-                await loadList(true)
+                await refreshAfterWrite()
                 return true
             }
             return false
@@ -442,7 +513,7 @@ export const useAssetStore = defineStore('asset', () => {
 
             if (result !== null) {
                 emitter.emit('notify', { message: '删除成功', type: 'success' })
-                await loadList(true)
+                await refreshAfterWrite()
                 return true
             }
             return false
@@ -466,7 +537,7 @@ export const useAssetStore = defineStore('asset', () => {
 
             if (result !== null) {
                 emitter.emit('notify', { message: '复制成功', type: 'success' })
-                await loadList(true)
+                await refreshAfterWrite()
                 return true
             }
             return false
@@ -548,6 +619,11 @@ export const useAssetStore = defineStore('asset', () => {
     function cleanup(): void {
         requestManager.cleanup()
         clearDebounceTimer()
+        if (changeTimer) {
+            clearTimeout(changeTimer)
+            changeTimer = null
+        }
+        pendingRefresh.clear()
 
         if (isDev) {
             console.log('🟡 [Store清理] 已清理所有请求和定时器')
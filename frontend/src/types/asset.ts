@@ -3,6 +3,8 @@ import { BaseStatsData, BaseChartOptions } from './common'
 
 // 资产统计数据
 export interface AssetStatsData extends BaseStatsData {
+    latestDate?: string
+    previousDate?: string | null // 变化额相对的上一记录日期
     totalAssets: number
     assetsChange: number
     totalLiabilities: number
@@ -82,6 +84,16 @@ export interface BatchAddResult {
      */
     addCount: number
 
+    /**
+     * 删除记录数（强制覆盖时今日多出的记录）
+     */
+    deleteCount: number
+
+    /**
+     * 内容未变化、未写库的记录数
+     */
+    unchangedCount: number
+
     /**
      * 操作结果消息
      */
@@ -1,4 +1,5 @@
 import mitt, { Emitter, Handler } from 'mitt'
+import type { RecordChangeNotice } from '@/api/changeStream'
 
 // 通知类型
 type ToastType = 'info' | 'success' | 'error' | 'warning'
@@ -31,6 +32,8 @@ type Events = {
   'show-login': void
   'show-register': void
   'sidebar-toggled': void
+  'record-changed': RecordChangeNotice // 服务端推送的数据变更
+  'change-stream-ready': boolean // 变更推送已连接，true 表示断线重连
 }
 
 // 扩展 Emitter 类型以支持 once 方法